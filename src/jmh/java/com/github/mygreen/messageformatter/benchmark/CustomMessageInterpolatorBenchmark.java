@@ -0,0 +1,117 @@
+package com.github.mygreen.messageformatter.benchmark;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validation;
+import javax.validation.Validator;
+import javax.validation.ValidatorFactory;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.Size;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.support.ResourceBundleMessageSource;
+
+import com.github.mygreen.messageformatter.MessageInterpolator;
+import com.github.mygreen.messageformatter.beanvalidation.CustomMessageInterpolator;
+import com.github.mygreen.messageformatter.expression.SpelExpressionEvaluator;
+
+import lombok.Data;
+
+/**
+ * HibernateValidatorから{@link CustomMessageInterpolator}を呼び出すベンチマーク。
+ * <p>全てのプロパティが制約に違反するBeanを検証し、エラーメッセージを作成します。</p>
+ *
+ *
+ * @author T.TSUCHIE
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CustomMessageInterpolatorBenchmark {
+
+    private ValidatorFactory validatorFactory;
+
+    private Validator validator;
+
+    private SampleBean targetBean;
+
+    @Setup
+    public void setUp() {
+
+        final ResourceBundleMessageSource messageSource = new ResourceBundleMessageSource();
+        messageSource.addBasenames("benchmark_messages");
+        messageSource.setDefaultEncoding("UTF-8");
+        messageSource.setUseCodeAsDefaultMessage(false);
+        messageSource.setFallbackToSystemLocale(false);
+
+        final CustomMessageInterpolator messageInterpolator = new CustomMessageInterpolator(
+                messageSource,
+                new MessageInterpolator(new SpelExpressionEvaluator()));
+
+        this.validatorFactory = Validation.byDefaultProvider().configure()
+                .messageInterpolator(messageInterpolator)
+                .buildValidatorFactory();
+        this.validator = validatorFactory.getValidator();
+
+        this.targetBean = new SampleBean();
+        targetBean.setName("");
+        targetBean.setAge(-1);
+        targetBean.setScore(1000);
+    }
+
+    @TearDown
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<SampleBean>> validate() {
+        return validator.validate(targetBean);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Set<ConstraintViolation<SampleBean>> validate_multiThread() {
+        return validate();
+    }
+
+    /**
+     * 検証対象のBean
+     *
+     */
+    @Data
+    public static class SampleBean {
+
+        @NotBlank
+        @Size(min = 2, max = 20)
+        private String name;
+
+        @Min(0)
+        @Max(150)
+        private Integer age;
+
+        @Max(100)
+        private Integer score;
+
+    }
+
+}
@@ -0,0 +1,92 @@
+package com.github.mygreen.messageformatter.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.mygreen.messageformatter.expression.ExpressionEvaluator;
+import com.github.mygreen.messageformatter.expression.JexlExpressionEvaluator;
+import com.github.mygreen.messageformatter.expression.ParsedExpression;
+import com.github.mygreen.messageformatter.expression.SpelExpressionEvaluator;
+
+/**
+ * {@link SpelExpressionEvaluator}と{@link JexlExpressionEvaluator}を比較するベンチマーク。
+ * <p>同じ内容の式を、それぞれの構文で評価します。</p>
+ *
+ *
+ * @author T.TSUCHIE
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExpressionEvaluatorBenchmark {
+
+    @Param({"spel", "jexl"})
+    private String evaluator;
+
+    private ExpressionEvaluator expressionEvaluator;
+
+    private String expression;
+
+    private ParsedExpression parsedExpression;
+
+    private Map<String, Object> variables;
+
+    @Setup
+    public void setUp() {
+
+        if("spel".equals(evaluator)) {
+            this.expressionEvaluator = new SpelExpressionEvaluator();
+            this.expression = "#empty(#name) ? '' : #name + 'の値は' + #min + '～' + #max + '（' + #join(#values, ', ') + '）'";
+
+        } else if("jexl".equals(evaluator)) {
+            this.expressionEvaluator = new JexlExpressionEvaluator();
+            this.expression = "empty(name) ? '' : name + 'の値は' + min + '～' + max + '（' + f:join(values, ', ') + '）'";
+
+        } else {
+            throw new IllegalArgumentException("unknown evaluator : " + evaluator);
+        }
+
+        this.parsedExpression = expressionEvaluator.parse(expression);
+
+        this.variables = new HashMap<>();
+        variables.put("name", "年齢");
+        variables.put("min", 0);
+        variables.put("max", 100);
+        variables.put("values", new int[] {1, 2, 3});
+    }
+
+    @Benchmark
+    public Object evaluate() {
+        return expressionEvaluator.evaluate(expression, variables);
+    }
+
+    @Benchmark
+    public Object evaluateParsed() {
+        return parsedExpression.evaluate(variables);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object evaluate_multiThread() {
+        return evaluate();
+    }
+
+}
@@ -0,0 +1,123 @@
+package com.github.mygreen.messageformatter.benchmark;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.support.ResourceBundleMessageSource;
+
+import com.github.mygreen.messageformatter.MessageFormatter;
+import com.github.mygreen.messageformatter.MessageInterpolator;
+import com.github.mygreen.messageformatter.MessageParams;
+import com.github.mygreen.messageformatter.PreparedMessage;
+import com.github.mygreen.messageformatter.expression.SpelExpressionEvaluator;
+
+/**
+ * {@link ResourceBundleMessageSource}を使用した、{@link MessageFormatter.Builder#format()}と
+ * {@link PreparedMessage}のベンチマーク。
+ * <p>メッセージコードは、{@code benchmark_messages.properties}に定義しています。</p>
+ *
+ *
+ * @author T.TSUCHIE
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MessageFormatterBenchmark {
+
+    @Param({"benchmark.plain", "benchmark.variables", "benchmark.expressions", "benchmark.recursive"})
+    private String code;
+
+    private MessageFormatter messageFormatter;
+
+    private PreparedMessage preparedMessage;
+
+    private int labelSlot;
+
+    private int valueSlot;
+
+    private int minSlot;
+
+    private int maxSlot;
+
+    @Setup
+    public void setUp() {
+
+        final ResourceBundleMessageSource messageSource = new ResourceBundleMessageSource();
+        messageSource.addBasenames("benchmark_messages");
+        messageSource.setDefaultEncoding("UTF-8");
+        messageSource.setUseCodeAsDefaultMessage(false);
+        messageSource.setFallbackToSystemLocale(false);
+
+        this.messageFormatter = new MessageFormatter(messageSource, new MessageInterpolator(new SpelExpressionEvaluator()));
+
+        this.preparedMessage = messageFormatter.prepare(code, Locale.JAPANESE);
+        this.labelSlot = preparedMessage.getSlot("label");
+        this.valueSlot = preparedMessage.getSlot("value");
+        this.minSlot = preparedMessage.getSlot("min");
+        this.maxSlot = preparedMessage.getSlot("max");
+    }
+
+    @Benchmark
+    public String format() {
+        return messageFormatter.create(code, Locale.JAPANESE)
+                .param("label", "金額")
+                .param("value", 12.345)
+                .param("min", 0)
+                .param("max", 10)
+                .formatRecursively();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String format_multiThread() {
+        return format();
+    }
+
+    /**
+     * 事前に取得したメッセージを、スロット番号を割り当てたパラメータでフォーマットする。
+     * <p>メッセージ中の変数<code>{...}</code>にない変数は、変数名で追加する。</p>
+     * @return フォーマットしたメッセージ
+     */
+    @Benchmark
+    public String formatPrepared() {
+
+        final MessageParams params = preparedMessage.newParams();
+        setParam(params, labelSlot, "label", "金額");
+        setParam(params, valueSlot, "value", 12.345);
+        setParam(params, minSlot, "min", 0);
+        setParam(params, maxSlot, "max", 10);
+
+        return preparedMessage.bind(params).formatRecursively();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String formatPrepared_multiThread() {
+        return formatPrepared();
+    }
+
+    private static void setParam(final MessageParams params, final int slot, final String name, final Object value) {
+        if(slot >= 0) {
+            params.set(slot, value);
+        } else {
+            params.set(name, value);
+        }
+    }
+
+}
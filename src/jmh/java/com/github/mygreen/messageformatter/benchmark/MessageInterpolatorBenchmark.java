@@ -0,0 +1,117 @@
+package com.github.mygreen.messageformatter.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.mygreen.messageformatter.MessageInterpolator;
+import com.github.mygreen.messageformatter.expression.SpelExpressionEvaluator;
+
+/**
+ * {@link MessageInterpolator#interpolate(String, Map)}のベンチマーク。
+ * <p>メッセージの種類ごとに測定します。</p>
+ * <ul>
+ *   <li>plain : 変数もEL式も含まない。</li>
+ *   <li>variables : 変数を多く含む。</li>
+ *   <li>expressions : EL式を多く含む。</li>
+ *   <li>recursive : 変数の値を再帰的に処理する。</li>
+ * </ul>
+ *
+ *
+ * @author T.TSUCHIE
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MessageInterpolatorBenchmark {
+
+    @Param({"plain", "variables", "expressions", "recursive"})
+    private String template;
+
+    private MessageInterpolator interpolator;
+
+    private String message;
+
+    private Map<String, Object> vars;
+
+    private boolean recursive;
+
+    @Setup
+    public void setUp() {
+
+        this.interpolator = new MessageInterpolator(new SpelExpressionEvaluator());
+        this.vars = new HashMap<>();
+
+        switch(template) {
+            case "plain":
+                this.message = "入力値が不正です。入力内容を確認して、再度実行してください。";
+                break;
+
+            case "variables":
+                this.message = "{propertyName}の値「{validatedValue}」は、{min}～{max}の範囲で入力してください。"
+                        + "（{propertyPath}、{groups}、{payload}、{inclusive}）";
+                vars.put("propertyName", "年齢");
+                vars.put("propertyPath", "person.age");
+                vars.put("validatedValue", 120);
+                vars.put("min", 0);
+                vars.put("max", 100);
+                vars.put("groups", "Default");
+                vars.put("payload", "none");
+                vars.put("inclusive", true);
+                break;
+
+            case "expressions":
+                this.message = "${#empty(#propertyName) ? '' : #propertyName + 'の値は、'}"
+                        + "${#formatter.format('%1.2f', #validatedValue)}ではなく、"
+                        + "${#min}～${#max}の範囲で入力してください。（${#join(#values, ', ')}）";
+                vars.put("propertyName", "金額");
+                vars.put("validatedValue", 12.345);
+                vars.put("min", 0);
+                vars.put("max", 10);
+                vars.put("values", new int[] {1, 2, 3});
+                break;
+
+            case "recursive":
+                this.message = "{level1}";
+                this.recursive = true;
+                vars.put("level1", "1:{level2}");
+                vars.put("level2", "2:{level3}");
+                vars.put("level3", "3:{level4}");
+                vars.put("level4", "4:${#value + 1}");
+                vars.put("value", 10);
+                break;
+
+            default:
+                throw new IllegalArgumentException("unknown template : " + template);
+        }
+    }
+
+    @Benchmark
+    public String interpolate() {
+        return recursive ? interpolator.interpolate(message, vars, 10) : interpolator.interpolate(message, vars);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String interpolate_multiThread() {
+        return interpolate();
+    }
+
+}
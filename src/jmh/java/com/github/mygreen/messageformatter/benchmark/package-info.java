@@ -0,0 +1,15 @@
+/**
+ * JMHによる性能測定のベンチマークです。
+ * <p>Mavenのプロファイル{@code benchmark}を指定して実行します。
+ *    JMHのオプションは、プロパティ{@code jmh.args}で指定します。初期値は{@code -prof gc}で、GCのプロファイラを有効にします。</p>
+ * <pre class="highlight"><code class="language-shell">
+ * # 全てのベンチマークを実行する
+ * mvn -Pbenchmark test-compile exec:exec
+ *
+ * # ベンチマークを絞り込み、スレッド数などを指定して実行する
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="MessageInterpolatorBenchmark -prof gc -t 4 -f 1"
+ * </code></pre>
+ * <p>各ベンチマークには、{@code @Threads}で複数のスレッドから同時に実行する版を用意しています。
+ *    メソッド名の末尾が{@code _multiThread}のものが該当します。</p>
+ */
+package com.github.mygreen.messageformatter.benchmark;
@@ -0,0 +1,147 @@
+package com.github.mygreen.messageformatter;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.Formatter;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * EL式の評価時に渡す変数のマップ。
+ * <p>呼び出し元の変数をコピーせずに参照し、その上に組み込みの変数を重ねたビューです。</p>
+ * <p>組み込みの変数は、呼び出し元の変数に存在しないか値が{@literal null}の場合に、式中で参照されたときに初めて作成します。
+ *    作成した値は、このマップ内で使い回します。</p>
+ * <ul>
+ *   <li>formatter : {@link Formatter}のインスタンス。</li>
+ * </ul>
+ * <p>呼び出し元の変数の値が {@link LazyVariable} の場合は、参照されたときに値を作成して返します。</p>
+ * <p>式中で変数に代入した場合は、このマップ内でのみ保持し、呼び出し元の変数は変更しません。</p>
+ * <p>1回の評価でのみ使用するため、スレッドセーフではありません。</p>
+ *
+ *
+ * @author T.TSUCHIE
+ *
+ */
+class ExpressionVariables extends AbstractMap<String, Object> {
+
+    /**
+     * 組み込みの変数の作成処理
+     */
+    private static final Map<String, Supplier<Object>> BUILTIN_VARIABLES =
+            Collections.singletonMap("formatter", Formatter::new);
+
+    /**
+     * 呼び出し元の変数
+     */
+    private final Map<String, ?> values;
+
+    /**
+     * 作成した組み込みの変数と、式中で代入された変数。必要になるまでは作成しない。
+     */
+    private Map<String, Object> overlay;
+
+    /**
+     * インスタンスを作成します。
+     * @param values 呼び出し元の変数。コピーせずにそのまま参照します。
+     */
+    ExpressionVariables(final Map<String, ?> values) {
+        this.values = values;
+    }
+
+    @Override
+    public Object get(final Object key) {
+
+        if(!(key instanceof String)) {
+            return null;
+        }
+
+        if(overlay != null && overlay.containsKey(key)) {
+            return overlay.get(key);
+        }
+
+        final Object value = LazyVariable.unwrap(values.get(key));
+        if(value != null) {
+            return value;
+        }
+
+        final Supplier<Object> builtin = BUILTIN_VARIABLES.get(key);
+        if(builtin == null) {
+            return null;
+        }
+
+        final Object created = builtin.get();
+        overlay().put((String) key, created);
+        return created;
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+
+        if(!(key instanceof String)) {
+            return false;
+        }
+
+        return (overlay != null && overlay.containsKey(key))
+                || definedValue(key)
+                || BUILTIN_VARIABLES.containsKey(key);
+    }
+
+    @Override
+    public Object put(final String key, final Object value) {
+
+        final Object previous = overlay != null && overlay.containsKey(key) ? overlay.get(key) : LazyVariable.unwrap(values.get(key));
+        overlay().put(key, value);
+        return previous;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>全ての変数を列挙するため、組み込みの変数と {@link LazyVariable} の値も作成し、変数をコピーします。</p>
+     */
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+
+        final Map<String, Object> merged = new LinkedHashMap<>();
+        values.forEach((key, value) -> {
+            if(value instanceof LazyVariable) {
+                final LazyVariable<?> lazy = (LazyVariable<?>) value;
+                if(lazy.isDefined()) {
+                    merged.put(key, lazy.get());
+                }
+            } else {
+                merged.put(key, value);
+            }
+        });
+        BUILTIN_VARIABLES.keySet().forEach(key -> merged.put(key, get(key)));
+        if(overlay != null) {
+            merged.putAll(overlay);
+        }
+
+        return Collections.unmodifiableMap(merged).entrySet();
+    }
+
+    /**
+     * 呼び出し元の変数に定義されているかどうか判定します。
+     * @param key 変数名
+     * @return {@literal true}のとき定義されています。
+     */
+    private boolean definedValue(final Object key) {
+
+        final Object value = values.get(key);
+        if(value instanceof LazyVariable) {
+            return ((LazyVariable<?>) value).isDefined();
+        }
+        return value != null || values.containsKey(key);
+    }
+
+    private Map<String, Object> overlay() {
+        if(overlay == null) {
+            overlay = new HashMap<>();
+        }
+        return overlay;
+    }
+
+}
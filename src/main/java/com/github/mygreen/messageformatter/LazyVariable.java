@@ -0,0 +1,141 @@
+package com.github.mygreen.messageformatter;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import lombok.NonNull;
+
+/**
+ * メッセージ中で参照されたときに初めて値を作成する変数。
+ * <p>{@link MessageInterpolator}に渡す変数の値として指定すると、メッセージ中の変数<code>{...}</code>や
+ *    EL式<code>${...}</code>から参照されたときにのみ値を作成します。
+ *    作成した値は保持し、再度参照されたときはそのまま返します。</p>
+ * <p>{@link #ofOptional(Supplier)}で作成した場合、値が空のときは変数が定義されていないものとして扱います。</p>
+ * <p>複数のスレッドから参照できますが、同時に参照された場合は値を複数回作成することがあります。
+ *    値の作成に失敗した場合は保持せず、次に参照されたときに再度作成します。</p>
+ *
+ *
+ * @author T.TSUCHIE
+ *
+ * @param <T> 値のクラスタイプ
+ */
+public final class LazyVariable<T> {
+
+    /**
+     * 値をまだ作成していないことを表す値
+     */
+    private static final Object UNRESOLVED = new Object();
+
+    /**
+     * 変数が定義されていないことを表す値
+     */
+    private static final Object UNDEFINED = new Object();
+
+    /**
+     * 値を作成する処理
+     */
+    private final Supplier<?> supplier;
+
+    /**
+     * 値を作成する処理が{@link Optional}を返すかどうか
+     */
+    private final boolean optional;
+
+    /**
+     * 作成した値
+     */
+    private volatile Object resolved = UNRESOLVED;
+
+    private LazyVariable(final Supplier<?> supplier, final boolean optional) {
+        this.supplier = supplier;
+        this.optional = optional;
+    }
+
+    /**
+     * 値を作成する処理を指定してインスタンスを作成します。
+     * @param <T> 値のクラスタイプ
+     * @param supplier 値を作成する処理。{@literal null}を返した場合は、値が{@literal null}の変数として扱います。
+     * @return 参照されたときに値を作成する変数
+     */
+    public static <T> LazyVariable<T> of(@NonNull final Supplier<? extends T> supplier) {
+        return new LazyVariable<>(supplier, false);
+    }
+
+    /**
+     * 変数が定義されているかどうかも含めて、値を作成する処理を指定してインスタンスを作成します。
+     * @param <T> 値のクラスタイプ
+     * @param supplier 値を作成する処理。空を返した場合は、変数が定義されていないものとして扱います。
+     * @return 参照されたときに値を作成する変数
+     */
+    public static <T> LazyVariable<T> ofOptional(@NonNull final Supplier<Optional<? extends T>> supplier) {
+        return new LazyVariable<>(supplier, true);
+    }
+
+    /**
+     * 変数が定義されているかどうか判定します。
+     * <p>値をまだ作成していない場合は、作成します。</p>
+     * @return {@literal true}のとき定義されています。
+     */
+    public boolean isDefined() {
+        return resolve() != UNDEFINED;
+    }
+
+    /**
+     * 変数の値を取得します。
+     * <p>値をまだ作成していない場合は、作成します。</p>
+     * @return 変数の値。定義されていない場合は{@literal null}を返します。
+     */
+    @SuppressWarnings("unchecked")
+    public T get() {
+        final Object value = resolve();
+        return value == UNDEFINED ? null : (T) value;
+    }
+
+    /**
+     * 値を作成済みかどうか判定します。
+     * @return {@literal true}のとき作成済みです。
+     */
+    public boolean isResolved() {
+        return resolved != UNRESOLVED;
+    }
+
+    private Object resolve() {
+
+        Object value = resolved;
+        if(value != UNRESOLVED) {
+            return value;
+        }
+
+        value = supplier.get();
+        if(optional) {
+            value = value == null ? UNDEFINED : ((Optional<?>) value).map(Object.class::cast).orElse(UNDEFINED);
+        }
+
+        resolved = value;
+        return value;
+    }
+
+    /**
+     * 変数の値が{@link LazyVariable}の場合は、値を作成して取得します。
+     * @param value 変数の値
+     * @return {@link LazyVariable}以外の場合は、引数の値をそのまま返します。
+     */
+    public static Object unwrap(final Object value) {
+        if(value instanceof LazyVariable) {
+            return ((LazyVariable<?>) value).get();
+        }
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        final Object value = resolved;
+        if(value == UNRESOLVED) {
+            return "LazyVariable[unresolved]";
+        } else if(value == UNDEFINED) {
+            return "LazyVariable[undefined]";
+        }
+        return "LazyVariable[" + value + "]";
+    }
+
+}
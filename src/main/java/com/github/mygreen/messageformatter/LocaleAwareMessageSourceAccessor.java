@@ -0,0 +1,54 @@
+package com.github.mygreen.messageformatter;
+
+import java.util.Locale;
+
+import org.springframework.context.MessageSource;
+import org.springframework.context.support.MessageSourceAccessor;
+
+import lombok.Getter;
+
+/**
+ * 参照先のメッセージソースとロケールを取得できる {@link MessageSourceAccessor}。
+ * <p>{@link MessageInterpolator}に渡すと、メッセージコードの解決結果を {@link MessageCodeCache} にキャッシュします。</p>
+ *
+ *
+ * @author T.TSUCHIE
+ *
+ */
+public class LocaleAwareMessageSourceAccessor extends MessageSourceAccessor {
+
+    /**
+     * メッセージソース
+     */
+    @Getter
+    private final MessageSource messageSource;
+
+    /**
+     * メッセージソースを指定してインスタンスを作成します。
+     * <p>ロケールは、{@link org.springframework.context.i18n.LocaleContextHolder}から取得します。</p>
+     * @param messageSource メッセージソース
+     */
+    public LocaleAwareMessageSourceAccessor(final MessageSource messageSource) {
+        super(messageSource);
+        this.messageSource = messageSource;
+    }
+
+    /**
+     * メッセージソースとロケールを指定してインスタンスを作成します。
+     * @param messageSource メッセージソース
+     * @param defaultLocale ロケール。{@literal null}の場合は、{@link org.springframework.context.i18n.LocaleContextHolder}から取得します。
+     */
+    public LocaleAwareMessageSourceAccessor(final MessageSource messageSource, final Locale defaultLocale) {
+        super(messageSource, defaultLocale);
+        this.messageSource = messageSource;
+    }
+
+    /**
+     * メッセージを解決するときのロケールを取得します。
+     * @return ロケール
+     */
+    public Locale getLocale() {
+        return getDefaultLocale();
+    }
+
+}
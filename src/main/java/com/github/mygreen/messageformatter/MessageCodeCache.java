@@ -0,0 +1,223 @@
+package com.github.mygreen.messageformatter;
+
+import java.lang.reflect.Method;
+import java.util.Locale;
+import java.util.Objects;
+
+import org.springframework.context.MessageSource;
+import org.springframework.context.support.AbstractResourceBasedMessageSource;
+import org.springframework.context.support.ReloadableResourceBundleMessageSource;
+import org.springframework.util.ReflectionUtils;
+
+import com.github.mygreen.messageformatter.expression.CacheStats;
+import com.github.mygreen.messageformatter.expression.ObjectCache;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+
+/**
+ * メッセージソース、ロケール、メッセージコードごとに、メッセージの解決結果を保持するキャッシュ。
+ * <p>メッセージコードが存在しなかった結果もキャッシュします。
+ *    そのため、メッセージコードではない変数<code>{...}</code>を繰り返し処理しても、メッセージソースの検索や例外の作成が発生しません。</p>
+ * <p>有効期間を指定しない場合、{@link ReloadableResourceBundleMessageSource}などの {@link AbstractResourceBasedMessageSource} は、
+ *    メッセージソースに設定した再読み込みの間隔（{@literal cacheMillis}）を有効期間とします。
+ *    メッセージソースの間隔が{@literal 0}の場合はキャッシュせず、{@literal -1}の場合は{@link #clear()}を呼び出すまで保持します。
+ *    ただし、親のメッセージソースの設定は参照しません。</p>
+ * <p>それ以外のメッセージソースの内容を変更した場合は、{@link #clear()}を呼び出すか、
+ *    {@link #setCacheMillis(long)}で有効期間を指定してください。</p>
+ *
+ *
+ * @author T.TSUCHIE
+ *
+ */
+public class MessageCodeCache {
+
+    /**
+     * {@link AbstractResourceBasedMessageSource}の再読み込みの間隔を取得するメソッド
+     */
+    private static final Method GET_CACHE_MILLIS;
+    static {
+        GET_CACHE_MILLIS = ReflectionUtils.findMethod(AbstractResourceBasedMessageSource.class, "getCacheMillis");
+        ReflectionUtils.makeAccessible(GET_CACHE_MILLIS);
+    }
+
+    /**
+     * 解決結果のキャッシュ
+     */
+    private final ObjectCache<Key, Entry> cache;
+
+    /**
+     * キャッシュの有効期間（ミリ秒）。
+     * <p>初期値は{@literal -1}で、メッセージソースの再読み込みの間隔に従います。再読み込みしないメッセージソースの場合は、
+     *    {@link #clear()}を呼び出すまで保持します。{@literal 0}のときはキャッシュしません。</p>
+     * <p>メッセージソースの設定によらず{@link #clear()}を呼び出すまで保持する場合は、{@link Long#MAX_VALUE}を指定します。</p>
+     */
+    @Getter
+    @Setter
+    private volatile long cacheMillis = -1;
+
+    /**
+     * キャッシュの最大個数を {@link ObjectCache#DEFAULT_MAX_SIZE} としてインスタンスを作成します。
+     */
+    public MessageCodeCache() {
+        this(ObjectCache.DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * キャッシュの最大個数を指定してインスタンスを作成します。
+     * @param maxSize キャッシュの最大個数。{@literal 0}以下のときは全て保持します。
+     */
+    public MessageCodeCache(final int maxSize) {
+        this.cache = new ObjectCache<>(maxSize);
+    }
+
+    /**
+     * メッセージコードに対するメッセージを取得します。
+     * @param messageSource メッセージソース
+     * @param code メッセージコード
+     * @param locale ロケール
+     * @return メッセージ。メッセージコードが存在しない場合は{@literal null}を返します。
+     *         ただし、メッセージソースの設定でコードをデフォルトメッセージとして使用する場合は、コードを返します。
+     */
+    public String getMessage(@NonNull final MessageSource messageSource, @NonNull final String code, final Locale locale) {
+
+        final long millis = cacheMillis;
+        if(millis == 0) {
+            return messageSource.getMessage(code, null, null, locale);
+        }
+
+        final Key key = new Key(messageSource, code, locale);
+        final Entry entry = cache.get(key);
+        final long now = System.currentTimeMillis();
+        if(entry != null && isValid(entry.timestamp, millis < 0 ? entry.sourceCacheMillis : millis, now)) {
+            return entry.message;
+        }
+
+        // メッセージソースの再読み込みの間隔は、解決する度に取得せずにキャッシュの値として保持する。
+        final long sourceCacheMillis = millis < 0 ? getSourceCacheMillis(messageSource) : -1L;
+        final String message = messageSource.getMessage(code, null, null, locale);
+        if(sourceCacheMillis != 0) {
+            cache.put(key, new Entry(message, now, sourceCacheMillis));
+        }
+        return message;
+    }
+
+    /**
+     * メッセージソースに対するキャッシュの有効期間を取得します。
+     * <p>{@link #getCacheMillis()}が{@literal 0}以上の場合はその値を、それ以外の場合はメッセージソースの再読み込みの間隔を返します。</p>
+     * @param messageSource メッセージソース
+     * @return 有効期間（ミリ秒）。{@literal -1}のときは{@link #clear()}を呼び出すまで保持します。
+     */
+    public long getCacheMillis(@NonNull final MessageSource messageSource) {
+        final long millis = cacheMillis;
+        return millis >= 0 ? millis : getSourceCacheMillis(messageSource);
+    }
+
+    /**
+     * 解決した時刻と有効期間から、キャッシュの値が有効かどうか判定します。
+     * @param timestamp 解決した時刻
+     * @param millis 有効期間（ミリ秒）。{@literal -1}のときは期限なし。
+     * @param now 現在時刻
+     * @return {@literal true}のとき有効です。
+     */
+    static boolean isValid(final long timestamp, final long millis, final long now) {
+        return millis < 0 || now - timestamp < millis;
+    }
+
+    /**
+     * メッセージソースの再読み込みの間隔を取得します。
+     * <p>{@link AbstractResourceBasedMessageSource#getCacheMillis()}は公開されていないため、リフレクションにより呼び出します。</p>
+     * @param messageSource メッセージソース
+     * @return 再読み込みしないメッセージソースの場合は{@literal -1}を返します。
+     */
+    private static long getSourceCacheMillis(final MessageSource messageSource) {
+        if(!(messageSource instanceof AbstractResourceBasedMessageSource)) {
+            return -1L;
+        }
+        return (Long) ReflectionUtils.invokeMethod(GET_CACHE_MILLIS, messageSource);
+    }
+
+    /**
+     * キャッシュの個数を取得します。
+     * @return キャッシュの個数。
+     */
+    public int size() {
+        return cache.size();
+    }
+
+    /**
+     * キャッシュの統計情報を取得します。
+     * @return 現時点の統計情報のスナップショット。
+     */
+    public CacheStats getStats() {
+        return cache.getStats();
+    }
+
+    /**
+     * キャッシュを全て削除します。
+     * <p>メッセージソースの内容を再読み込みした際に呼び出します。</p>
+     */
+    public void clear() {
+        cache.clear();
+    }
+
+    /**
+     * キャッシュのキー。メッセージソースはインスタンスの同一性で比較します。
+     */
+    @RequiredArgsConstructor
+    static final class Key {
+
+        private final MessageSource messageSource;
+
+        private final String code;
+
+        private final Locale locale;
+
+        @Override
+        public boolean equals(final Object obj) {
+            if(this == obj) {
+                return true;
+            }
+            if(!(obj instanceof Key)) {
+                return false;
+            }
+
+            final Key other = (Key) obj;
+            return messageSource == other.messageSource
+                    && code.equals(other.code)
+                    && Objects.equals(locale, other.locale);
+        }
+
+        @Override
+        public int hashCode() {
+            return (System.identityHashCode(messageSource) * 31 + code.hashCode()) * 31 + Objects.hashCode(locale);
+        }
+
+    }
+
+    /**
+     * キャッシュの値。
+     */
+    @RequiredArgsConstructor
+    static final class Entry {
+
+        /**
+         * 解決したメッセージ。存在しない場合は{@literal null}。
+         */
+        private final String message;
+
+        /**
+         * 解決した時刻
+         */
+        private final long timestamp;
+
+        /**
+         * 解決した時点のメッセージソースの再読み込みの間隔
+         */
+        private final long sourceCacheMillis;
+
+    }
+
+}
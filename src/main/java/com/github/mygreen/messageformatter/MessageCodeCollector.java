@@ -0,0 +1,114 @@
+package com.github.mygreen.messageformatter;
+
+import java.lang.reflect.Method;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.ResourceBundle;
+import java.util.Set;
+
+import org.springframework.context.HierarchicalMessageSource;
+import org.springframework.context.MessageSource;
+import org.springframework.context.support.ReloadableResourceBundleMessageSource;
+import org.springframework.context.support.ResourceBundleMessageSource;
+import org.springframework.util.ReflectionUtils;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * {@link MessageSource}に定義されているメッセージコードを列挙するクラス。
+ * <p>{@link MessageSource}にはメッセージコードを列挙するAPIがないため、次の実装のみ、メッセージソース自身の読み込み処理を呼び出して列挙します。
+ *    そのため、クラスローダー、リソースローダー、文字コード、システムのロケールへのフォールバックなどは、メッセージソースの設定に従います。
+ *    親のメッセージソースも対象とします。</p>
+ * <ul>
+ *   <li>{@link ResourceBundleMessageSource} : {@literal getResourceBundle(String, Locale)}で読み込んだ、基底名ごとの {@link ResourceBundle}。</li>
+ *   <li>{@link ReloadableResourceBundleMessageSource} : {@literal getMergedProperties(Locale)}で読み込んだプロパティ。</li>
+ * </ul>
+ * <p>これらのメソッドは公開されていないため、リフレクションにより呼び出します。
+ *    Springの内部実装であり、依存しているSpringのバージョン（5.0系）のシグニチャに合わせています。
+ *    Springのバージョンアップによりメソッドが見つからない場合は、列挙できないメッセージソースと同様に{@link IllegalArgumentException}をスローします。</p>
+ *
+ *
+ * @author T.TSUCHIE
+ *
+ */
+@Slf4j
+class MessageCodeCollector {
+
+    /**
+     * 公開されていないメソッドを取得します。
+     * <p>Springの内部実装のため、クラスの初期化時ではなく、列挙するときに取得します。</p>
+     * @param type メソッドを定義しているクラス
+     * @param name メソッド名
+     * @param parameterTypes 引数の型
+     * @return 呼び出し可能にしたメソッド
+     * @throws IllegalArgumentException メソッドが見つからない場合。
+     */
+    static Method findMethod(final Class<?> type, final String name, final Class<?>... parameterTypes) {
+        final Method method = ReflectionUtils.findMethod(type, name, parameterTypes);
+        if(method == null) {
+            throw new IllegalArgumentException(String.format("not support enumerating message codes : %s (not found method '%s')",
+                    type.getName(), name));
+        }
+        ReflectionUtils.makeAccessible(method);
+        return method;
+    }
+
+    /**
+     * 指定したロケールで参照されるメッセージコードを追加します。
+     * @param messageSource メッセージソース
+     * @param locale ロケール
+     * @param codes 追加先
+     * @throws IllegalArgumentException メッセージコードを列挙できないメッセージソースの場合。
+     */
+    void collect(final MessageSource messageSource, final Locale locale, final Set<String> codes) {
+
+        if(messageSource instanceof ResourceBundleMessageSource) {
+            final ResourceBundleMessageSource source = (ResourceBundleMessageSource) messageSource;
+            // Spring 5.0 の protected ResourceBundle getResourceBundle(String, Locale)
+            final Method getResourceBundle = findMethod(ResourceBundleMessageSource.class,
+                    "getResourceBundle", String.class, Locale.class);
+            for(String basename : source.getBasenameSet()) {
+                final ResourceBundle bundle = (ResourceBundle) ReflectionUtils.invokeMethod(
+                        getResourceBundle, source, basename, locale);
+                if(bundle == null) {
+                    log.warn("ResourceBundle [{}] not found for locale [{}].", basename, locale);
+                    continue;
+                }
+                codes.addAll(bundle.keySet());
+            }
+
+        } else if(messageSource instanceof ReloadableResourceBundleMessageSource) {
+            // Spring 5.0 の protected PropertiesHolder getMergedProperties(Locale)
+            final Method getMergedProperties = findMethod(ReloadableResourceBundleMessageSource.class,
+                    "getMergedProperties", Locale.class);
+            final Object holder = ReflectionUtils.invokeMethod(getMergedProperties, messageSource, locale);
+            final Properties properties = holder != null ? getProperties(holder) : null;
+            if(properties != null) {
+                codes.addAll(properties.stringPropertyNames());
+            }
+
+        } else {
+            throw new IllegalArgumentException("not support enumerating message codes : " + messageSource.getClass().getName());
+        }
+
+        if(messageSource instanceof HierarchicalMessageSource) {
+            final MessageSource parent = ((HierarchicalMessageSource) messageSource).getParentMessageSource();
+            if(parent != null) {
+                collect(parent, locale, codes);
+            }
+        }
+    }
+
+    /**
+     * {@link ReloadableResourceBundleMessageSource}の、公開されていないクラス {@literal PropertiesHolder} からプロパティを取得します。
+     * @param holder プロパティを保持するインスタンス
+     * @return プロパティ。読み込めなかった場合は{@literal null}。
+     * @throws IllegalArgumentException メソッドが見つからない場合。
+     */
+    private static Properties getProperties(final Object holder) {
+        // Spring 5.0 の PropertiesHolder#getProperties()
+        final Method method = findMethod(holder.getClass(), "getProperties");
+        return (Properties) ReflectionUtils.invokeMethod(method, holder);
+    }
+
+}
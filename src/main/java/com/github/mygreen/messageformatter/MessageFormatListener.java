@@ -0,0 +1,107 @@
+package com.github.mygreen.messageformatter;
+
+import java.util.Locale;
+
+import com.github.mygreen.messageformatter.expression.ExpressionListener;
+
+/**
+ * メッセージのフォーマットの各段階を通知するリスナー。
+ * <p>{@link MessageFormatter#setListener(MessageFormatListener)} で登録すると、
+ *    {@link MessageInterpolator}と{@link com.github.mygreen.messageformatter.expression.ExpressionEvaluator}にも登録します。
+ *    登録していない場合は、処理時間の計測も行いません。</p>
+ * <p>複数のスレッドから同時に呼び出されるため、実装はスレッドセーフでなければなりません。
+ *    また、メッセージの処理中に呼び出されるため、時間のかかる処理を行ってはいけません。</p>
+ * <p>全てのメソッドは、デフォルトでは何もしません。必要なメソッドのみ実装します。
+ *    メモリ上に集計する実装として、{@link MessageFormatStatistics}を提供しています。</p>
+ *
+ *
+ * @author T.TSUCHIE
+ *
+ */
+public interface MessageFormatListener extends ExpressionListener {
+
+    /**
+     * メッセージコードを指定したメッセージをフォーマットしたときに呼び出されます。
+     * <p>{@link MessageFormatter}から作成したビルダーや、{@link PreparedMessage}、
+     *    {@link MessageFormatter#formatAll(java.util.Collection)}でフォーマットした場合に呼び出されます。</p>
+     * @param code メッセージコード
+     * @param locale ロケール
+     * @param nanos メッセージの取得からフォーマットまでにかかった時間（ナノ秒）
+     */
+    default void onFormatted(String code, Locale locale, long nanos) {
+        // 何もしない
+    }
+
+    /**
+     * メッセージソースからメッセージコードに対するメッセージを取得したときに呼び出されます。
+     * <p>フォーマット対象のメッセージと、メッセージ中の変数<code>{...}</code>をメッセージコードとして解決した場合に呼び出されます。
+     *    変数を解決した場合は、{@link MessageCodeCache}から取得した場合も呼び出されます。</p>
+     * @param code メッセージコード
+     * @param locale ロケール。不明な場合は{@literal null}。
+     * @param found メッセージが見つかったかどうか
+     * @param nanos メッセージの取得にかかった時間（ナノ秒）
+     */
+    default void onMessageLookup(String code, Locale locale, boolean found, long nanos) {
+        // 何もしない
+    }
+
+    /**
+     * コンパイル済みのメッセージを、{@link MessageInterpolator#getTemplateCache()}から取得したときに呼び出されます。
+     * <p>メッセージソースからの取得ではなく、メッセージのコンパイル結果のキャッシュの参照を通知します。
+     *    メッセージソースからの取得は、{@link #onMessageLookup(String, Locale, boolean, long)}で通知します。</p>
+     * @param message メッセージ
+     * @param cacheHit キャッシュから取得できたかどうか
+     * @param nanos キャッシュの参照と、キャッシュに存在しない場合のコンパイルにかかった時間（ナノ秒）
+     */
+    default void onTemplateLookup(String message, boolean cacheHit, long nanos) {
+        // 何もしない
+    }
+
+    /**
+     * メッセージをコンパイルしたときに呼び出されます。
+     * <p>再帰的に処理する際の変数の値など、キャッシュしないメッセージをコンパイルした場合も呼び出されます。</p>
+     * @param message メッセージ
+     * @param nanos コンパイルにかかった時間（ナノ秒）
+     */
+    default void onTemplateCompiled(String message, long nanos) {
+        // 何もしない
+    }
+
+    /**
+     * コンパイル済みのメッセージに変数を差し込み、EL式を評価したときに呼び出されます。
+     * @param message メッセージ
+     * @param maxDepth 再帰的に処理した最大の深さ。再帰的に処理していない場合は{@literal 0}。
+     * @param nanos 処理にかかった時間（ナノ秒）
+     */
+    default void onRendered(String message, int maxDepth, long nanos) {
+        // 何もしない
+    }
+
+    /**
+     * 再帰的に処理する最大回数に達したため、展開を中止したときに呼び出されます。
+     * @param message 展開を中止したメッセージ
+     * @param depth 現在の再帰回数
+     */
+    default void onRecursionLimitReached(String message, int depth) {
+        // 何もしない
+    }
+
+    /**
+     * 循環参照を検出したため、展開を中止したときに呼び出されます。
+     * @param reference 循環参照となった変数やEL式。<code>{...}</code>や<code>${...}</code>の形式。
+     */
+    default void onCycleDetected(String reference) {
+        // 何もしない
+    }
+
+    /**
+     * メッセージ中の変数<code>{...}</code>が、変数にもメッセージコードにも存在せず、そのまま出力したときに呼び出されます。
+     * <p>メッセージソースを指定していない場合は呼び出されません。</p>
+     * @param code メッセージコード
+     * @param locale ロケール。不明な場合は{@literal null}。
+     */
+    default void onMissingCode(String code, Locale locale) {
+        // 何もしない
+    }
+
+}
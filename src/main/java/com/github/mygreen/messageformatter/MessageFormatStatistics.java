@@ -0,0 +1,405 @@
+package com.github.mygreen.messageformatter;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import org.springframework.util.Assert;
+
+import lombok.Getter;
+
+/**
+ * フォーマットの各段階の回数と処理時間を、メモリ上に集計する {@link MessageFormatListener} の実装。
+ * <p>メッセージコードごとのフォーマット回数と処理時間、EL式ごとの評価回数と処理時間、
+ *    変数にもメッセージコードにも存在しなかった変数の回数などを集計します。
+ *    集計した値は、定期的に取得して独自のメトリクスに連携するなどして利用します。</p>
+ * <pre class="highlight"><code class="java">
+ * MessageFormatStatistics statistics = new MessageFormatStatistics();
+ * messageFormatter.setListener(statistics);
+ *
+ * statistics.getFormatTimers().forEach((code, timer) -&gt;
+ *     logger.info("code={}, count={}, p99={}ns", code, timer.getCount(), timer.getPercentileNanos(0.99)));
+ * </code></pre>
+ * <p>メッセージコードやEL式の種類が{@link #getMaxKeys()}を超えた場合は、超えた分を{@value #OTHER_KEY}として集計します。</p>
+ * <p>複数のスレッドから同時に利用できます。</p>
+ *
+ *
+ * @author T.TSUCHIE
+ *
+ */
+public class MessageFormatStatistics implements MessageFormatListener {
+
+    /**
+     * 集計するメッセージコードやEL式の種類の最大数の初期値
+     */
+    public static final int DEFAULT_MAX_KEYS = 1024;
+
+    /**
+     * 最大数を超えたメッセージコードやEL式を集計するキー
+     */
+    public static final String OTHER_KEY = "(other)";
+
+    /**
+     * 集計するメッセージコードやEL式の種類の最大数
+     */
+    @Getter
+    private final int maxKeys;
+
+    /**
+     * メッセージコードごとのフォーマットの処理時間
+     */
+    private final Map<String, Timer> formatTimers = new ConcurrentHashMap<>();
+
+    /**
+     * EL式ごとの評価の処理時間
+     */
+    private final Map<String, Timer> expressionTimers = new ConcurrentHashMap<>();
+
+    /**
+     * 変数にもメッセージコードにも存在しなかった変数ごとの回数
+     */
+    private final Map<String, LongAdder> missingCodes = new ConcurrentHashMap<>();
+
+    /**
+     * メッセージソースからメッセージを取得する処理時間
+     */
+    @Getter
+    private final Timer messageLookupTimer = new Timer();
+
+    /**
+     * メッセージのコンパイルの処理時間
+     */
+    @Getter
+    private final Timer compileTimer = new Timer();
+
+    /**
+     * コンパイル済みのメッセージに変数を差し込む処理時間
+     */
+    @Getter
+    private final Timer renderTimer = new Timer();
+
+    private final LongAdder templateCacheHitCount = new LongAdder();
+
+    private final LongAdder templateCacheMissCount = new LongAdder();
+
+    private final LongAdder expressionCacheHitCount = new LongAdder();
+
+    private final LongAdder expressionCacheMissCount = new LongAdder();
+
+    private final LongAdder recursionLimitCount = new LongAdder();
+
+    private final LongAdder cycleCount = new LongAdder();
+
+    private final LongAccumulator maxRecursionDepth = new LongAccumulator(Math::max, 0L);
+
+    /**
+     * 集計するメッセージコードやEL式の種類の最大数を{@value #DEFAULT_MAX_KEYS}としてインスタンスを作成します。
+     */
+    public MessageFormatStatistics() {
+        this(DEFAULT_MAX_KEYS);
+    }
+
+    /**
+     * 集計するメッセージコードやEL式の種類の最大数を指定してインスタンスを作成します。
+     * @param maxKeys 集計するメッセージコードやEL式の種類の最大数
+     * @throws IllegalArgumentException {@literal maxKeys < 1}の場合。
+     */
+    public MessageFormatStatistics(final int maxKeys) {
+        Assert.isTrue(maxKeys > 0, "maxKeys should be greater than 0.");
+        this.maxKeys = maxKeys;
+    }
+
+    @Override
+    public void onFormatted(final String code, final Locale locale, final long nanos) {
+        getOrCreate(formatTimers, code, key -> new Timer()).record(nanos);
+    }
+
+    @Override
+    public void onMessageLookup(final String code, final Locale locale, final boolean found, final long nanos) {
+        messageLookupTimer.record(nanos);
+    }
+
+    @Override
+    public void onTemplateLookup(final String message, final boolean cacheHit, final long nanos) {
+        (cacheHit ? templateCacheHitCount : templateCacheMissCount).increment();
+    }
+
+    @Override
+    public void onTemplateCompiled(final String message, final long nanos) {
+        compileTimer.record(nanos);
+    }
+
+    @Override
+    public void onRendered(final String message, final int maxDepth, final long nanos) {
+        renderTimer.record(nanos);
+        maxRecursionDepth.accumulate(maxDepth);
+    }
+
+    @Override
+    public void onRecursionLimitReached(final String message, final int depth) {
+        recursionLimitCount.increment();
+    }
+
+    @Override
+    public void onCycleDetected(final String reference) {
+        cycleCount.increment();
+    }
+
+    @Override
+    public void onMissingCode(final String code, final Locale locale) {
+        getOrCreate(missingCodes, code, key -> new LongAdder()).increment();
+    }
+
+    @Override
+    public void onExpressionParsed(final String expression, final boolean cacheHit, final long nanos) {
+        (cacheHit ? expressionCacheHitCount : expressionCacheMissCount).increment();
+    }
+
+    @Override
+    public void onExpressionEvaluated(final String expression, final boolean cacheHit, final long nanos) {
+        getOrCreate(expressionTimers, expression, key -> new Timer()).record(nanos);
+    }
+
+    /**
+     * 集計対象の値を取得します。種類が最大数を超えた場合は、{@value #OTHER_KEY}の値を取得します。
+     */
+    private <V> V getOrCreate(final Map<String, V> map, final String key,
+            final Function<String, V> factory) {
+
+        final V value = map.get(key);
+        if(value != null) {
+            return value;
+        }
+
+        if(map.size() >= maxKeys) {
+            return map.computeIfAbsent(OTHER_KEY, factory);
+        }
+
+        return map.computeIfAbsent(key, factory);
+    }
+
+    /**
+     * メッセージコードごとのフォーマットの処理時間を取得します。
+     * @return キーがメッセージコードの、変更できないマップ。集計中の値を参照します。
+     */
+    public Map<String, Timer> getFormatTimers() {
+        return Collections.unmodifiableMap(formatTimers);
+    }
+
+    /**
+     * EL式ごとの評価の処理時間を取得します。
+     * @return キーがEL式の、変更できないマップ。集計中の値を参照します。
+     */
+    public Map<String, Timer> getExpressionTimers() {
+        return Collections.unmodifiableMap(expressionTimers);
+    }
+
+    /**
+     * 変数にもメッセージコードにも存在しなかった変数ごとの回数を取得します。
+     * @return キーが変数名の、変更できないマップ。取得した時点の値をコピーします。
+     */
+    public Map<String, Long> getMissingCodes() {
+        final Map<String, Long> counts = new ConcurrentHashMap<>();
+        missingCodes.forEach((key, value) -> counts.put(key, value.sum()));
+        return Collections.unmodifiableMap(counts);
+    }
+
+    /**
+     * コンパイル済みのメッセージをキャッシュから取得できた回数を取得します。
+     * @return キャッシュから取得できた回数
+     */
+    public long getTemplateCacheHitCount() {
+        return templateCacheHitCount.sum();
+    }
+
+    /**
+     * コンパイル済みのメッセージがキャッシュに存在しなかった回数を取得します。
+     * @return キャッシュに存在しなかった回数
+     */
+    public long getTemplateCacheMissCount() {
+        return templateCacheMissCount.sum();
+    }
+
+    /**
+     * パースしたEL式をキャッシュから取得できた回数を取得します。
+     * @return キャッシュから取得できた回数
+     */
+    public long getExpressionCacheHitCount() {
+        return expressionCacheHitCount.sum();
+    }
+
+    /**
+     * パースしたEL式がキャッシュに存在しなかった回数を取得します。
+     * @return キャッシュに存在しなかった回数
+     */
+    public long getExpressionCacheMissCount() {
+        return expressionCacheMissCount.sum();
+    }
+
+    /**
+     * 再帰的に処理する最大回数に達した回数を取得します。
+     * @return 最大回数に達した回数
+     */
+    public long getRecursionLimitCount() {
+        return recursionLimitCount.sum();
+    }
+
+    /**
+     * 循環参照を検出した回数を取得します。
+     * @return 循環参照を検出した回数
+     */
+    public long getCycleCount() {
+        return cycleCount.sum();
+    }
+
+    /**
+     * 再帰的に処理した最大の深さを取得します。
+     * @return 再帰的に処理した最大の深さ
+     */
+    public long getMaxRecursionDepth() {
+        return maxRecursionDepth.get();
+    }
+
+    /**
+     * 集計した値を全て削除します。
+     * <p>削除中に他のスレッドから集計された値は、削除されずに残ることがあります。</p>
+     */
+    public void reset() {
+        formatTimers.clear();
+        expressionTimers.clear();
+        missingCodes.clear();
+        messageLookupTimer.reset();
+        compileTimer.reset();
+        renderTimer.reset();
+        templateCacheHitCount.reset();
+        templateCacheMissCount.reset();
+        expressionCacheHitCount.reset();
+        expressionCacheMissCount.reset();
+        recursionLimitCount.reset();
+        cycleCount.reset();
+        maxRecursionDepth.reset();
+    }
+
+    /**
+     * 処理回数と処理時間を集計するクラス。
+     * <p>処理時間は、2のべき乗ごとの区間に分けたヒストグラムとして保持します。
+     *    そのため、パーセンタイルは区間の上限値による近似値です。</p>
+     */
+    public static class Timer {
+
+        /**
+         * ヒストグラムの区間の数。区間<code>i</code>は、<code>[2^(i-1), 2^i)</code>ナノ秒。
+         */
+        private static final int BUCKET_COUNT = 64;
+
+        private final LongAdder count = new LongAdder();
+
+        private final LongAdder totalNanos = new LongAdder();
+
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0L);
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+        /**
+         * 処理時間を記録します。
+         * @param nanos 処理時間（ナノ秒）
+         */
+        public void record(final long nanos) {
+            final long value = Math.max(0L, nanos);
+            count.increment();
+            totalNanos.add(value);
+            maxNanos.accumulate(value);
+            buckets.incrementAndGet(Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(value)));
+        }
+
+        /**
+         * 処理回数を取得します。
+         * @return 処理回数
+         */
+        public long getCount() {
+            return count.sum();
+        }
+
+        /**
+         * 処理時間の合計を取得します。
+         * @return 処理時間の合計（ナノ秒）
+         */
+        public long getTotalNanos() {
+            return totalNanos.sum();
+        }
+
+        /**
+         * 処理時間の最大値を取得します。
+         * @return 処理時間の最大値（ナノ秒）
+         */
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+        /**
+         * 処理時間の平均値を取得します。
+         * @return 処理時間の平均値（ナノ秒）。処理回数が0の場合は0。
+         */
+        public double getMeanNanos() {
+            final long current = getCount();
+            return current == 0 ? 0.0 : (double) getTotalNanos() / current;
+        }
+
+        /**
+         * 処理時間のパーセンタイルの近似値を取得します。
+         * @param percentile パーセンタイル。{@literal 0.0}～{@literal 1.0}の範囲で指定します。
+         * @return 処理時間のパーセンタイルの近似値（ナノ秒）。処理回数が0の場合は0。
+         * @throws IllegalArgumentException パーセンタイルが範囲外の場合
+         */
+        public long getPercentileNanos(final double percentile) {
+            Assert.isTrue(percentile >= 0.0 && percentile <= 1.0, "percentile should be between 0.0 and 1.0.");
+
+            final long[] snapshot = new long[BUCKET_COUNT];
+            long total = 0;
+            for(int i=0; i < BUCKET_COUNT; i++) {
+                snapshot[i] = buckets.get(i);
+                total += snapshot[i];
+            }
+
+            if(total == 0) {
+                return 0L;
+            }
+
+            final long threshold = Math.max(1L, (long) Math.ceil(total * percentile));
+            long cumulative = 0;
+            for(int i=0; i < BUCKET_COUNT; i++) {
+                cumulative += snapshot[i];
+                if(cumulative >= threshold) {
+                    final long upper = i == 0 ? 0L : (i >= 63 ? Long.MAX_VALUE : (1L << i) - 1);
+                    return Math.min(upper, getMaxNanos());
+                }
+            }
+
+            return getMaxNanos();
+        }
+
+        /**
+         * 集計した値を削除します。
+         */
+        void reset() {
+            count.reset();
+            totalNanos.reset();
+            maxNanos.reset();
+            for(int i=0; i < BUCKET_COUNT; i++) {
+                buckets.set(i, 0L);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Timer(count=%d, mean=%.1fns, max=%dns)", getCount(), getMeanNanos(), getMaxNanos());
+        }
+
+    }
+
+}
@@ -1,12 +1,29 @@
 package com.github.mygreen.messageformatter;
 
+import java.io.IOException;
 import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.springframework.context.MessageSource;
 import org.springframework.context.NoSuchMessageException;
+import org.springframework.context.i18n.LocaleContextHolder;
 import org.springframework.context.support.MessageSourceAccessor;
 import org.springframework.util.Assert;
 
@@ -24,6 +41,16 @@ import lombok.RequiredArgsConstructor;
  */
 public class MessageFormatter {
 
+    /**
+     * {@link #precompile(Collection)}で、並列にコンパイルするメッセージの件数のしきい値
+     */
+    public static final int PRECOMPILE_PARALLEL_THRESHOLD = 256;
+
+    /**
+     * {@link #formatAll(Collection, Executor)}で、1つのタスクとしてまとめてフォーマットするメッセージの件数
+     */
+    public static final int FORMAT_ALL_CHUNK_SIZE = 256;
+
     /**
      * メッセージソース
      */
@@ -42,6 +69,11 @@ public class MessageFormatter {
     @Getter
     private final ParameterFormatter parameterFormatter;
 
+    /**
+     * キャッシュを削除した回数。{@link PreparedMessage}の再取得の判定に使用します。
+     */
+    private final AtomicLong cacheVersion = new AtomicLong();
+
     /**
      * インスタンスを作成します。
      * @param messageSource メッセージソース
@@ -64,6 +96,23 @@ public class MessageFormatter {
         this.parameterFormatter = parameterFormatter;
     }
 
+    /**
+     * フォーマットの各段階を通知するリスナーを設定します。
+     * <p>{@link MessageInterpolator#setListener(MessageFormatListener)}に設定し、EL式の評価も通知します。</p>
+     * @param listener リスナー。{@literal null}の場合は通知しません。
+     */
+    public void setListener(final MessageFormatListener listener) {
+        messageInterpolator.setListener(listener);
+    }
+
+    /**
+     * フォーマットの各段階を通知するリスナーを取得します。
+     * @return リスナー。設定していない場合は{@literal null}。
+     */
+    public MessageFormatListener getListener() {
+        return messageInterpolator.getListener();
+    }
+
     /**
      * メッセージコード（キー）を指定し、メッセージの組み立ての開始します。
      * @param code メッセージコード（メッセージキー）
@@ -85,6 +134,295 @@ public class MessageFormatter {
         return new Builder(messageSource, messageInterpolator, parameterFormatter, code, locale);
     }
 
+    /**
+     * メッセージコードとロケールに対するメッセージを取得してコンパイルし、繰り返しフォーマットできるようにします。
+     * <p>作成したインスタンスは、定数などに保持して複数のスレッドから利用できます。</p>
+     * @param code メッセージコード（メッセージキー）
+     * @param locale ロケール。{@literal null}の場合は、呼び出し元のスレッドの{@link LocaleContextHolder}のロケールで固定します。
+     * @return メッセージを取得しコンパイルしたもの
+     * @throws NoSuchMessageException 指定したメッセージコードが見つからない場合
+     */
+    public PreparedMessage prepare(final String code, final Locale locale) {
+        Assert.hasLength(code, "code should not be empty.");
+
+        return new PreparedMessage(this, code, locale != null ? locale : LocaleContextHolder.getLocale());
+    }
+
+    /**
+     * メッセージの解決結果のキャッシュを削除します。
+     * <p>メッセージソースの内容を再読み込みした際に呼び出します。
+     *    {@link MessageInterpolator#getMessageCodeCache()}を削除し、{@link #prepare(String, Locale)}で作成したメッセージは、
+     *    次のフォーマット時に取得し直します。</p>
+     */
+    public void clearCache() {
+        cacheVersion.incrementAndGet();
+        messageInterpolator.getMessageCodeCache().clear();
+    }
+
+    /**
+     * キャッシュを削除した回数を取得します。
+     * @return キャッシュを削除した回数
+     */
+    long getCacheVersion() {
+        return cacheVersion.get();
+    }
+
+    /**
+     * 複数のメッセージをまとめてフォーマットします。
+     * <p>{@link MessageSourceAccessor}はロケールごとに1つのみ作成し、同じメッセージコードとロケールのメッセージは1回のみ取得してコンパイルします。</p>
+     * @param requests フォーマットするメッセージの情報
+     * @return フォーマットしたメッセージ。引数{@literal requests}の順序と同じです。
+     * @throws NoSuchMessageException 指定したメッセージコードが見つからない場合
+     */
+    public List<String> formatAll(@NonNull final Collection<MessageRequest> requests) {
+
+        final PreparedRequest[] prepared = prepareAll(requests);
+        return Arrays.asList(renderAll(prepared, null));
+    }
+
+    /**
+     * 複数のメッセージを、指定したスレッドプールで並列にまとめてフォーマットします。
+     * <p>メッセージの取得とコンパイルは呼び出し元のスレッドで行い、{@value #FORMAT_ALL_CHUNK_SIZE}件ずつ {@link Executor} で処理します。
+     *    件数が{@value #FORMAT_ALL_CHUNK_SIZE}件以下の場合は、呼び出し元のスレッドで処理します。</p>
+     * <p>ロケールを指定していないメッセージは、呼び出し元のスレッドの
+     *    {@link org.springframework.context.i18n.LocaleContextHolder}のロケールでフォーマットします。</p>
+     * @param requests フォーマットするメッセージの情報
+     * @param executor フォーマットを実行するスレッドプール。例えば、{@link java.util.concurrent.ForkJoinPool#commonPool()}。
+     * @return フォーマットしたメッセージ。引数{@literal requests}の順序と同じです。
+     * @throws NoSuchMessageException 指定したメッセージコードが見つからない場合
+     */
+    public List<String> formatAll(@NonNull final Collection<MessageRequest> requests, @NonNull final Executor executor) {
+
+        final PreparedRequest[] prepared = prepareAll(requests);
+        return Arrays.asList(renderAll(prepared, executor));
+    }
+
+    /**
+     * 複数のメッセージをまとめてフォーマットし、ロケールごとに分けて取得します。
+     * @param requests フォーマットするメッセージの情報
+     * @return ロケールごとのフォーマットしたメッセージ。ロケールの順序は最初に現れた順で、メッセージは引数{@literal requests}の順序と同じです。
+     * @throws NoSuchMessageException 指定したメッセージコードが見つからない場合
+     * @see #formatAll(Collection)
+     */
+    public Map<Locale, List<String>> formatAllByLocale(@NonNull final Collection<MessageRequest> requests) {
+
+        final PreparedRequest[] prepared = prepareAll(requests);
+        return groupByLocale(prepared, renderAll(prepared, null));
+    }
+
+    /**
+     * 複数のメッセージを、指定したスレッドプールで並列にまとめてフォーマットし、ロケールごとに分けて取得します。
+     * @param requests フォーマットするメッセージの情報
+     * @param executor フォーマットを実行するスレッドプール。例えば、{@link java.util.concurrent.ForkJoinPool#commonPool()}。
+     * @return ロケールごとのフォーマットしたメッセージ。ロケールの順序は最初に現れた順で、メッセージは引数{@literal requests}の順序と同じです。
+     * @throws NoSuchMessageException 指定したメッセージコードが見つからない場合
+     * @see #formatAll(Collection, Executor)
+     */
+    public Map<Locale, List<String>> formatAllByLocale(@NonNull final Collection<MessageRequest> requests,
+            @NonNull final Executor executor) {
+
+        final PreparedRequest[] prepared = prepareAll(requests);
+        return groupByLocale(prepared, renderAll(prepared, executor));
+    }
+
+    /**
+     * まとめてフォーマットするメッセージを取得し、コンパイルします。
+     * @param requests フォーマットするメッセージの情報
+     * @return フォーマットの準備をしたメッセージ
+     */
+    private PreparedRequest[] prepareAll(final Collection<MessageRequest> requests) {
+
+        // ロケールを指定していない場合は、呼び出し元のスレッドのロケールとする。
+        final Locale defaultLocale = LocaleContextHolder.getLocale();
+
+        final Map<Locale, MessageSourceAccessor> accessors = new HashMap<>();
+        final Map<Locale, Map<String, MessageTemplate>> templates = new HashMap<>();
+
+        final PreparedRequest[] prepared = new PreparedRequest[requests.size()];
+        int index = 0;
+        for(MessageRequest request : requests) {
+            final Locale locale = request.getLocale() != null ? request.getLocale() : defaultLocale;
+            final MessageSourceAccessor msa = accessors.computeIfAbsent(locale,
+                    key -> new LocaleAwareMessageSourceAccessor(messageSource, key));
+            final MessageTemplate template = templates.computeIfAbsent(locale, key -> new HashMap<>())
+                    .computeIfAbsent(request.getCode(), code -> messageInterpolator.compile(
+                            lookupMessage(messageInterpolator.getListener(), msa, code, locale)));
+
+            prepared[index++] = new PreparedRequest(request, locale, msa, template);
+        }
+
+        return prepared;
+    }
+
+    /**
+     * 準備したメッセージをフォーマットします。
+     * @param prepared フォーマットの準備をしたメッセージ
+     * @param executor フォーマットを実行するスレッドプール。{@literal null}の場合は、呼び出し元のスレッドで処理します。
+     * @return フォーマットしたメッセージ
+     */
+    private String[] renderAll(final PreparedRequest[] prepared, final Executor executor) {
+
+        final String[] results = new String[prepared.length];
+        if(executor == null || prepared.length <= FORMAT_ALL_CHUNK_SIZE) {
+            renderRange(prepared, results, 0, prepared.length);
+            return results;
+        }
+
+        final List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for(int start=0; start < prepared.length; start += FORMAT_ALL_CHUNK_SIZE) {
+            final int from = start;
+            final int to = Math.min(start + FORMAT_ALL_CHUNK_SIZE, prepared.length);
+            futures.add(CompletableFuture.runAsync(() -> renderRange(prepared, results, from, to), executor));
+        }
+
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()])).join();
+
+        } catch(CompletionException e) {
+            // フォーマット中の例外は、そのままスローする。
+            final Throwable cause = e.getCause();
+            if(cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if(cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+
+        return results;
+    }
+
+    private void renderRange(final PreparedRequest[] prepared, final String[] results, final int from, final int to) {
+
+        final MessageFormatListener listener = messageInterpolator.getListener();
+        for(int i=from; i < to; i++) {
+            final long start = listener != null ? System.nanoTime() : 0L;
+
+            final PreparedRequest target = prepared[i];
+            final MessageRequest request = target.request;
+            if(request.isRecursive()) {
+                results[i] = messageInterpolator.interpolate(target.template, request.getVars(), request.getMaxRecursion(),
+                        target.messageSourceAccessor);
+            } else {
+                results[i] = messageInterpolator.interpolate(target.template, request.getVars(), target.messageSourceAccessor);
+            }
+
+            if(listener != null) {
+                listener.onFormatted(request.getCode(), target.locale, System.nanoTime() - start);
+            }
+        }
+    }
+
+    private Map<Locale, List<String>> groupByLocale(final PreparedRequest[] prepared, final String[] results) {
+
+        final Map<Locale, List<String>> grouped = new LinkedHashMap<>();
+        for(int i=0; i < prepared.length; i++) {
+            grouped.computeIfAbsent(prepared[i].locale, key -> new ArrayList<>()).add(results[i]);
+        }
+
+        return grouped;
+    }
+
+    /**
+     * メッセージソースからメッセージコードに対するメッセージを取得します。
+     * <p>リスナーを登録している場合は、取得にかかった時間を {@link MessageFormatListener#onMessageLookup(String, Locale, boolean, long)} で通知します。</p>
+     * @param listener リスナー。{@literal null}の場合は通知しません。
+     * @param msa メッセージを取得するクラス
+     * @param code メッセージコード
+     * @param locale ロケール
+     * @return メッセージ
+     * @throws NoSuchMessageException 指定したメッセージコードが見つからない場合
+     */
+    static String lookupMessage(final MessageFormatListener listener, final MessageSourceAccessor msa,
+            final String code, final Locale locale) {
+
+        if(listener == null) {
+            return msa.getMessage(code);
+        }
+
+        final long start = System.nanoTime();
+        boolean found = false;
+        try {
+            final String message = msa.getMessage(code);
+            found = true;
+            return message;
+
+        } finally {
+            listener.onMessageLookup(code, locale, found, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * メッセージソースに定義されている全てのメッセージを、事前にコンパイルします。
+     * <p>メッセージ中のEL式<code>${...}</code>もパースします。
+     *    起動時に呼び出すことで、初回のフォーマット時のコンパイルの処理時間を省き、不正なメッセージを検出できます。</p>
+     * <p>メッセージコードを列挙できるメッセージソースは、{@link org.springframework.context.support.ResourceBundleMessageSource}と
+     *    {@link org.springframework.context.support.ReloadableResourceBundleMessageSource}のみです。
+     *    メッセージコードは、メッセージソースに設定したクラスローダーやリソースローダー、文字コードに従い読み込みます。</p>
+     * <p>メッセージの件数が{@value #PRECOMPILE_PARALLEL_THRESHOLD}件以上のときは、並列にコンパイルします。
+     *    コンパイルしたメッセージは {@link MessageInterpolator#getTemplateCache()} に保持されるため、
+     *    件数がキャッシュの最大個数を超える場合は、一部のみ保持されます。</p>
+     * @param locales コンパイル対象のロケール
+     * @return コンパイルの結果。失敗したメッセージを全て含みます。
+     * @throws IllegalArgumentException メッセージコードを列挙できないメッセージソースの場合。
+     */
+    public PrecompileResult precompile(@NonNull final Collection<Locale> locales) {
+
+        final MessageCodeCollector codeCollector = new MessageCodeCollector();
+
+        final List<Map.Entry<String, Locale>> targets = new ArrayList<>();
+        for(Locale locale : locales) {
+            final Set<String> codes = new TreeSet<>();
+            codeCollector.collect(messageSource, locale, codes);
+            codes.forEach(code -> targets.add(Map.entry(code, locale)));
+        }
+
+        final Stream<Map.Entry<String, Locale>> stream = targets.size() >= PRECOMPILE_PARALLEL_THRESHOLD
+                ? targets.parallelStream() : targets.stream();
+
+        final List<PrecompileResult.Failure> failures = stream
+                .map(target -> precompile(target.getKey(), target.getValue()))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+
+        return new PrecompileResult(targets.size(), failures);
+    }
+
+    /**
+     * メッセージを1件コンパイルします。
+     * @param code メッセージコード
+     * @param locale ロケール
+     * @return 失敗した場合はその情報。成功した場合は{@literal null}。
+     */
+    private PrecompileResult.Failure precompile(final String code, final Locale locale) {
+
+        String message = null;
+        try {
+            message = messageSource.getMessage(code, null, locale);
+            messageInterpolator.compile(message);
+            return null;
+
+        } catch(RuntimeException e) {
+            return new PrecompileResult.Failure(code, locale, message, e);
+        }
+    }
+
+    /**
+     * フォーマットの準備をしたメッセージ。
+     */
+    @RequiredArgsConstructor
+    private static class PreparedRequest {
+
+        private final MessageRequest request;
+
+        private final Locale locale;
+
+        private final MessageSourceAccessor messageSourceAccessor;
+
+        private final MessageTemplate template;
+
+    }
+
     /**
      * メッセージ中に埋め込むパラメータを組み立てるビルダークラス。
      *
@@ -105,17 +443,20 @@ public class MessageFormatter {
         private final Locale locale;
 
         /**
-         * 組み立てた変数のマップ
+         * 組み立てた変数のマップ。変数の個数は少ないため、配列で保持する。
+         * <p>メッセージのスロット番号は割り当てないため、常に変数名で参照する。</p>
          */
-        private Map<String, Object> vars = new HashMap<>();
+        private final MessageParams vars = new MessageParams();
 
         /**
          * メッセージパラメータを追加する。
          * @param key 変数名
          * @param value 値
          * @return 自身のインスタンス
+         * @throws IllegalArgumentException 変数名が{@literal null}の場合
          */
         public Builder param(final String key, final Object value) {
+            Assert.notNull(key, "key should not be null.");
             vars.put(key, value);
             return this;
         }
@@ -125,12 +466,29 @@ public class MessageFormatter {
          * @param key パラメータ名
          * @param values 値
          * @return 自身のインスタンス
+         * @throws IllegalArgumentException 変数名が{@literal null}の場合
          */
         public Builder param(final String key, final Object... values) {
+            Assert.notNull(key, "key should not be null.");
             vars.put(key, values);
             return this;
         }
 
+        /**
+         * メッセージ中で参照されたときに値を作成するメッセージパラメータを追加する。
+         * <p>値の作成に時間がかかる場合など、メッセージ中で参照されない限り作成しないようにできます。</p>
+         * @param key 変数名
+         * @param supplier 値を作成する処理
+         * @return 自身のインスタンス
+         * @throws IllegalArgumentException 変数名が{@literal null}の場合
+         * @see LazyVariable
+         */
+        public Builder paramLazy(final String key, @NonNull final Supplier<?> supplier) {
+            Assert.notNull(key, "key should not be null.");
+            vars.put(key, LazyVariable.of(supplier));
+            return this;
+        }
+
         /**
          * メッセージパラメータとしてアノテーション名を追加する。
          * @param key パラメータ名
@@ -174,6 +532,15 @@ public class MessageFormatter {
 
         }
 
+        /**
+         * {@link MessageFormatter#formatAll(Collection)}でまとめてフォーマットするメッセージの情報を作成します。
+         * <p>変数はコピーするため、作成後にビルダーを変更しても影響しません。</p>
+         * @return 再帰的に処理しないメッセージの情報
+         */
+        public MessageRequest toRequest() {
+            return MessageRequest.of(code, locale, vars.copy());
+        }
+
         /**
          * メッセージをフォーマットして値を取得します。
          * <p>変換したメッセージに対しても再帰的に処理しません。</p>
@@ -182,9 +549,15 @@ public class MessageFormatter {
          */
         public String format() {
 
-            final MessageSourceAccessor msa = new MessageSourceAccessor(messageSource, locale);
-            final String message = msa.getMessage(code);
-            return messageInterpolator.interpolate(message, vars, msa);
+            final MessageFormatListener listener = messageInterpolator.getListener();
+            final long start = listener != null ? System.nanoTime() : 0L;
+
+            final LocaleAwareMessageSourceAccessor msa = new LocaleAwareMessageSourceAccessor(messageSource, locale);
+            final String message = lookupMessage(listener, msa, code, msa.getLocale());
+            final String result = messageInterpolator.interpolate(message, vars, msa);
+
+            notifyFormatted(listener, msa, start);
+            return result;
         }
 
         /**
@@ -195,9 +568,15 @@ public class MessageFormatter {
          */
         public String formatRecursively() {
 
-            final MessageSourceAccessor msa = new MessageSourceAccessor(messageSource, locale);
-            final String message = msa.getMessage(code);
-            return messageInterpolator.interpolate(message, vars, 0, msa);
+            final MessageFormatListener listener = messageInterpolator.getListener();
+            final long start = listener != null ? System.nanoTime() : 0L;
+
+            final LocaleAwareMessageSourceAccessor msa = new LocaleAwareMessageSourceAccessor(messageSource, locale);
+            final String message = lookupMessage(listener, msa, code, msa.getLocale());
+            final String result = messageInterpolator.interpolate(message, vars, 0, msa);
+
+            notifyFormatted(listener, msa, start);
+            return result;
         }
 
         /**
@@ -209,9 +588,89 @@ public class MessageFormatter {
          */
         public String formatRecursively(final int maxRecursion) {
 
-            final MessageSourceAccessor msa = new MessageSourceAccessor(messageSource, locale);
-            final String message = msa.getMessage(code);
-            return messageInterpolator.interpolate(message, vars, maxRecursion, msa);
+            final MessageFormatListener listener = messageInterpolator.getListener();
+            final long start = listener != null ? System.nanoTime() : 0L;
+
+            final LocaleAwareMessageSourceAccessor msa = new LocaleAwareMessageSourceAccessor(messageSource, locale);
+            final String message = lookupMessage(listener, msa, code, msa.getLocale());
+            final String result = messageInterpolator.interpolate(message, vars, maxRecursion, msa);
+
+            notifyFormatted(listener, msa, start);
+            return result;
+        }
+
+        /**
+         * メッセージをフォーマットして、出力先に追加します。
+         * <p>変換したメッセージに対しても再帰的に処理しません。</p>
+         * <p>フォーマットしたメッセージを文字列として組み立てずに、出力先に直接追加します。</p>
+         * @param out フォーマットしたメッセージの出力先
+         * @throws IOException 出力先への追加に失敗した場合
+         * @throws NoSuchMessageException 指定したメッセージコードが見つからない場合
+         */
+        public void formatTo(final Appendable out) throws IOException {
+
+            final MessageFormatListener listener = messageInterpolator.getListener();
+            final long start = listener != null ? System.nanoTime() : 0L;
+
+            final LocaleAwareMessageSourceAccessor msa = new LocaleAwareMessageSourceAccessor(messageSource, locale);
+            final String message = lookupMessage(listener, msa, code, msa.getLocale());
+            messageInterpolator.interpolateTo(out, message, vars, msa);
+
+            notifyFormatted(listener, msa, start);
+        }
+
+        /**
+         * メッセージをフォーマットして、出力先に追加します。
+         * <p>変換したメッセージに対しても再帰的に処理します</p>
+         * <p>フォーマットしたメッセージを文字列として組み立てずに、出力先に直接追加します。</p>
+         * @param out フォーマットしたメッセージの出力先
+         * @throws IOException 出力先への追加に失敗した場合
+         * @throws NoSuchMessageException 指定したメッセージコードが見つからない場合
+         */
+        public void formatRecursivelyTo(final Appendable out) throws IOException {
+
+            final MessageFormatListener listener = messageInterpolator.getListener();
+            final long start = listener != null ? System.nanoTime() : 0L;
+
+            final LocaleAwareMessageSourceAccessor msa = new LocaleAwareMessageSourceAccessor(messageSource, locale);
+            final String message = lookupMessage(listener, msa, code, msa.getLocale());
+            messageInterpolator.interpolateTo(out, message, vars, 0, msa);
+
+            notifyFormatted(listener, msa, start);
+        }
+
+        /**
+         * メッセージをフォーマットして、出力先に追加します。
+         * <p>変換したメッセージに対しても再帰的に処理します</p>
+         * <p>フォーマットしたメッセージを文字列として組み立てずに、出力先に直接追加します。</p>
+         * @param out フォーマットしたメッセージの出力先
+         * @param maxRecursion メッセージを再帰的に処理する最大回数。0以下を指定すると再帰回数の制限はありません。
+         * @throws IOException 出力先への追加に失敗した場合
+         * @throws NoSuchMessageException 指定したメッセージコードが見つからない場合
+         */
+        public void formatRecursivelyTo(final Appendable out, final int maxRecursion) throws IOException {
+
+            final MessageFormatListener listener = messageInterpolator.getListener();
+            final long start = listener != null ? System.nanoTime() : 0L;
+
+            final LocaleAwareMessageSourceAccessor msa = new LocaleAwareMessageSourceAccessor(messageSource, locale);
+            final String message = lookupMessage(listener, msa, code, msa.getLocale());
+            messageInterpolator.interpolateTo(out, message, vars, maxRecursion, msa);
+
+            notifyFormatted(listener, msa, start);
+        }
+
+        /**
+         * フォーマットしたことをリスナーに通知します。
+         * @param listener リスナー。{@literal null}の場合は通知しません。
+         * @param msa メッセージを取得したクラス
+         * @param start 開始時刻（ナノ秒）
+         */
+        private void notifyFormatted(final MessageFormatListener listener, final LocaleAwareMessageSourceAccessor msa,
+                final long start) {
+            if(listener != null) {
+                listener.onFormatted(code, msa.getLocale(), System.nanoTime() - start);
+            }
         }
 
     }
@@ -1,16 +1,26 @@
 package com.github.mygreen.messageformatter;
 
-import java.util.Deque;
-import java.util.Formatter;
-import java.util.LinkedHashMap;
-import java.util.LinkedList;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 
 import org.springframework.context.NoSuchMessageException;
+import org.springframework.context.i18n.LocaleContextHolder;
 import org.springframework.context.support.MessageSourceAccessor;
 
 import com.github.mygreen.messageformatter.expression.ExpressionEvaluator;
+import com.github.mygreen.messageformatter.expression.ObjectCache;
+import com.github.mygreen.messageformatter.expression.ParsedExpression;
 
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
@@ -19,6 +29,12 @@ import lombok.extern.slf4j.Slf4j;
  * <p><code>{...}</code>の場合、変数を単純に置換する。</p>
  * <p><code>${...}</code>の場合、EL式を利用し処理する。</p>
  * <p>文字'$', '{', '}'は特殊文字のため、<code>\</code>でエスケープを行う。</p>
+ * <p>メッセージは、{@link #compile(String)} によりセグメントに分割したテンプレートにコンパイルし、キャッシュして再利用する。</p>
+ * <p>変数の値に {@link LazyVariable} を指定した場合、メッセージ中から参照されたときにのみ値を作成する。</p>
+ * <p>変数のマップに、{@link MessageTemplate#newParams()}で作成した {@link MessageParams} を指定した場合、
+ *    変数<code>{...}</code>の値は変数名ではなくスロット番号で参照する。</p>
+ * <p>再帰的に処理する場合、1回の処理の中で同じ変数やメッセージコードを展開した結果は再利用する。
+ *    また、展開中の変数などを再度展開しようとした場合は、循環参照として展開を中止する。</p>
  *
  *
  * @author T.TSUCHIE
@@ -33,6 +49,28 @@ public class MessageInterpolator {
      */
     private final ExpressionEvaluator expressionEvaluator;
 
+    /**
+     * コンパイルしたメッセージのキャッシュ。キーはコンパイル元のメッセージ。
+     * キャッシュの統計情報は、{@link ObjectCache#getStats()} で取得できます。
+     */
+    @Getter
+    protected final ObjectCache<String, MessageTemplate> templateCache = new ObjectCache<>();
+
+    /**
+     * メッセージ中の変数をメッセージコードとして解決した結果のキャッシュ。
+     * {@link LocaleAwareMessageSourceAccessor}を指定して処理した場合に使用します。
+     * {@link org.springframework.context.support.ReloadableResourceBundleMessageSource}などは、メッセージソースの再読み込みの間隔を有効期間とします。
+     * それ以外のメッセージソースの内容を変更した場合は、{@link MessageCodeCache#clear()}を呼び出してください。
+     */
+    @Getter
+    protected final MessageCodeCache messageCodeCache = new MessageCodeCache();
+
+    /**
+     * 処理の各段階を通知するリスナー
+     */
+    @Getter
+    private volatile MessageFormatListener listener;
+
     /**
      * メッセージを引数varsで指定した変数で補完する。
      *
@@ -41,7 +79,7 @@ public class MessageInterpolator {
      * @return 補完したメッセージ。
      */
     public String interpolate(final String message, final Map<String, ?> vars) {
-        return parse(message, vars, false, 0, 0, null);
+        return renderToString(compile(message), vars, false, 0, 0, null);
     }
 
     /**
@@ -53,7 +91,7 @@ public class MessageInterpolator {
      * @return 補完したメッセージ。
      */
     public String interpolate(final String message, final Map<String, ?> vars, final MessageSourceAccessor messageSource) {
-        return parse(message, vars, false, 0, 0, messageSource);
+        return renderToString(compile(message), vars, false, 0, 0, messageSource);
     }
 
     /**
@@ -66,7 +104,7 @@ public class MessageInterpolator {
      * @return 補完したメッセージ。
      */
     public String interpolate(final String message, final Map<String, ?> vars, int maxRecursion) {
-        return parse(message, vars, true, maxRecursion, 0, null);
+        return renderToString(compile(message), vars, true, maxRecursion, 0, null);
     }
 
     /**
@@ -82,11 +120,162 @@ public class MessageInterpolator {
      */
     public String interpolate(final String message, final Map<String, ?> vars, int maxRecursion,
             final MessageSourceAccessor messageSource) {
-        return parse(message, vars, true, maxRecursion, 0, messageSource);
+        return renderToString(compile(message), vars, true, maxRecursion, 0, messageSource);
+    }
+
+    /**
+     * コンパイル済みのメッセージを引数varsで指定した変数で補完する。
+     *
+     * @param template {@link #compile(String)}でコンパイルしたメッセージ。
+     * @param vars メッセージ中の変数に対する値のマップ。
+     * @param messageSource メッセージを解決するクラス。nullの場合、指定しないと同じ意味になります。
+     * @return 補完したメッセージ。
+     */
+    public String interpolate(final MessageTemplate template, final Map<String, ?> vars,
+            final MessageSourceAccessor messageSource) {
+        return renderToString(template, vars, false, 0, 0, messageSource);
+    }
+
+    /**
+     * コンパイル済みのメッセージを引数varsで指定した変数で補完する。
+     * <p>変換したメッセージに対しても再帰的に処理します。</p>
+     *
+     * @param template {@link #compile(String)}でコンパイルしたメッセージ。
+     * @param vars メッセージ中の変数に対する値のマップ。
+     * @param maxRecursion 再帰的にメッセージを処理する最大回数。0以下を指定したときは再帰回数の制限はありません。
+     * @param messageSource メッセージを解決するクラス。nullの場合、指定しないと同じ意味になります。
+     * @return 補完したメッセージ。
+     */
+    public String interpolate(final MessageTemplate template, final Map<String, ?> vars, int maxRecursion,
+            final MessageSourceAccessor messageSource) {
+        return renderToString(template, vars, true, maxRecursion, 0, messageSource);
+    }
+
+    /**
+     * コンパイル済みのメッセージを引数varsで指定した変数で補完し、出力先に追加する。
+     * <p>途中の結果を文字列として組み立てずに、出力先に直接追加します。
+     *    処理の途中で例外が発生した場合、出力先にはそれまでの結果が追加されています。</p>
+     *
+     * @param out 補完したメッセージの出力先。
+     * @param template {@link #compile(String)}でコンパイルしたメッセージ。
+     * @param vars メッセージ中の変数に対する値のマップ。
+     * @param messageSource メッセージを解決するクラス。nullの場合、指定しないと同じ意味になります。
+     * @throws IOException 出力先への追加に失敗した場合。
+     */
+    public void interpolateTo(final Appendable out, final MessageTemplate template, final Map<String, ?> vars,
+            final MessageSourceAccessor messageSource) throws IOException {
+        render(out, template, vars, false, 0, 0, messageSource);
+    }
+
+    /**
+     * メッセージを引数varsで指定した変数で補完し、出力先に追加する。
+     * <p>途中の結果を文字列として組み立てずに、出力先に直接追加します。
+     *    処理の途中で例外が発生した場合、出力先にはそれまでの結果が追加されています。</p>
+     *
+     * @param out 補完したメッセージの出力先。
+     * @param message 対象のメッセージ。
+     * @param vars メッセージ中の変数に対する値のマップ。
+     * @throws IOException 出力先への追加に失敗した場合。
+     */
+    public void interpolateTo(final Appendable out, final String message, final Map<String, ?> vars) throws IOException {
+        render(out, compile(message), vars, false, 0, 0, null);
+    }
+
+    /**
+     * メッセージを引数varsで指定した変数で補完し、出力先に追加する。
+     * <p>途中の結果を文字列として組み立てずに、出力先に直接追加します。
+     *    処理の途中で例外が発生した場合、出力先にはそれまでの結果が追加されています。</p>
+     *
+     * @param out 補完したメッセージの出力先。
+     * @param message 対象のメッセージ。
+     * @param vars メッセージ中の変数に対する値のマップ。
+     * @param messageSource メッセージを解決するクラス。nullの場合、指定しないと同じ意味になります。
+     * @throws IOException 出力先への追加に失敗した場合。
+     */
+    public void interpolateTo(final Appendable out, final String message, final Map<String, ?> vars,
+            final MessageSourceAccessor messageSource) throws IOException {
+        render(out, compile(message), vars, false, 0, 0, messageSource);
+    }
+
+    /**
+     * メッセージを引数varsで指定した変数で補完し、出力先に追加する。
+     * <p>変換したメッセージに対しても再帰的に処理します。</p>
+     * <p>途中の結果を文字列として組み立てずに、出力先に直接追加します。
+     *    処理の途中で例外が発生した場合、出力先にはそれまでの結果が追加されています。</p>
+     *
+     * @param out 補完したメッセージの出力先。
+     * @param message 対象のメッセージ。
+     * @param vars メッセージ中の変数に対する値のマップ。
+     * @param maxRecursion 再帰的にメッセージを処理する最大回数。0以下を指定したときは再帰回数の制限はありません。
+     * @throws IOException 出力先への追加に失敗した場合。
+     */
+    public void interpolateTo(final Appendable out, final String message, final Map<String, ?> vars,
+            int maxRecursion) throws IOException {
+        render(out, compile(message), vars, true, maxRecursion, 0, null);
+    }
+
+    /**
+     * メッセージを引数varsで指定した変数で補完し、出力先に追加する。
+     * <p>変換したメッセージに対しても再帰的に処理します。</p>
+     * <p>{@link MessageSourceAccessor}を指定した場合、メッセージ中の変数をメッセージコードとして解決します。
+     * <p>途中の結果を文字列として組み立てずに、出力先に直接追加します。
+     *    処理の途中で例外が発生した場合、出力先にはそれまでの結果が追加されています。</p>
+     *
+     * @param out 補完したメッセージの出力先。
+     * @param message 対象のメッセージ。
+     * @param vars メッセージ中の変数に対する値のマップ。
+     * @param maxRecursion 再帰的にメッセージを処理する最大回数。0以下を指定したときは再帰回数の制限はありません。
+     * @param messageSource メッセージを解決するクラス。nullの場合、指定しないと同じ意味になります。
+     * @throws IOException 出力先への追加に失敗した場合。
+     */
+    public void interpolateTo(final Appendable out, final String message, final Map<String, ?> vars,
+            int maxRecursion, final MessageSourceAccessor messageSource) throws IOException {
+        render(out, compile(message), vars, true, maxRecursion, 0, messageSource);
+    }
+
+    /**
+     * メッセージをコンパイルする。
+     * <p>コンパイルした結果はキャッシュされ、同じメッセージの場合はキャッシュから取得します。</p>
+     *
+     * @param message 対象のメッセージ。
+     * @return コンパイルしたメッセージ。
+     * @throws MessageParseException メッセージ中の式の形式が不正な場合。
+     */
+    public MessageTemplate compile(final String message) {
+
+        final MessageFormatListener listener = this.listener;
+        if(listener == null) {
+            return templateCache.get(message, this::createTemplate);
+        }
+
+        final long start = System.nanoTime();
+        final boolean[] loaded = new boolean[1];
+        final MessageTemplate template = templateCache.get(message, key -> {
+            loaded[0] = true;
+            return createTemplate(key);
+        });
+        listener.onTemplateLookup(message, !loaded[0], System.nanoTime() - start);
+
+        return template;
+    }
+
+    /**
+     * 処理の各段階を通知するリスナーを設定します。
+     * <p>EL式のパースと評価も通知するよう、{@link ExpressionEvaluator#setExpressionListener(com.github.mygreen.messageformatter.expression.ExpressionListener)}
+     *    にも設定します。</p>
+     * @param listener リスナー。{@literal null}の場合は通知しません。
+     */
+    public void setListener(final MessageFormatListener listener) {
+        this.listener = listener;
+        expressionEvaluator.setExpressionListener(listener);
     }
 
     /**
      * メッセージをパースし、変数に値を差し込み、EL式を評価する。
+     * <p>コンパイルした結果はキャッシュしません。</p>
+     * <p>メッセージはコンパイルしてから評価するようになったため、{@link #interpolate(String, Map)}などの処理から、
+     *    このメソッドは呼び出されません。オーバーライドしても処理には反映されないため、
+     *    メッセージの解析を変更する場合は {@link #createTemplate(String)} をオーバーライドしてください。</p>
      * @param message 対象のメッセージ。
      * @param vars メッセージ中の変数に対する値のマップ。
      * @param recursive 変換したメッセージに対しても再帰的に処理するかどうか。
@@ -94,175 +283,494 @@ public class MessageInterpolator {
      * @param recursiveCount 現在の再帰回数
      * @param messageSource メッセージを解決するクラス。nullの場合、指定しないと同じ意味になります。
      * @return 補完したメッセージ。
+     * @deprecated 処理から呼び出されないため、削除予定です。{@link #createTemplate(String)} を使用してください。
      */
+    @Deprecated
     protected String parse(final String message, final Map<String, ?> vars, boolean recursive, int maxRecursion,
             int recursiveCount, final MessageSourceAccessor messageSource) {
+        return renderToString(createTemplate(message), vars, recursive, maxRecursion, recursiveCount, messageSource);
+    }
 
-        // 評価したメッセージを格納するバッファ。
+    /**
+     * メッセージをパースし、セグメントに分割したテンプレートを作成する。
+     * <p>メッセージを先頭から1回だけ走査し、式の範囲を開始位置と終了位置で特定する。</p>
+     * <p>式の中では、式の終わりとなる文字'}'をエスケープ文字で無効にできる。
+     *    式の開始後に再度現れた'{'や'$'は、式の一部として扱う。
+     *    式が閉じられずに終了した場合は、エスケープを解除した文字列として扱う。</p>
+     * @param message 対象のメッセージ。
+     * @return コンパイルしたメッセージ。
+     * @throws MessageParseException メッセージ中の式の形式が不正な場合。
+     */
+    protected MessageTemplate createTemplate(final String message) {
+
+        final MessageFormatListener listener = this.listener;
+        if(listener == null) {
+            return parseTemplate(message);
+        }
+
+        final long start = System.nanoTime();
+        final MessageTemplate template = parseTemplate(message);
+        listener.onTemplateCompiled(message, System.nanoTime() - start);
+
+        return template;
+    }
+
+    private MessageTemplate parseTemplate(final String message) {
+
+        final List<MessageTemplate.Segment> segments = new ArrayList<>();
+
+        // 式以外の文字列を格納するバッファ。
         final StringBuilder sb = new StringBuilder(message.length());
 
-        /*
-         * 変数とEL式を解析する際に使用する、スタック変数。
-         * 式の開始が現れたらスタックに積み、式の終了が現れたらスタックから全てを取り出す。
-         * スタックに積まれるのは、1つ文の変数またはEL式。
-         */
-        final Deque<String> stack = new LinkedList<>();
+        // 式の開始位置。式の外側の場合は -1。
+        int exprStart = -1;
+
+        // 直前の文字がエスケープ文字かどうか。
+        boolean escaped = false;
 
         final int length = message.length();
 
         for(int i=0; i < length; i++) {
             final char c = message.charAt(i);
 
-            if(StackUtils.equalsTopElement(stack, "\\")) {
-                // 直前の文字がエスケープ文字の場合、エスケープ文字として結合する。
-                String escapedChar = StackUtils.popup(stack) + c;
-
-                if(!stack.isEmpty()) {
-                    // 取り出した後もスタックがある場合は、式の途中であるため、再度スタックに積む。
-                    stack.push(escapedChar);
-
-                } else {
-                    // 取り出した後にスタックがない場合は、エスケープを解除して通常の文字として積む。
+            if(escaped) {
+                // 直前の文字がエスケープ文字の場合、式の外側ではエスケープを解除して通常の文字として扱う。
+                // 式の中では、式を取り出すときにまとめて解除する。
+                escaped = false;
+                if(exprStart < 0) {
                     sb.append(c);
-
                 }
 
             } else if(c == '\\') {
-                // エスケープ文字の場合はスタックに積む。
-                stack.push(String.valueOf(c));
-
-            } else if(c == '$') {
-                stack.push(String.valueOf(c));
+                escaped = true;
+
+            } else if(exprStart >= 0) {
+                // 式の中の場合
+                if(c == '}') {
+                    // 式の終わりの場合は、式を取り出しセグメントにする。
+                    if(sb.length() > 0) {
+                        segments.add(new MessageTemplate.LiteralSegment(sb.toString()));
+                        sb.setLength(0);
+                    }
+                    segments.add(createSegment(message, exprStart, i+1));
+                    exprStart = -1;
+                }
 
-            } else if(c == '{') {
+            } else if(c == '$' || c == '{') {
+                // 式の開始
+                exprStart = i;
 
-                if(!stack.isEmpty() && !StackUtils.equalsAnyBottomElement(stack, new String[]{"$", "{"})) {
-                    // スタックの先頭が式の開始形式でない場合
-                    throw new MessageParseException(message, "expression not start with '{' or '$'");
+            } else {
+                sb.append(c);
+            }
 
-                } else {
-                    stack.push(String.valueOf(c));
-                }
+        }
 
+        if(exprStart >= 0) {
+            // 式が閉じられていない場合は、文字列として扱う。
+            appendUnescaped(sb, message, exprStart, length);
 
-            } else if(c == '}') {
+        } else if(escaped) {
+            // 末尾のエスケープ文字は、そのまま残す。
+            sb.append('\\');
+        }
 
-                if(StackUtils.equalsAnyBottomElement(stack, new String[]{"{", "$"})) {
-                    // 式の終わりの場合は、式を取り出し評価する。
-                    String expression = StackUtils.popupAndConcat(stack) + c;
+        if(sb.length() > 0) {
+            segments.add(new MessageTemplate.LiteralSegment(sb.toString()));
+        }
 
-                    // エスケープを解除する
-                    expression = removeEscapeChar(expression, '\\');
+        return new MessageTemplate(message, segments);
+    }
 
-                    String result = evaluate(expression, vars, recursive, maxRecursion, recursiveCount, messageSource);
-                    sb.append(result);
+    /**
+     * 変数またはEL式のセグメントを作成する。
+     * @param message 対象のメッセージ。
+     * @param start 式の開始位置。文字'{'または'$'の位置。
+     * @param end 式の終了位置。文字'}'の次の位置。
+     * @return 式のセグメント。
+     * @throws MessageParseException サポートしていない式の場合。
+     */
+    private MessageTemplate.Segment createSegment(final String message, final int start, final int end) {
+
+        // エスケープを解除する。エスケープ文字を含まない場合は、元のメッセージから直接切り出す。
+        // 変数名やEL式は、[offset, last]の範囲の'{'、'$'、'}'の内側となる。
+        final int escapeIndex = message.indexOf('\\', start);
+        final String expression;
+        final int offset;
+        final int last;
+        if(escapeIndex < 0 || escapeIndex >= end) {
+            expression = message;
+            offset = start;
+            last = end - 1;
+        } else {
+            final StringBuilder unescaped = new StringBuilder(end - start);
+            appendUnescaped(unescaped, message, start, end);
+            expression = unescaped.toString();
+            offset = 0;
+            last = expression.length() - 1;
+        }
 
-                } else {
-                    sb.append(c);
+        if(expression.charAt(offset) == '{') {
+            // 変数の置換の場合
+            final String varName = expression.substring(offset+1, last);
+            final int comma = varName.indexOf(',');
+            if(comma > 0) {
+                // 2番目の要素が書式の種類の場合は、書式付きの変数とする。
+                final PlaceholderFormat format;
+                try {
+                    format = PlaceholderFormat.parse(varName.substring(comma+1));
+                } catch(IllegalArgumentException e) {
+                    throw new MessageParseException(expression.substring(offset, last+1), "invalid format : " + e.getMessage());
+                }
 
+                if(format != null) {
+                    return new MessageTemplate.VariableSegment(varName.substring(0, comma).trim(), "{" + varName + "}", format);
                 }
+            }
+            return new MessageTemplate.VariableSegment(varName);
 
-            } else {
+        } else if(expression.charAt(offset+1) == '{') {
+            // EL式の場合は、予めパースしておく。
+            final String expr = expression.substring(offset+2, last);
+            final ParsedExpression parsed = expressionEvaluator.parse(expr);
+            return new MessageTemplate.ExpressionSegment(expr, parsed, evaluateConstant(expr, parsed));
 
-                if(stack.isEmpty()) {
-                    sb.append(c);
+        }
 
-                } else {
-                    stack.push(String.valueOf(c));
-                }
+        throw new MessageParseException(expression.substring(offset, last+1), "not support expression.");
+    }
 
-            }
+    /**
+     * 変数を参照しない定数式を、コンパイル時に評価する。
+     * <p>評価に失敗した場合は、フォーマット時に評価して例外をスローするよう、定数式として扱わない。</p>
+     * @param expression EL式
+     * @param parsedExpression パース済みのEL式
+     * @return 評価した結果。定数式でない場合や評価に失敗した場合は{@literal null}。
+     */
+    private String evaluateConstant(final String expression, final ParsedExpression parsedExpression) {
 
+        if(!parsedExpression.isConstant()) {
+            return null;
         }
 
-        if(!stack.isEmpty()) {
-            String val = StackUtils.popupAndConcat(stack);
-            val = removeEscapeChar(val, '\\');
-            sb.append(val);
+        try {
+            return evaluateExpression(expression, parsedExpression, Collections.emptyMap());
+
+        } catch(RuntimeException e) {
+            log.debug("Failed to evaluate constant expression: {}", expression, e);
+            return null;
+        }
+    }
+
+    /**
+     * コンパイル済みのメッセージに、変数に値を差し込み、EL式を評価した結果を文字列として取得する。
+     * @param template コンパイル済みのメッセージ。
+     * @param vars メッセージ中の変数に対する値のマップ。
+     * @param recursive 変換したメッセージに対しても再帰的に処理するかどうか。
+     * @param maxRecursion 再帰的にメッセージを処理する最大回数。0以下を指定したときは再帰回数の制限はありません。
+     * @param recursiveCount 現在の再帰回数
+     * @param messageSource メッセージを解決するクラス。nullの場合、指定しないと同じ意味になります。
+     * @return 補完したメッセージ。
+     */
+    private String renderToString(final MessageTemplate template, final Map<String, ?> vars, boolean recursive,
+            int maxRecursion, int recursiveCount, final MessageSourceAccessor messageSource) {
+
+        // 評価したメッセージを格納するバッファ。
+        final StringBuilder sb = new StringBuilder(template.getMessage().length());
+
+        try {
+            render(sb, template, vars, recursive, maxRecursion, recursiveCount, messageSource);
+        } catch(IOException e) {
+            // StringBuilderへの追加では発生しない。
+            throw new UncheckedIOException(e);
         }
 
         return sb.toString();
     }
 
-    private String evaluate(final String expression, final Map<String, ?> values, final boolean recursive,
-            final int maxRecursion, final int recursiveCount, final MessageSourceAccessor messageSource) {
+    /**
+     * コンパイル済みのメッセージに、変数に値を差し込み、EL式を評価した結果を出力先に追加する。
+     * <p>再帰的に処理する場合も、同じ出力先に追加する。</p>
+     * @param out 補完したメッセージの出力先。
+     * @param template コンパイル済みのメッセージ。
+     * @param vars メッセージ中の変数に対する値のマップ。
+     * @param recursive 変換したメッセージに対しても再帰的に処理するかどうか。
+     * @param maxRecursion 再帰的にメッセージを処理する最大回数。0以下を指定したときは再帰回数の制限はありません。
+     * @param recursiveCount 現在の再帰回数
+     * @param messageSource メッセージを解決するクラス。nullの場合、指定しないと同じ意味になります。
+     * @throws IOException 出力先への追加に失敗した場合。
+     */
+    private void render(final Appendable out, final MessageTemplate template, final Map<String, ?> vars,
+            boolean recursive, int maxRecursion, int recursiveCount, final MessageSourceAccessor messageSource)
+                    throws IOException {
+
+        final RenderContext context = new RenderContext(vars, recursive, maxRecursion, messageSource);
+
+        final MessageFormatListener listener = this.listener;
+        if(listener == null) {
+            render(out, template, context, recursiveCount);
+            return;
+        }
+
+        final long start = System.nanoTime();
+        render(out, template, context, recursiveCount);
+        listener.onRendered(template.getMessage(), context.maxDepth, System.nanoTime() - start);
+    }
+
+    /**
+     * コンパイル済みのメッセージに、変数に値を差し込み、EL式を評価した結果を出力先に追加する。
+     * @param out 補完したメッセージの出力先。
+     * @param template コンパイル済みのメッセージ。
+     * @param context 1回の処理の間で共有する情報。
+     * @param recursiveCount 現在の再帰回数
+     * @throws IOException 出力先への追加に失敗した場合。
+     */
+    private void render(final Appendable out, final MessageTemplate template, final RenderContext context,
+            final int recursiveCount) throws IOException {
 
-        if(expression.startsWith("{")) {
-            // 変数の置換の場合
-            final String varName = expression.substring(1, expression.length()-1);
-
-            if(values.containsKey(varName)) {
-                // 該当するキーが存在する場合
-                final Object value = values.get(varName);
-                final String eval = (value == null) ? "" : value.toString();
-                if(!eval.isEmpty() && recursivable(recursive, maxRecursion, recursiveCount, eval)) {
-                    return parse(eval, values, recursive, maxRecursion, recursiveCount+1, messageSource);
-                } else {
-                    return eval;
-                }
+        // テンプレートのスロット番号を割り当てたパラメータの場合は、スロット番号で値を参照する。
+        final MessageParams slots = (context.vars instanceof MessageParams
+                && ((MessageParams) context.vars).isBoundTo(template.getSlotNames())) ? (MessageParams) context.vars : null;
 
-            } else if(messageSource != null) {
-                // メッセージコードをとして解決をする。
-                String eval;
-                try {
-                    eval = messageSource.getMessage(varName);
-                } catch(NoSuchMessageException e) {
-                    // 該当するキーが存在しない場合は、値をそのまま返す。
-                    return String.format("{%s}", varName);
-                }
+        for(MessageTemplate.Segment segment : template.getSegments()) {
+            if(segment instanceof MessageTemplate.LiteralSegment) {
+                out.append(((MessageTemplate.LiteralSegment) segment).getText());
+
+            } else if(segment instanceof MessageTemplate.VariableSegment) {
+                appendVariable(out, (MessageTemplate.VariableSegment) segment, slots, context, recursiveCount);
+
+            } else if(segment instanceof MessageTemplate.ExpressionSegment) {
+                appendExpression(out, (MessageTemplate.ExpressionSegment) segment, context, recursiveCount);
+
+            } else {
+                throw new IllegalStateException("not support segment : " + segment.getClass().getName());
+            }
+        }
+
+    }
+
+    private void appendVariable(final Appendable out, final MessageTemplate.VariableSegment segment,
+            final MessageParams slots, final RenderContext context, final int recursiveCount) throws IOException {
+
+        final String varName = segment.getVarName();
+
+        Object value;
+        boolean defined;
+        if(slots != null) {
+            value = slots.getSlotValue(segment.getSlot());
+            defined = value != MessageParams.UNSET;
+            if(!defined) {
+                value = null;
+            }
 
-                if(recursivable(recursive, maxRecursion, recursiveCount, eval)) {
-                    return parse(eval, values, recursive, maxRecursion, recursiveCount+1, messageSource);
-                } else {
-                    return eval;
+        } else {
+            value = context.vars.get(varName);
+            defined = value != null || context.vars.containsKey(varName);
+        }
+
+        if(value instanceof LazyVariable) {
+            // 参照されたときに値を作成する変数の場合
+            final LazyVariable<?> lazy = (LazyVariable<?>) value;
+            defined = lazy.isDefined();
+            value = lazy.get();
+        }
+
+        if(defined) {
+            // 該当するキーが存在する場合
+            if(value != null && segment.getFormat() != null) {
+                // 書式を指定した場合は、書式で変換した値を再帰的に処理しない。
+                final String formatted = segment.getFormat().format(value, getLocale(context.messageSource));
+                if(formatted != null) {
+                    out.append(formatted);
+                    return;
                 }
+            }
 
+            final String eval = (value == null) ? "" : value.toString();
+            if(!eval.isEmpty() && recursivable(context, recursiveCount, eval)) {
+                appendExpanded(out, segment.getPlaceholder(), eval, false, true, context, recursiveCount);
             } else {
+                out.append(eval);
+            }
+
+        } else if(context.messageSource != null) {
+            // メッセージコードをとして解決をする。
+            final String eval = resolveMessage(context.messageSource, varName);
+            if(eval == null) {
                 // 該当するキーが存在しない場合は、値をそのまま返す。
-                return String.valueOf(expression);
+                final MessageFormatListener listener = this.listener;
+                if(listener != null) {
+                    listener.onMissingCode(varName, context.messageSource instanceof LocaleAwareMessageSourceAccessor
+                            ? ((LocaleAwareMessageSourceAccessor) context.messageSource).getLocale() : null);
+                }
+                out.append(segment.getPlaceholder());
+                return;
             }
 
-        } else if(expression.startsWith("${")) {
-            // EL式で処理する
-            final String expr = expression.substring(2, expression.length()-1);
-            final String eval = evaluateExpression(expr, values);
-            if(recursivable(recursive, maxRecursion, recursiveCount, eval)) {
-                return parse(eval, values, recursive, maxRecursion, recursiveCount+1, messageSource);
+            if(recursivable(context, recursiveCount, eval)) {
+                // メッセージソースに定義されたメッセージは固定のため、コンパイル結果をキャッシュする。
+                appendExpanded(out, segment.getPlaceholder(), eval, true, true, context, recursiveCount);
             } else {
-                return eval;
+                out.append(eval);
+            }
+
+        } else {
+            // 該当するキーが存在しない場合は、値をそのまま返す。
+            out.append(segment.getPlaceholder());
+        }
+
+    }
+
+    /**
+     * 変数の書式で使用するロケールを取得する。
+     * @param messageSource メッセージを解決するクラス。
+     * @return ロケールを保持するクラスでない場合は、{@link LocaleContextHolder}から取得する。
+     */
+    private static Locale getLocale(final MessageSourceAccessor messageSource) {
+        if(messageSource instanceof LocaleAwareMessageSourceAccessor) {
+            return ((LocaleAwareMessageSourceAccessor) messageSource).getLocale();
+        }
+        return LocaleContextHolder.getLocale();
+    }
+
+    private void appendExpression(final Appendable out, final MessageTemplate.ExpressionSegment segment,
+            final RenderContext context, final int recursiveCount) throws IOException {
+
+        final String eval = segment.isConstant() ? segment.getConstantValue()
+                : evaluateExpression(segment.getExpression(), segment.getParsedExpression(), context.vars);
+        if(recursivable(context, recursiveCount, eval)) {
+            // EL式の評価結果は同じとは限らないため、展開結果は使い回さない。
+            appendExpanded(out, "${" + segment.getExpression() + "}", eval, false, false, context, recursiveCount);
+        } else {
+            out.append(eval);
+        }
+
+    }
+
+    /**
+     * 変数やメッセージコード、EL式を評価した値を、再帰的に処理して出力先に追加する。
+     * <p>展開中の参照を再度展開しようとした場合は、循環参照とみなして展開を中止し、参照の文字列をそのまま追加する。</p>
+     * <p>同じ1回の処理の中で同じ参照を展開した結果は保持し、再利用する。
+     *    ただし、展開中に循環参照を検出した場合は、展開元によって結果が変わるため保持しない。</p>
+     * @param out 補完したメッセージの出力先。
+     * @param reference 参照の文字列。<code>{...}</code>や<code>${...}</code>の形式。
+     * @param eval 展開する値。
+     * @param cacheTemplate 展開する値のコンパイル結果をキャッシュするかどうか。
+     * @param memoize 展開した結果を1回の処理の中で再利用するかどうか。
+     * @param context 1回の処理の間で共有する情報。
+     * @param recursiveCount 現在の再帰回数
+     * @throws IOException 出力先への追加に失敗した場合。
+     */
+    private void appendExpanded(final Appendable out, final String reference, final String eval,
+            final boolean cacheTemplate, final boolean memoize, final RenderContext context, final int recursiveCount)
+                    throws IOException {
+
+        if(!context.enter(reference)) {
+            log.warn("Detected cyclic reference : reference={}, message={}.", reference, eval);
+            final MessageFormatListener listener = this.listener;
+            if(listener != null) {
+                listener.onCycleDetected(reference);
             }
+            out.append(reference);
+            return;
+        }
+
+        context.maxDepth = Math.max(context.maxDepth, recursiveCount+1);
+
+        try {
+            final MessageTemplate template = cacheTemplate ? compile(eval) : createTemplate(eval);
+            if(!memoize) {
+                render(out, template, context, recursiveCount+1);
+                return;
+            }
+
+            // 再帰回数に制限がない場合は、展開結果は再帰回数によらない。
+            final ExpandedKey key = new ExpandedKey(reference, context.maxRecursion > 0 ? recursiveCount : -1);
+            final String expanded = context.getExpanded(key);
+            if(expanded != null) {
+                out.append(expanded);
+                return;
+            }
+
+            final int cycleCount = context.cycleCount;
+            final StringBuilder sb = new StringBuilder(eval.length());
+            render(sb, template, context, recursiveCount+1);
+            if(cycleCount == context.cycleCount) {
+                context.putExpanded(key, sb.toString());
+            }
+            out.append(sb);
+
+        } finally {
+            context.exit(reference);
+        }
+
+    }
+
+    /**
+     * メッセージコードに対するメッセージを取得する。
+     * <p>{@link LocaleAwareMessageSourceAccessor}の場合は、解決結果を{@link #getMessageCodeCache()}にキャッシュする。</p>
+     * @param messageSource メッセージを解決するクラス。
+     * @param code メッセージコード
+     * @return メッセージ。存在しない場合はnullを返す。
+     */
+    private String resolveMessage(final MessageSourceAccessor messageSource, final String code) {
 
+        final MessageFormatListener listener = this.listener;
+        if(listener == null) {
+            return resolveMessageWithoutListener(messageSource, code);
         }
 
-        throw new MessageParseException(expression, "not support expression.");
+        final long start = System.nanoTime();
+        final String message = resolveMessageWithoutListener(messageSource, code);
+        listener.onMessageLookup(code, messageSource instanceof LocaleAwareMessageSourceAccessor
+                ? ((LocaleAwareMessageSourceAccessor) messageSource).getLocale() : null,
+                message != null, System.nanoTime() - start);
 
+        return message;
+    }
+
+    private String resolveMessageWithoutListener(final MessageSourceAccessor messageSource, final String code) {
+
+        if(messageSource instanceof LocaleAwareMessageSourceAccessor) {
+            final LocaleAwareMessageSourceAccessor accessor = (LocaleAwareMessageSourceAccessor) messageSource;
+            return messageCodeCache.getMessage(accessor.getMessageSource(), code, accessor.getLocale());
+        }
+
+        try {
+            return messageSource.getMessage(code);
+        } catch(NoSuchMessageException e) {
+            return null;
+        }
     }
 
     /**
      * 現在の再帰回数が最大回数に達しているかどうか。
-     * @param recursive 再帰的に処理するかどうか。
-     * @param maxRecursion 最大再帰回数
+     * @param context 1回の処理の間で共有する情報。
      * @param currentCount 再帰回数
      * @param message 再帰対象のメッセージ
      * @return 最大再帰回数を超えていなければfalseを返す。
      */
-    private boolean recursivable(final boolean recursive, final int maxRecursion, final int currentCount,
-            String message) {
+    private boolean recursivable(final RenderContext context, final int currentCount, String message) {
 
-        if(!recursive) {
+        if(!context.recursive) {
             return false;
         }
 
-        if(maxRecursion <= 0) {
+        if(context.maxRecursion <= 0) {
             // 再帰回数の制限なし。
             return true;
         }
 
-        if(currentCount <= maxRecursion) {
+        if(currentCount <= context.maxRecursion) {
             return true;
         }
 
-        log.warn("Over recursive count : currentCount={}, maxCount={}, message={}.", currentCount, maxRecursion, message);
+        log.warn("Over recursive count : currentCount={}, maxCount={}, message={}.", currentCount, context.maxRecursion, message);
+
+        final MessageFormatListener listener = this.listener;
+        if(listener != null) {
+            listener.onRecursionLimitReached(message, currentCount);
+        }
 
         return false;
 
@@ -270,22 +778,38 @@ public class MessageInterpolator {
 
     /**
      * EL式を評価する。
+     * <p>EL式はメッセージのコンパイル時にパースするようになったため、メッセージの処理からは
+     *    {@link #evaluateExpression(String, ParsedExpression, Map)} を呼び出し、このメソッドは呼び出されません。
+     *    EL式の評価を変更する場合は、{@link #evaluateExpression(String, ParsedExpression, Map)} をオーバーライドしてください。</p>
      * @param expression EL式
      * @param values EL式中の変数。
      * @return 評価した式。
+     * @deprecated 処理から呼び出されないため、削除予定です。{@link #evaluateExpression(String, ParsedExpression, Map)} を使用してください。
      */
+    @Deprecated
     protected String evaluateExpression(final String expression, final Map<String, ?> values) {
+        return evaluateExpression(expression, expressionEvaluator.parse(expression), values);
+    }
 
-        final Map<String, Object> context = new LinkedHashMap<>();
-        context.putAll(values);
+    /**
+     * パース済みのEL式を評価する。
+     * <p>変数のマップはコピーせず、組み込みの変数<code>formatter</code>を重ねたビューとして式に渡す。</p>
+     * <p>メッセージ中のEL式と、コンパイル時の定数式の評価は、全てこのメソッドを呼び出す。</p>
+     * @param expression EL式
+     * @param parsedExpression パース済みのEL式
+     * @param values EL式中の変数。
+     * @return 評価した式。
+     */
+    protected String evaluateExpression(final String expression, final ParsedExpression parsedExpression,
+            final Map<String, ?> values) {
 
-        // フォーマッターの追加
-        context.computeIfAbsent("formatter", key -> new Formatter());
+        // 変数はコピーせず、フォーマッターは参照されたときに作成する。
+        final Map<String, Object> context = new ExpressionVariables(values);
 
         /*
          * SpELで存在しない変数名の場合、nullが帰ってくるため、null判定を行う。
          */
-        Object eval = expressionEvaluator.evaluate(expression, context);
+        Object eval = parsedExpression.evaluate(context);
         String value = eval == null ? "" : eval.toString();
 
         if(log.isTraceEnabled()) {
@@ -296,46 +820,112 @@ public class MessageInterpolator {
     }
 
     /**
-     * エスケープ文字を除去した文字列を取得する。
-     * @param str
-     * @param escapeChar
-     * @return
+     * 指定した範囲の文字列を、エスケープ文字を除去して追加する。
+     * <p>末尾のエスケープ文字は、そのまま追加する。</p>
+     * @param sb 追加先のバッファ
+     * @param str 対象の文字列
+     * @param start 開始位置
+     * @param end 終了位置
      */
-    private static String removeEscapeChar(final String str, final char escapeChar) {
+    private static void appendUnescaped(final StringBuilder sb, final String str, final int start, final int end) {
 
-        if(str == null || str.isEmpty()) {
-            return str;
+        for(int i=start; i < end; i++) {
+            final char c = str.charAt(i);
+            if(c == '\\' && i + 1 < end) {
+                sb.append(str.charAt(++i));
+            } else {
+                sb.append(c);
+            }
         }
 
-        final String escapeStr = String.valueOf(escapeChar);
-        StringBuilder sb = new StringBuilder();
+    }
 
-        LinkedList<String> stack = new LinkedList<>();
+    /**
+     * 1回の処理の間で共有する情報。
+     * <p>再帰的に処理する場合の、展開中の参照と展開した結果を保持する。必要になるまでは作成しない。</p>
+     */
+    private static final class RenderContext {
 
-        final int length = str.length();
-        for(int i=0; i < length; i++) {
-            final char c = str.charAt(i);
+        private final Map<String, ?> vars;
 
-            if(StackUtils.equalsTopElement(stack, escapeStr)) {
-                // スタックの一番上がエスケープ文字の場合
-                StackUtils.popup(stack);
-                sb.append(c);
+        private final boolean recursive;
 
-            } else if(c == escapeChar) {
-                // スタックに積む
-                stack.push(String.valueOf(c));
+        private final int maxRecursion;
 
-            } else {
-                sb.append(c);
+        private final MessageSourceAccessor messageSource;
+
+        /**
+         * 展開中の参照
+         */
+        private Set<String> expanding;
+
+        /**
+         * 展開した結果
+         */
+        private Map<ExpandedKey, String> expanded;
+
+        /**
+         * 循環参照を検出した回数
+         */
+        private int cycleCount;
+
+        /**
+         * 再帰的に処理した最大の深さ
+         */
+        private int maxDepth;
+
+        RenderContext(final Map<String, ?> vars, final boolean recursive, final int maxRecursion,
+                final MessageSourceAccessor messageSource) {
+            this.vars = vars;
+            this.recursive = recursive;
+            this.maxRecursion = maxRecursion;
+            this.messageSource = messageSource;
+        }
+
+        /**
+         * 参照の展開を開始する。
+         * @param reference 参照を識別するキー。
+         * @return 既に展開中の場合は、循環参照としてfalseを返す。
+         */
+        boolean enter(final String reference) {
+            if(expanding == null) {
+                expanding = new HashSet<>();
             }
 
+            if(!expanding.add(reference)) {
+                cycleCount++;
+                return false;
+            }
+            return true;
         }
 
-        if(!stack.isEmpty()) {
-            sb.append(StackUtils.popupAndConcat(stack));
+        void exit(final String reference) {
+            expanding.remove(reference);
         }
 
-        return sb.toString();
+        String getExpanded(final ExpandedKey key) {
+            return expanded == null ? null : expanded.get(key);
+        }
+
+        void putExpanded(final ExpandedKey key, final String value) {
+            if(expanded == null) {
+                expanded = new HashMap<>();
+            }
+            expanded.put(key, value);
+        }
+
+    }
+
+    /**
+     * 展開した結果のキー。
+     */
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    private static final class ExpandedKey {
+
+        private final String reference;
+
+        private final int recursiveCount;
 
     }
 
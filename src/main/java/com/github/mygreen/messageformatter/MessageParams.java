@@ -0,0 +1,300 @@
+package com.github.mygreen.messageformatter;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import lombok.NonNull;
+
+/**
+ * メッセージ中の変数の値を、配列で保持するマップ。
+ * <p>変数の個数が少ない場合に、{@link java.util.HashMap}よりも少ないメモリで、ハッシュ値を計算せずに参照できます。
+ *    変数名は線形に探索するため、多数の変数を保持する用途には向きません。</p>
+ * <p>{@link MessageTemplate#newParams()}で作成した場合は、メッセージ中の変数<code>{...}</code>にスロット番号が割り当てられ、
+ *    {@link MessageInterpolator}は変数名を探索せずにスロット番号で値を参照します。
+ *    スロット番号にない変数を追加することもできます。追加した後も、スロット番号での参照は維持されます。</p>
+ * <p>{@link #MessageParams()}で作成した場合や、{@link MessageFormatter.Builder}が保持する変数は、スロット番号が割り当てられないため、
+ *    常に変数名を探索して参照します。</p>
+ * <p>スレッドセーフではありません。</p>
+ *
+ *
+ * @author T.TSUCHIE
+ *
+ */
+public class MessageParams extends AbstractMap<String, Object> {
+
+    /**
+     * 値が設定されていないことを表す値
+     */
+    static final Object UNSET = new Object();
+
+    /**
+     * スロット番号を割り当てたメッセージの変数名の配列。割り当てていない場合は{@literal null}。
+     * <p>スロット番号にない変数を追加して{@link #names}を拡張しても、変わりません。</p>
+     */
+    private final String[] slotNames;
+
+    /**
+     * スロット番号の個数。先頭からこの個数までの要素が、スロット番号に対応します。
+     */
+    private final int slotCount;
+
+    /**
+     * 変数名
+     */
+    private String[] names;
+
+    /**
+     * 変数の値。設定されていない場合は{@link #UNSET}。
+     */
+    private Object[] values;
+
+    /**
+     * 使用している配列の長さ
+     */
+    private int length;
+
+    /**
+     * 変数名の配列を他のインスタンスと共有しているかどうか。共有している場合は、追加する前にコピーする。
+     */
+    private boolean sharedNames;
+
+    /**
+     * 空のインスタンスを作成します。
+     */
+    public MessageParams() {
+        this.slotNames = null;
+        this.slotCount = 0;
+        this.names = new String[4];
+        this.values = new Object[4];
+        this.length = 0;
+    }
+
+    /**
+     * スロット番号を割り当てたインスタンスを作成します。
+     * @param slotNames 変数名の配列。コピーせずに共有します。
+     */
+    MessageParams(final String[] slotNames) {
+        this.slotNames = slotNames;
+        this.slotCount = slotNames.length;
+        this.names = slotNames;
+        this.values = new Object[slotNames.length];
+        Arrays.fill(values, UNSET);
+        this.length = slotNames.length;
+        this.sharedNames = true;
+    }
+
+    /**
+     * 変数の値を設定します。
+     * @param name 変数名
+     * @param value 値
+     * @return 自身のインスタンス
+     */
+    public MessageParams set(@NonNull final String name, final Object value) {
+        put(name, value);
+        return this;
+    }
+
+    /**
+     * スロット番号を指定して、変数の値を設定します。
+     * @param slot スロット番号。{@link MessageTemplate#getSlot(String)}で取得します。
+     * @param value 値
+     * @return 自身のインスタンス
+     * @throws IndexOutOfBoundsException スロット番号が範囲外の場合
+     */
+    public MessageParams set(final int slot, final Object value) {
+        if(slot < 0 || slot >= slotCount) {
+            throw new IndexOutOfBoundsException("slot : " + slot);
+        }
+        values[slot] = value;
+        return this;
+    }
+
+    /**
+     * 指定したメッセージのスロット番号を割り当てたインスタンスかどうか判定します。
+     * @param slotNames メッセージの変数名の配列
+     * @return {@literal true}のとき、スロット番号で値を参照できます。
+     */
+    boolean isBoundTo(final String[] slotNames) {
+        return this.slotNames != null && this.slotNames == slotNames;
+    }
+
+    /**
+     * スロット番号を指定して値を取得します。
+     * @param slot スロット番号
+     * @return 値。設定されていない場合は{@link #UNSET}を返します。
+     */
+    Object getSlotValue(final int slot) {
+        return values[slot];
+    }
+
+    private int indexOf(final Object name) {
+        for(int i=0; i < length; i++) {
+            if(names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public Object get(final Object key) {
+        final int index = indexOf(key);
+        if(index < 0) {
+            return null;
+        }
+
+        final Object value = values[index];
+        return value == UNSET ? null : value;
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        final int index = indexOf(key);
+        return index >= 0 && values[index] != UNSET;
+    }
+
+    @Override
+    public Object put(@NonNull final String key, final Object value) {
+
+        final int index = indexOf(key);
+        if(index >= 0) {
+            final Object previous = values[index];
+            values[index] = value;
+            return previous == UNSET ? null : previous;
+        }
+
+        if(sharedNames || length == names.length) {
+            final int capacity = Math.max(4, length == names.length ? length * 2 : names.length);
+            names = Arrays.copyOf(names, capacity);
+            values = Arrays.copyOf(values, capacity);
+            sharedNames = false;
+        }
+
+        names[length] = key;
+        values[length] = value;
+        length++;
+        return null;
+    }
+
+    @Override
+    public Object remove(final Object key) {
+        final int index = indexOf(key);
+        if(index < 0) {
+            return null;
+        }
+
+        // スロット番号を維持するため、詰めずに未設定にする。
+        final Object previous = values[index];
+        values[index] = UNSET;
+        return previous == UNSET ? null : previous;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(values, 0, length, UNSET);
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for(int i=0; i < length; i++) {
+            if(values[i] != UNSET) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * 同じ変数名と値を持つインスタンスを作成します。
+     * <p>スロット番号の割り当ても引き継ぎます。</p>
+     * @return コピーしたインスタンス
+     */
+    public MessageParams copy() {
+        final MessageParams copied = slotNames != null ? new MessageParams(slotNames) : new MessageParams();
+        if(length > slotCount) {
+            copied.names = Arrays.copyOf(names, Math.max(4, length));
+            copied.values = Arrays.copyOf(values, Math.max(4, length));
+            copied.sharedNames = false;
+        } else {
+            System.arraycopy(values, 0, copied.values, 0, length);
+        }
+        copied.length = length;
+        return copied;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<Map.Entry<String, Object>>() {
+
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return MessageParams.this.size();
+            }
+        };
+    }
+
+    /**
+     * 値が設定されている変数を列挙するイテレータ。
+     */
+    private class EntryIterator implements Iterator<Map.Entry<String, Object>> {
+
+        private int next = advance(0);
+
+        private int current = -1;
+
+        private int advance(int index) {
+            while(index < length && values[index] == UNSET) {
+                index++;
+            }
+            return index;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < length;
+        }
+
+        @Override
+        public Entry<String, Object> next() {
+            if(!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            current = next;
+            next = advance(next + 1);
+
+            final int index = current;
+            return new SimpleEntry<String, Object>(names[index], values[index]) {
+
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                public Object setValue(final Object value) {
+                    values[index] = value;
+                    return super.setValue(value);
+                }
+            };
+        }
+
+        @Override
+        public void remove() {
+            if(current < 0) {
+                throw new IllegalStateException();
+            }
+            values[current] = UNSET;
+            current = -1;
+        }
+    }
+
+}
@@ -0,0 +1,98 @@
+package com.github.mygreen.messageformatter;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+
+import org.springframework.util.Assert;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * {@link MessageFormatter#formatAll(java.util.Collection)}でまとめてフォーマットするメッセージの情報。
+ * <p>変数のマップはコピーせずに参照します。フォーマットが終わるまでは変更しないでください。</p>
+ *
+ *
+ * @author T.TSUCHIE
+ *
+ */
+@ToString
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public class MessageRequest {
+
+    /**
+     * メッセージコード
+     */
+    @Getter
+    private final String code;
+
+    /**
+     * ロケール。{@literal null}の場合は、{@link org.springframework.context.i18n.LocaleContextHolder}から取得します。
+     */
+    @Getter
+    private final Locale locale;
+
+    /**
+     * メッセージ中の変数に対する値のマップ
+     */
+    @Getter
+    private final Map<String, ?> vars;
+
+    /**
+     * 変換したメッセージに対しても再帰的に処理するかどうか
+     */
+    @Getter
+    private final boolean recursive;
+
+    /**
+     * 再帰的にメッセージを処理する最大回数。0以下のときは再帰回数の制限はありません。
+     */
+    @Getter
+    private final int maxRecursion;
+
+    /**
+     * メッセージコードと変数を指定してインスタンスを作成します。
+     * @param code メッセージコード
+     * @param vars メッセージ中の変数に対する値のマップ
+     * @return 再帰的に処理しないメッセージの情報
+     */
+    public static MessageRequest of(final String code, final Map<String, ?> vars) {
+        return of(code, null, vars);
+    }
+
+    /**
+     * メッセージコード、ロケール、変数を指定してインスタンスを作成します。
+     * @param code メッセージコード
+     * @param locale ロケール。{@literal null}の場合は、{@link org.springframework.context.i18n.LocaleContextHolder}から取得します。
+     * @param vars メッセージ中の変数に対する値のマップ
+     * @return 再帰的に処理しないメッセージの情報
+     */
+    public static MessageRequest of(final String code, final Locale locale, @NonNull final Map<String, ?> vars) {
+        Assert.hasLength(code, "code should not be empty.");
+        return new MessageRequest(code, locale, vars, false, 0);
+    }
+
+    /**
+     * メッセージコードのみを指定してインスタンスを作成します。
+     * @param code メッセージコード
+     * @param locale ロケール。{@literal null}の場合は、{@link org.springframework.context.i18n.LocaleContextHolder}から取得します。
+     * @return 変数を持たない、再帰的に処理しないメッセージの情報
+     */
+    public static MessageRequest of(final String code, final Locale locale) {
+        return of(code, locale, Collections.emptyMap());
+    }
+
+    /**
+     * 変換したメッセージに対しても再帰的に処理するインスタンスを作成します。
+     * @param maxRecursion 再帰的にメッセージを処理する最大回数。0以下を指定すると再帰回数の制限はありません。
+     * @return 再帰的に処理するメッセージの情報
+     */
+    public MessageRequest recursively(final int maxRecursion) {
+        return new MessageRequest(code, locale, vars, true, maxRecursion);
+    }
+
+}
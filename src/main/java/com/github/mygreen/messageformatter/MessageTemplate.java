@@ -0,0 +1,243 @@
+package com.github.mygreen.messageformatter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.github.mygreen.messageformatter.expression.ParsedExpression;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * コンパイル済みのメッセージ。
+ * <p>メッセージを、固定の文字列、変数<code>{...}</code>、EL式<code>${...}</code>のセグメントに分割して保持します。</p>
+ * <p>不変なクラスのため、スレッドセーフです。{@link MessageInterpolator#compile(String)} で作成します。</p>
+ * <p>変数<code>{...}</code>には、変数名ごとに出現順にスロット番号を割り当てます。
+ *    {@link #newParams()}で作成した {@link MessageParams} を使用すると、変数の値をスロット番号で直接参照します。</p>
+ *
+ *
+ * @author T.TSUCHIE
+ *
+ */
+public class MessageTemplate {
+
+    /**
+     * コンパイル元のメッセージ
+     */
+    @Getter
+    private final String message;
+
+    /**
+     * メッセージを分割したセグメント
+     */
+    @Getter
+    private final List<Segment> segments;
+
+    /**
+     * 変数<code>{...}</code>の変数名。配列のインデックスがスロット番号です。
+     */
+    private final String[] slotNames;
+
+    /**
+     * インスタンスを作成します。
+     * <p>変数<code>{...}</code>のセグメントには、スロット番号を割り当てます。</p>
+     * @param message コンパイル元のメッセージ
+     * @param segments メッセージを分割したセグメント
+     */
+    MessageTemplate(final String message, final List<Segment> segments) {
+        this.message = message;
+
+        final List<String> names = new ArrayList<>();
+        final List<Segment> slotted = new ArrayList<>(segments.size());
+        for(Segment segment : segments) {
+            if(segment instanceof VariableSegment) {
+                final VariableSegment variable = (VariableSegment) segment;
+                final String varName = variable.getVarName();
+                int slot = names.indexOf(varName);
+                if(slot < 0) {
+                    slot = names.size();
+                    names.add(varName);
+                }
+                slotted.add(new VariableSegment(varName, variable.getPlaceholder(), variable.getFormat(), slot));
+            } else {
+                slotted.add(segment);
+            }
+        }
+
+        this.segments = Collections.unmodifiableList(slotted);
+        this.slotNames = names.toArray(new String[names.size()]);
+    }
+
+    /**
+     * メッセージ中の変数<code>{...}</code>の変数名を取得します。
+     * <p>EL式<code>${...}</code>中の変数は含みません。</p>
+     * @return 出現順の変数名。インデックスがスロット番号です。
+     */
+    public List<String> getVariableNames() {
+        return Collections.unmodifiableList(Arrays.asList(slotNames));
+    }
+
+    /**
+     * 変数名に対するスロット番号を取得します。
+     * @param varName 変数名
+     * @return スロット番号。メッセージ中の変数<code>{...}</code>に存在しない場合は{@literal -1}を返します。
+     */
+    public int getSlot(final String varName) {
+        for(int i=0; i < slotNames.length; i++) {
+            if(slotNames[i].equals(varName)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * このメッセージのスロット番号を割り当てた、変数の値を保持するインスタンスを作成します。
+     * @return 変数の値を保持するインスタンス
+     */
+    public MessageParams newParams() {
+        return new MessageParams(slotNames);
+    }
+
+    /**
+     * 変数名の配列を取得します。スロット番号を割り当てたパラメータかどうかの判定に使用します。
+     * @return 変数名の配列
+     */
+    String[] getSlotNames() {
+        return slotNames;
+    }
+
+    /**
+     * メッセージを分割したセグメント。
+     */
+    public interface Segment {
+
+    }
+
+    /**
+     * 固定の文字列のセグメント。
+     * <p>エスケープ文字は除去済みです。</p>
+     */
+    @RequiredArgsConstructor(access = AccessLevel.PACKAGE)
+    public static class LiteralSegment implements Segment {
+
+        /**
+         * 文字列
+         */
+        @Getter
+        private final String text;
+
+    }
+
+    /**
+     * 変数<code>{...}</code>のセグメント。
+     * <p><code>{変数名,書式の種類,パターン}</code>の形式の場合は、書式を保持します。</p>
+     */
+    public static class VariableSegment implements Segment {
+
+        /**
+         * 変数名
+         */
+        @Getter
+        private final String varName;
+
+        /**
+         * 変数が解決できないときに、そのまま出力する値。<code>{変数名}</code>か<code>{変数名,書式の種類,パターン}</code>の形式。
+         */
+        @Getter
+        private final String placeholder;
+
+        /**
+         * 変数の書式。指定しない場合は{@literal null}。
+         */
+        @Getter
+        private final PlaceholderFormat format;
+
+        /**
+         * スロット番号。割り当てていない場合は{@literal -1}。
+         */
+        @Getter
+        private final int slot;
+
+        /**
+         * インスタンスを作成します。
+         * @param varName 変数名
+         */
+        VariableSegment(final String varName) {
+            this(varName, "{" + varName + "}", null, -1);
+        }
+
+        /**
+         * 書式を指定してインスタンスを作成します。
+         * @param varName 変数名
+         * @param placeholder 変数が解決できないときに、そのまま出力する値
+         * @param format 変数の書式
+         */
+        VariableSegment(final String varName, final String placeholder, final PlaceholderFormat format) {
+            this(varName, placeholder, format, -1);
+        }
+
+        /**
+         * スロット番号を指定してインスタンスを作成します。
+         * @param varName 変数名
+         * @param placeholder 変数が解決できないときに、そのまま出力する値
+         * @param format 変数の書式
+         * @param slot スロット番号
+         */
+        VariableSegment(final String varName, final String placeholder, final PlaceholderFormat format, final int slot) {
+            this.varName = varName;
+            this.placeholder = placeholder;
+            this.format = format;
+            this.slot = slot;
+        }
+
+    }
+
+    /**
+     * EL式<code>${...}</code>のセグメント。
+     * <p>変数を参照しない定数式は、コンパイル時に評価した結果を保持します。</p>
+     */
+    @RequiredArgsConstructor(access = AccessLevel.PACKAGE)
+    public static class ExpressionSegment implements Segment {
+
+        /**
+         * EL式
+         */
+        @Getter
+        private final String expression;
+
+        /**
+         * パース済みのEL式
+         */
+        @Getter
+        private final ParsedExpression parsedExpression;
+
+        /**
+         * 定数式を評価した結果。定数式でない場合は{@literal null}。
+         */
+        @Getter
+        private final String constantValue;
+
+        /**
+         * 定数式でないEL式のインスタンスを作成します。
+         * @param expression EL式
+         * @param parsedExpression パース済みのEL式
+         */
+        ExpressionSegment(final String expression, final ParsedExpression parsedExpression) {
+            this(expression, parsedExpression, null);
+        }
+
+        /**
+         * 定数式かどうか判定します。
+         * @return {@literal true}のとき、{@link #getConstantValue()}で評価した結果を取得できます。
+         */
+        public boolean isConstant() {
+            return constantValue != null;
+        }
+
+    }
+
+}
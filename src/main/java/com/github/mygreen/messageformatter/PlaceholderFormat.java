@@ -0,0 +1,283 @@
+package com.github.mygreen.messageformatter;
+
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.FormatStyle;
+import java.time.temporal.TemporalAccessor;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * 変数<code>{変数名,書式の種類,パターン}</code>の書式。
+ * <p>メッセージのコンパイル時に解析し、フォーマット時に変数の値をロケールに従い文字列に変換します。</p>
+ * <ul>
+ *   <li><code>{amount,number}</code>、<code>{amount,number,#,##0.00}</code> : 数値を {@link DecimalFormat} で変換します。</li>
+ *   <li><code>{count,integer}</code>、<code>{rate,percent}</code>、<code>{price,currency}</code> : 数値を整数、パーセント、通貨で変換します。</li>
+ *   <li><code>{date,date}</code>、<code>{date,date,yyyy-MM-dd}</code> : 日時を {@link DateTimeFormatter} で変換します。
+ *       <code>time</code>、<code>datetime</code>も同様です。</li>
+ * </ul>
+ * <p>日時は、{@link TemporalAccessor}、{@link Date}、{@link Calendar}を変換します。{@link Date}はシステムのタイムゾーンで変換します。
+ *    変換できない型の値は、書式を指定しない場合と同様に文字列に変換します。</p>
+ * <p>ロケールごとに作成した {@link DateTimeFormatter} や {@link NumberFormat} はキャッシュします。
+ *    スレッドセーフでない {@link NumberFormat} は、使い回すインスタンスをプールします。</p>
+ * <p>複数のスレッドから同時に利用できます。</p>
+ *
+ *
+ * @author T.TSUCHIE
+ *
+ */
+public class PlaceholderFormat {
+
+    /**
+     * 書式の種類
+     */
+    public enum Type {
+
+        /** 数値。パターンを指定できます。 */
+        NUMBER("number", true, false),
+        /** 整数 */
+        INTEGER("integer", false, false),
+        /** パーセント */
+        PERCENT("percent", false, false),
+        /** 通貨 */
+        CURRENCY("currency", false, false),
+        /** 日付。パターンを指定できます。 */
+        DATE("date", true, true),
+        /** 時刻。パターンを指定できます。 */
+        TIME("time", true, true),
+        /** 日時。パターンを指定できます。 */
+        DATETIME("datetime", true, true);
+
+        /**
+         * メッセージ中の名前
+         */
+        @Getter
+        private final String label;
+
+        private final boolean acceptPattern;
+
+        private final boolean temporal;
+
+        Type(final String label, final boolean acceptPattern, final boolean temporal) {
+            this.label = label;
+            this.acceptPattern = acceptPattern;
+            this.temporal = temporal;
+        }
+
+        /**
+         * 名前に対する種類を取得します。
+         * @param label メッセージ中の名前
+         * @return 該当する種類がない場合は{@literal null}を返します。
+         */
+        public static Type of(final String label) {
+            for(Type type : values()) {
+                if(type.label.equals(label)) {
+                    return type;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * プールする {@link NumberFormat} の、ロケールごとの最大数
+     */
+    private static final int MAX_POOL_SIZE = 16;
+
+    /**
+     * 書式の種類
+     */
+    @Getter
+    private final Type type;
+
+    /**
+     * パターン。指定しない場合は{@literal null}。
+     */
+    @Getter
+    private final String pattern;
+
+    /**
+     * ロケールごとの {@link DateTimeFormatter} か {@link NumberFormatPool}
+     */
+    private final Map<Locale, Object> formatters = new ConcurrentHashMap<>();
+
+    /**
+     * インスタンスを作成します。
+     * <p>パターンが不正な場合に例外をスローするため、{@link Locale#ROOT}の書式を作成して検証します。</p>
+     * @param type 書式の種類
+     * @param pattern パターン。指定しない場合は{@literal null}。
+     * @throws IllegalArgumentException パターンを指定できない種類の場合や、パターンが不正な場合。
+     */
+    public PlaceholderFormat(@NonNull final Type type, final String pattern) {
+        if(pattern != null && !type.acceptPattern) {
+            throw new IllegalArgumentException(String.format("format type '%s' does not accept pattern.", type.label));
+        }
+
+        this.type = type;
+        this.pattern = pattern;
+        getFormatter(Locale.ROOT);
+    }
+
+    /**
+     * 変数の<code>書式の種類,パターン</code>の部分を解析します。
+     * @param spec 変数の書式の種類以降の文字列
+     * @return 書式の種類が該当しない場合は{@literal null}を返します。
+     * @throws IllegalArgumentException パターンを指定できない種類の場合や、パターンが不正な場合。
+     */
+    static PlaceholderFormat parse(final String spec) {
+
+        final int comma = spec.indexOf(',');
+        final Type type = Type.of((comma < 0 ? spec : spec.substring(0, comma)).trim());
+        if(type == null) {
+            return null;
+        }
+
+        final String pattern = comma < 0 ? null : spec.substring(comma + 1).trim();
+        return new PlaceholderFormat(type, pattern == null || pattern.isEmpty() ? null : pattern);
+    }
+
+    /**
+     * 値を文字列に変換します。
+     * @param value 変換対象の値
+     * @param locale ロケール
+     * @return 変換した文字列。変換できない型の値の場合や、日時の書式に必要な項目を持たない値の場合は{@literal null}を返します。
+     */
+    public String format(final Object value, final Locale locale) {
+
+        if(type.temporal) {
+            final TemporalAccessor temporal = toTemporal(value);
+            if(temporal == null) {
+                return null;
+            }
+            try {
+                return ((DateTimeFormatter) getFormatter(locale)).format(temporal);
+            } catch(DateTimeException e) {
+                // LocalDateを時刻の書式で変換する場合など、書式に必要な項目がない場合
+                return null;
+            }
+        }
+
+        if(!(value instanceof Number)) {
+            return null;
+        }
+
+        final NumberFormatPool pool = (NumberFormatPool) getFormatter(locale);
+        final NumberFormat format = pool.borrow();
+        try {
+            return format.format(value);
+        } finally {
+            pool.release(format);
+        }
+    }
+
+    private Object getFormatter(final Locale locale) {
+        return formatters.computeIfAbsent(locale, this::createFormatter);
+    }
+
+    private Object createFormatter(final Locale locale) {
+
+        switch(type) {
+            case NUMBER:
+                return new NumberFormatPool(pattern != null
+                        ? new DecimalFormat(pattern, DecimalFormatSymbols.getInstance(locale))
+                        : NumberFormat.getNumberInstance(locale));
+            case INTEGER:
+                return new NumberFormatPool(NumberFormat.getIntegerInstance(locale));
+            case PERCENT:
+                return new NumberFormatPool(NumberFormat.getPercentInstance(locale));
+            case CURRENCY:
+                return new NumberFormatPool(NumberFormat.getCurrencyInstance(locale));
+            case DATE:
+                return pattern != null ? DateTimeFormatter.ofPattern(pattern, locale)
+                        : DateTimeFormatter.ofLocalizedDate(FormatStyle.MEDIUM).withLocale(locale);
+            case TIME:
+                return pattern != null ? DateTimeFormatter.ofPattern(pattern, locale)
+                        : DateTimeFormatter.ofLocalizedTime(FormatStyle.MEDIUM).withLocale(locale);
+            case DATETIME:
+                return pattern != null ? DateTimeFormatter.ofPattern(pattern, locale)
+                        : DateTimeFormatter.ofLocalizedDateTime(FormatStyle.MEDIUM).withLocale(locale);
+            default:
+                throw new IllegalStateException("not support type : " + type);
+        }
+    }
+
+    /**
+     * 日時の値を {@link TemporalAccessor} に変換します。
+     * @param value 変換対象の値
+     * @return 日時でない場合は{@literal null}を返します。
+     */
+    private static TemporalAccessor toTemporal(final Object value) {
+
+        if(value instanceof Instant) {
+            return ((Instant) value).atZone(ZoneId.systemDefault());
+
+        } else if(value instanceof TemporalAccessor) {
+            return (TemporalAccessor) value;
+
+        } else if(value instanceof Date) {
+            // java.sql.Dateは、toInstant()をサポートしないため、エポックミリ秒から変換する。
+            return Instant.ofEpochMilli(((Date) value).getTime()).atZone(ZoneId.systemDefault());
+
+        } else if(value instanceof Calendar) {
+            final Calendar calendar = (Calendar) value;
+            return ZonedDateTime.ofInstant(calendar.toInstant(), calendar.getTimeZone().toZoneId());
+        }
+
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return pattern != null ? type.label + "," + pattern : type.label;
+    }
+
+    /**
+     * スレッドセーフでない {@link NumberFormat} を使い回すためのプール。
+     */
+    private static final class NumberFormatPool {
+
+        private final NumberFormat prototype;
+
+        private final Queue<NumberFormat> pool = new ConcurrentLinkedQueue<>();
+
+        private final AtomicInteger size = new AtomicInteger();
+
+        private NumberFormatPool(final NumberFormat prototype) {
+            this.prototype = prototype;
+        }
+
+        private NumberFormat borrow() {
+            final NumberFormat format = pool.poll();
+            if(format == null) {
+                return (NumberFormat) prototype.clone();
+            }
+
+            size.decrementAndGet();
+            return format;
+        }
+
+        private void release(final NumberFormat format) {
+            if(size.incrementAndGet() <= MAX_POOL_SIZE) {
+                pool.offer(format);
+            } else {
+                size.decrementAndGet();
+            }
+        }
+    }
+
+}
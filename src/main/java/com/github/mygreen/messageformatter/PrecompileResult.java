@@ -0,0 +1,88 @@
+package com.github.mygreen.messageformatter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * {@link MessageFormatter#precompile(java.util.Collection)}の結果。
+ * <p>コンパイルに失敗したメッセージを全て保持します。</p>
+ *
+ *
+ * @author T.TSUCHIE
+ *
+ */
+@ToString
+public class PrecompileResult {
+
+    /**
+     * コンパイルしたメッセージの件数。失敗した件数も含みます。
+     */
+    @Getter
+    private final int messageCount;
+
+    /**
+     * コンパイルに失敗したメッセージの情報
+     */
+    @Getter
+    private final List<Failure> failures;
+
+    /**
+     * インスタンスを作成します。
+     * @param messageCount コンパイルしたメッセージの件数
+     * @param failures コンパイルに失敗したメッセージの情報
+     */
+    PrecompileResult(final int messageCount, final List<Failure> failures) {
+        this.messageCount = messageCount;
+        this.failures = Collections.unmodifiableList(new ArrayList<>(failures));
+    }
+
+    /**
+     * 全てのメッセージのコンパイルに成功したかどうか判定します。
+     * @return {@literal true}のとき全て成功しています。
+     */
+    public boolean isSuccess() {
+        return failures.isEmpty();
+    }
+
+    /**
+     * コンパイルに失敗したメッセージの情報。
+     */
+    @ToString
+    @RequiredArgsConstructor(access = AccessLevel.PACKAGE)
+    public static class Failure {
+
+        /**
+         * メッセージコード
+         */
+        @Getter
+        private final String code;
+
+        /**
+         * ロケール
+         */
+        @Getter
+        private final Locale locale;
+
+        /**
+         * コンパイルに失敗したメッセージ
+         */
+        @Getter
+        private final String message;
+
+        /**
+         * 失敗した原因。
+         * {@link MessageParseException}や、EL式のパースに失敗した例外です。
+         */
+        @Getter
+        private final RuntimeException cause;
+
+    }
+
+}
@@ -0,0 +1,269 @@
+package com.github.mygreen.messageformatter;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+
+import org.springframework.context.NoSuchMessageException;
+import org.springframework.context.support.MessageSourceAccessor;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * メッセージコードとロケールに対するメッセージを取得し、コンパイルしておいたもの。
+ * <p>{@link MessageFormatter#prepare(String, Locale)}で作成します。
+ *    フォーマット時にメッセージソースからメッセージを取得しないため、頻繁に出力するメッセージを定数などに保持して使用します。</p>
+ * <pre class="highlight"><code class="java">
+ * PreparedMessage prepared = messageFormatter.prepare("message.hello", Locale.JAPANESE);
+ * String message = prepared.bind(Map.of("your_name", "Yamada Taro")).format();
+ * </code></pre>
+ * <p>{@link MessageFormatter#clearCache()}を呼び出した場合や、{@link MessageCodeCache#getCacheMillis(org.springframework.context.MessageSource)}の有効期間が過ぎた場合は、
+ *    次のフォーマット時にメッセージを取得し直します。</p>
+ * <p>複数のスレッドから同時に利用できます。</p>
+ *
+ *
+ * @author T.TSUCHIE
+ *
+ */
+public class PreparedMessage {
+
+    /**
+     * メッセージを組み立てフォーマットするクラス
+     */
+    private final MessageFormatter messageFormatter;
+
+    /**
+     * メッセージコード
+     */
+    @Getter
+    private final String code;
+
+    /**
+     * ロケール
+     */
+    @Getter
+    private final Locale locale;
+
+    /**
+     * メッセージ中のメッセージコードを解決するクラス
+     */
+    private final MessageSourceAccessor messageSourceAccessor;
+
+    /**
+     * 取得したメッセージとコンパイル結果
+     */
+    private volatile Resolved resolved;
+
+    /**
+     * インスタンスを作成します。
+     * <p>メッセージを取得し、コンパイルします。</p>
+     * @param messageFormatter メッセージを組み立てフォーマットするクラス
+     * @param code メッセージコード
+     * @param locale ロケール
+     * @throws NoSuchMessageException 指定したメッセージコードが見つからない場合
+     */
+    PreparedMessage(final MessageFormatter messageFormatter, final String code, final Locale locale) {
+        this.messageFormatter = messageFormatter;
+        this.code = code;
+        this.locale = locale;
+        this.messageSourceAccessor = new LocaleAwareMessageSourceAccessor(messageFormatter.getMessageSource(), locale);
+        this.resolved = resolve();
+    }
+
+    /**
+     * 取得したメッセージを取得します。
+     * @return メッセージ
+     * @throws NoSuchMessageException 取得し直す際に、メッセージコードが見つからない場合
+     */
+    public String getMessage() {
+        return current().message;
+    }
+
+    /**
+     * 取得したメッセージをコンパイルした結果を取得します。
+     * @return コンパイルしたメッセージ
+     * @throws NoSuchMessageException 取得し直す際に、メッセージコードが見つからない場合
+     */
+    public MessageTemplate getTemplate() {
+        return current().template;
+    }
+
+    /**
+     * メッセージ中の変数<code>{...}</code>にスロット番号を割り当てた、変数の値を保持するインスタンスを作成します。
+     * <p>{@link #bind(Map)}に渡すと、変数名を探索せずにスロット番号で値を参照します。
+     *    メッセージを取得し直してコンパイル結果が変わった後は、変数名で値を参照します。</p>
+     * <pre class="highlight"><code class="java">
+     * String message = prepared.bind(prepared.newParams().set("your_name", "Yamada Taro")).format();
+     * </code></pre>
+     * @return 変数の値を保持するインスタンス
+     */
+    public MessageParams newParams() {
+        return getTemplate().newParams();
+    }
+
+    /**
+     * 変数名に対するスロット番号を取得します。
+     * @param varName 変数名
+     * @return スロット番号。メッセージ中の変数<code>{...}</code>に存在しない場合は{@literal -1}を返します。
+     * @see MessageParams#set(int, Object)
+     */
+    public int getSlot(final String varName) {
+        return getTemplate().getSlot(varName);
+    }
+
+    /**
+     * メッセージ中の変数に対する値を指定します。
+     * @param vars メッセージ中の変数に対する値のマップ。コピーせずにそのまま参照します。
+     * @return フォーマットするためのインスタンス
+     */
+    public Binding bind(@NonNull final Map<String, ?> vars) {
+        return new Binding(this, vars);
+    }
+
+    /**
+     * 最新のメッセージとコンパイル結果を取得します。
+     * <p>キャッシュを削除した場合や、有効期間が過ぎた場合は取得し直します。
+     *    複数のスレッドから同時に取得し直すことがありますが、結果は同じになります。</p>
+     * @return 最新のメッセージとコンパイル結果
+     */
+    private Resolved current() {
+
+        final Resolved current = resolved;
+        final long cacheMillis = messageFormatter.getMessageInterpolator().getMessageCodeCache().getCacheMillis();
+        if(current.version == messageFormatter.getCacheVersion()
+                && MessageCodeCache.isValid(current.timestamp, cacheMillis < 0 ? current.sourceCacheMillis : cacheMillis,
+                        System.currentTimeMillis())) {
+            return current;
+        }
+
+        final Resolved updated = resolve();
+        this.resolved = updated;
+        return updated;
+    }
+
+    private Resolved resolve() {
+
+        // 取得前にバージョンを読み取り、取得中に削除された場合は次回取得し直す。
+        final long version = messageFormatter.getCacheVersion();
+        final long timestamp = System.currentTimeMillis();
+        final long sourceCacheMillis = messageFormatter.getMessageInterpolator().getMessageCodeCache()
+                .getCacheMillis(messageFormatter.getMessageSource());
+
+        final String message = MessageFormatter.lookupMessage(messageFormatter.getListener(),
+                messageSourceAccessor, code, locale);
+        final MessageTemplate template = messageFormatter.getMessageInterpolator().compile(message);
+
+        return new Resolved(version, timestamp, sourceCacheMillis, message, template);
+    }
+
+    /**
+     * フォーマットしたことをリスナーに通知します。
+     * @param listener リスナー。{@literal null}の場合は通知しません。
+     * @param start 開始時刻（ナノ秒）
+     */
+    private void notifyFormatted(final MessageFormatListener listener, final long start) {
+        if(listener != null) {
+            listener.onFormatted(code, locale, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 取得したメッセージとコンパイル結果。
+     */
+    @RequiredArgsConstructor
+    private static final class Resolved {
+
+        private final long version;
+
+        private final long timestamp;
+
+        /**
+         * 取得した時点の、メッセージソースに対するキャッシュの有効期間
+         */
+        private final long sourceCacheMillis;
+
+        private final String message;
+
+        private final MessageTemplate template;
+
+    }
+
+    /**
+     * 変数の値を指定した、フォーマットするためのクラス。
+     *
+     */
+    @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+    public static class Binding {
+
+        private final PreparedMessage prepared;
+
+        private final Map<String, ?> vars;
+
+        /**
+         * メッセージをフォーマットして値を取得します。
+         * <p>変換したメッセージに対しても再帰的に処理しません。</p>
+         * @return フォーマットしたメッセージ
+         */
+        public String format() {
+
+            final MessageFormatListener listener = prepared.messageFormatter.getListener();
+            final long start = listener != null ? System.nanoTime() : 0L;
+
+            final String result = prepared.messageFormatter.getMessageInterpolator()
+                    .interpolate(prepared.getTemplate(), vars, prepared.messageSourceAccessor);
+
+            prepared.notifyFormatted(listener, start);
+            return result;
+        }
+
+        /**
+         * メッセージをフォーマットして値を取得します。
+         * <p>変換したメッセージに対しても再帰的に処理します</p>
+         * @return フォーマットしたメッセージ
+         */
+        public String formatRecursively() {
+            return formatRecursively(0);
+        }
+
+        /**
+         * メッセージをフォーマットして値を取得します。
+         * <p>変換したメッセージに対しても再帰的に処理します</p>
+         * @param maxRecursion メッセージを再帰的に処理する最大回数。0以下を指定すると再帰回数の制限はありません。
+         * @return フォーマットしたメッセージ
+         */
+        public String formatRecursively(final int maxRecursion) {
+
+            final MessageFormatListener listener = prepared.messageFormatter.getListener();
+            final long start = listener != null ? System.nanoTime() : 0L;
+
+            final String result = prepared.messageFormatter.getMessageInterpolator()
+                    .interpolate(prepared.getTemplate(), vars, maxRecursion, prepared.messageSourceAccessor);
+
+            prepared.notifyFormatted(listener, start);
+            return result;
+        }
+
+        /**
+         * メッセージをフォーマットして、出力先に追加します。
+         * <p>変換したメッセージに対しても再帰的に処理しません。</p>
+         * <p>フォーマットしたメッセージを文字列として組み立てずに、出力先に直接追加します。</p>
+         * @param out フォーマットしたメッセージの出力先
+         * @throws IOException 出力先への追加に失敗した場合
+         */
+        public void formatTo(final Appendable out) throws IOException {
+
+            final MessageFormatListener listener = prepared.messageFormatter.getListener();
+            final long start = listener != null ? System.nanoTime() : 0L;
+
+            prepared.messageFormatter.getMessageInterpolator()
+                    .interpolateTo(out, prepared.getTemplate(), vars, prepared.messageSourceAccessor);
+
+            prepared.notifyFormatted(listener, start);
+        }
+
+    }
+
+}
@@ -11,8 +11,10 @@ import lombok.NonNull;
  * {@link Deque}に対するユーティリティクラス。
  *
  * @author T.TSUCHIE
+ * @deprecated {@link MessageInterpolator}はスタックを使用せずにメッセージを走査するようになったため、使用しません。
  *
  */
+@Deprecated
 @NoArgsConstructor(access = AccessLevel.PACKAGE)
 public class StackUtils {
 
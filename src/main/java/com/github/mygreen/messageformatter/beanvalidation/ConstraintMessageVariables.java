@@ -0,0 +1,126 @@
+package com.github.mygreen.messageformatter.beanvalidation;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.github.mygreen.messageformatter.LazyVariable;
+
+/**
+ * BeanValidationのメッセージ中で利用する変数のマップ。
+ * <p>制約ごとに共通の変数と、検証ごとの変数をコピーせずに重ねたビューです。変数は次の順に参照します。</p>
+ * <ol>
+ *   <li>{@link #put(String, Object)}で追加した変数。</li>
+ *   <li>制約ごとに共通の変数。アノテーションの属性やデフォルトのメッセージ。値が{@literal null}の場合は、次の変数を参照します。</li>
+ *   <li>検証ごとの変数。検証対象の値やプロパティのパスなど。</li>
+ * </ol>
+ * <p>変数の値が {@link LazyVariable} の場合は、参照されたときに値を作成して返します。</p>
+ *
+ *
+ * @author T.TSUCHIE
+ *
+ */
+class ConstraintMessageVariables extends AbstractMap<String, Object> {
+
+    /**
+     * 制約ごとに共通の変数。変更しません。
+     */
+    private final Map<String, Object> constraintVariables;
+
+    /**
+     * 検証ごとの変数
+     */
+    private final Map<String, Object> violationVariables;
+
+    /**
+     * 追加された変数。追加されるまでは作成しない。
+     */
+    private Map<String, Object> overrides;
+
+    /**
+     * インスタンスを作成します。
+     * @param constraintVariables 制約ごとに共通の変数。コピーせずにそのまま参照します。
+     * @param violationVariables 検証ごとの変数。コピーせずにそのまま参照します。
+     */
+    ConstraintMessageVariables(final Map<String, Object> constraintVariables, final Map<String, Object> violationVariables) {
+        this.constraintVariables = constraintVariables;
+        this.violationVariables = violationVariables;
+    }
+
+    @Override
+    public Object get(final Object key) {
+
+        if(overrides != null && overrides.containsKey(key)) {
+            return overrides.get(key);
+        }
+
+        final Object value = LazyVariable.unwrap(constraintVariables.get(key));
+        if(value != null) {
+            return value;
+        }
+
+        return LazyVariable.unwrap(violationVariables.get(key));
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return (overrides != null && overrides.containsKey(key))
+                || isDefined(constraintVariables, key)
+                || isDefined(violationVariables, key);
+    }
+
+    @Override
+    public Object put(final String key, final Object value) {
+
+        final Object previous = get(key);
+        if(overrides == null) {
+            overrides = new HashMap<>();
+        }
+        overrides.put(key, value);
+        return previous;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>全ての変数を列挙するため、{@link LazyVariable} の値も作成し、変数をコピーします。</p>
+     */
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+
+        final Map<String, Object> merged = new HashMap<>();
+        violationVariables.keySet().forEach(key -> {
+            if(isDefined(violationVariables, key)) {
+                merged.put(key, LazyVariable.unwrap(violationVariables.get(key)));
+            }
+        });
+        constraintVariables.keySet().forEach(key -> {
+            final Object value = LazyVariable.unwrap(constraintVariables.get(key));
+            if(value != null) {
+                merged.put(key, value);
+            }
+        });
+        if(overrides != null) {
+            merged.putAll(overrides);
+        }
+
+        return Collections.unmodifiableMap(merged).entrySet();
+    }
+
+    /**
+     * 変数が定義されているかどうか判定します。
+     * @param variables 変数のマップ
+     * @param key 変数名
+     * @return {@literal true}のとき定義されています。
+     */
+    private static boolean isDefined(final Map<String, Object> variables, final Object key) {
+
+        final Object value = variables.get(key);
+        if(value instanceof LazyVariable) {
+            return ((LazyVariable<?>) value).isDefined();
+        }
+        return value != null || variables.containsKey(key);
+    }
+
+}
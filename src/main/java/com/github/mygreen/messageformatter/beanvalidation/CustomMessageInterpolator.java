@@ -1,5 +1,6 @@
 package com.github.mygreen.messageformatter.beanvalidation;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
@@ -10,14 +11,16 @@ import javax.validation.metadata.ConstraintDescriptor;
 
 import org.hibernate.validator.internal.engine.MessageInterpolatorContext;
 import org.springframework.context.MessageSource;
-import org.springframework.context.NoSuchMessageException;
-import org.springframework.context.support.MessageSourceAccessor;
 import org.springframework.util.StringUtils;
 import org.springframework.validation.DefaultMessageCodesResolver;
 import org.springframework.validation.MessageCodesResolver;
 
+import com.github.mygreen.messageformatter.LazyVariable;
+import com.github.mygreen.messageformatter.LocaleAwareMessageSourceAccessor;
 import com.github.mygreen.messageformatter.MessageInterpolator;
+import com.github.mygreen.messageformatter.expression.ObjectCache;
 
+import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
@@ -52,7 +55,6 @@ public class CustomMessageInterpolator implements javax.validation.MessageInterp
     /**
      * プロパティ名のメッセージコードの候補を生成する。
      */
-    @Setter
     @Getter
     private MessageCodesResolver messageCodeResolver = new DefaultMessageCodesResolver();
 
@@ -65,22 +67,68 @@ public class CustomMessageInterpolator implements javax.validation.MessageInterp
     @Setter
     private String propertyNameCode = "propertyName";
 
+    /**
+     * プロパティの名称の解決結果のキャッシュ。
+     * キーは、ルートのBeanのクラス、プロパティのパス、プロパティの値のクラス、ロケール、プロパティ名のコード名。
+     * キャッシュの統計情報は、{@link ObjectCache#getStats()} で取得できます。
+     */
+    @Getter
+    private final ObjectCache<PropertyNameKey, Optional<String>> propertyNameCache = new ObjectCache<>();
+
+    /**
+     * 制約ごとに共通のメッセージ変数のキャッシュ。
+     * キーは、制約の情報とロケール。値は、アノテーションの属性とデフォルトのメッセージ。
+     */
+    @Getter
+    private final ObjectCache<ConstraintKey, Map<String, Object>> constraintVariablesCache = new ObjectCache<>();
+
+    /**
+     * プロパティ名のメッセージコードの候補を生成する処理を設定する。
+     * <p>プロパティの名称の解決結果のキャッシュは削除する。</p>
+     * @param messageCodeResolver プロパティ名のメッセージコードの候補を生成する処理
+     */
+    public void setMessageCodeResolver(final MessageCodesResolver messageCodeResolver) {
+        this.messageCodeResolver = messageCodeResolver;
+        clearPropertyNameCache();
+    }
+
+    /**
+     * プロパティの名称の解決結果のキャッシュを削除する。
+     * <p>メッセージソースの内容を再読み込みした際に呼び出す。</p>
+     */
+    public void clearPropertyNameCache() {
+        propertyNameCache.clear();
+    }
+
+    /**
+     * 全てのキャッシュを削除する。
+     * <p>メッセージソースの内容を再読み込みした際に呼び出す。</p>
+     */
+    public void clearCache() {
+        propertyNameCache.clear();
+        constraintVariablesCache.clear();
+    }
+
     @Override
     public String interpolate(final String messageTemplate, final Context context) {
         return messageInterpolator.interpolate(messageTemplate,
                 createMessageVariables(context, Locale.getDefault()),
-                0, new MessageSourceAccessor(messageSource));
+                0, new LocaleAwareMessageSourceAccessor(messageSource));
     }
 
     @Override
     public String interpolate(final String messageTemplate, final Context context, final Locale locale) {
         return messageInterpolator.interpolate(messageTemplate,
                 createMessageVariables(context, locale),
-                0, new MessageSourceAccessor(messageSource, locale));
+                0, new LocaleAwareMessageSourceAccessor(messageSource, locale));
     }
 
     /**
      * メッセージ中で利用可能な変数を作成する
+     * <p>アノテーションの属性とデフォルトのメッセージは、制約とロケールごとに {@link #getConstraintVariablesCache()} にキャッシュし、
+     *    検証ごとの変数と重ねて参照する。</p>
+     * <p>プロパティの名称、検証対象の値は {@link LazyVariable} として設定し、メッセージ中で参照されたときに作成する。
+     *    検証対象の値が{@literal null}の場合は、変数が定義されていないものとして扱う。</p>
      * @param context コンテキスト
      * @param locale ロケール
      * @return メッセージ変数のマップ
@@ -97,61 +145,108 @@ public class CustomMessageInterpolator implements javax.validation.MessageInterp
             Path path = mic.getPropertyPath();
             vars.put("propertyPath", path.toString());
 
-            resolvePropertyName(mic, locale).ifPresent(name -> vars.put("propertyName", name));
+            // プロパティの名称は、メッセージ中で参照されたときに解決する
+            vars.put("propertyName", LazyVariable.<String>ofOptional(() -> resolvePropertyName(mic, locale)));
         }
 
+        // 検証対象の値。値がnullの場合は、変数を定義しない。
+        vars.computeIfAbsent("validatedValue",
+                key -> LazyVariable.<Object>ofOptional(() -> Optional.ofNullable(context.getValidatedValue())));
+
         final ConstraintDescriptor<?> descriptor = context.getConstraintDescriptor();
-        for(Map.Entry<String, Object> entry : descriptor.getAttributes().entrySet()) {
-            final String attrName = entry.getKey();
-            final Object attrValue = entry.getValue();
+        final Map<String, Object> constraintVars = constraintVariablesCache.get(new ConstraintKey(descriptor, locale),
+                key -> createConstraintVariables(descriptor, locale));
 
-            vars.put(attrName, attrValue);
-        }
+        return new ConstraintMessageVariables(constraintVars, vars);
 
-        // 検証対象の値
-        vars.computeIfAbsent("validatedValue", key -> context.getValidatedValue());
+    }
 
-        // デフォルトのメッセージ
-        final String defaultCode = String.format("%s.message", descriptor.getAnnotation().annotationType().getCanonicalName());
-        final String defaultMessage = messageSource.getMessage(defaultCode, null, locale);
+    /**
+     * 制約ごとに共通の変数を作成する。
+     * <p>アノテーションの属性と、デフォルトのメッセージを含む。
+     *    デフォルトのメッセージは {@link LazyVariable} として設定し、メッセージ中で参照されたときに取得する。</p>
+     * @param descriptor 制約の情報
+     * @param locale ロケール
+     * @return 変更できないメッセージ変数のマップ
+     */
+    protected Map<String, Object> createConstraintVariables(final ConstraintDescriptor<?> descriptor, final Locale locale) {
 
-        vars.put(defaultCode, defaultMessage);
+        final Map<String, Object> vars = new HashMap<>(descriptor.getAttributes());
 
-        return vars;
+        // デフォルトのメッセージ
+        final String defaultCode = String.format("%s.message", descriptor.getAnnotation().annotationType().getCanonicalName());
+        vars.put(defaultCode, LazyVariable.of(() -> messageSource.getMessage(defaultCode, null, locale)));
 
+        return Collections.unmodifiableMap(vars);
     }
 
     /**
      * プロパティの名称をメッセージソースから解決する。
      * <p>{@link MessageCodesResolver} で生成したコードを元に取得する。
+     * <p>解決結果は、見つからなかった場合も含めて {@link #getPropertyNameCache()} にキャッシュする。</p>
      * @param context コンテキスト
      * @param locale ロケール
      * @return プロパティの名称。解決できない場合は空を返す。
      */
     protected Optional<String> resolvePropertyName(final MessageInterpolatorContext context, final Locale locale) {
 
-        final String objectName = context.getRootBeanType().getSimpleName();
+        final Class<?> rootBeanType = context.getRootBeanType();
         final String field = context.getPropertyPath().toString();
         final Class<?> fieldType = context.getValidatedValue() != null ? context.getValidatedValue().getClass() : null;
 
+        final PropertyNameKey key = new PropertyNameKey(rootBeanType, field, fieldType, locale, propertyNameCode);
+        return propertyNameCache.get(key, k -> resolvePropertyName(rootBeanType.getSimpleName(), field, fieldType, locale));
+    }
+
+    private Optional<String> resolvePropertyName(final String objectName, final String field, final Class<?> fieldType,
+            final Locale locale) {
+
         String[] codes = messageCodeResolver.resolveMessageCodes(propertyNameCode, objectName, field, fieldType);
 
         for(String code : codes) {
-            try {
-                String result = messageSource.getMessage(code, null, locale);
-                if(StringUtils.hasLength(result)) {
-                    return Optional.of(result);
-                }
-            } catch(NoSuchMessageException e) {
-                /*
-                 * MessageSource#setUseCodeAsDefaultMessageの設定によって、
-                 * 対応するコードが見つからない場合、例外が発生するか戻り値がnullになったりする。
-                 */
-                continue;
+            /*
+             * 対応するコードが見つからない場合、例外を発生させずにnullを返すよう、デフォルトメッセージを指定する。
+             * MessageSource#setUseCodeAsDefaultMessageの設定によっては、コードがそのまま返る。
+             */
+            String result = messageSource.getMessage(code, null, null, locale);
+            if(StringUtils.hasLength(result)) {
+                return Optional.of(result);
             }
         }
 
         return Optional.empty();
     }
 
+    /**
+     * 制約ごとに共通のメッセージ変数のキャッシュのキー。
+     */
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    protected static final class ConstraintKey {
+
+        private final ConstraintDescriptor<?> descriptor;
+
+        private final Locale locale;
+
+    }
+
+    /**
+     * プロパティの名称の解決結果のキャッシュのキー。
+     */
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    protected static final class PropertyNameKey {
+
+        private final Class<?> rootBeanType;
+
+        private final String propertyPath;
+
+        private final Class<?> fieldType;
+
+        private final Locale locale;
+
+        private final String propertyNameCode;
+
+    }
+
 }
@@ -0,0 +1,101 @@
+package com.github.mygreen.messageformatter.expression;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * {@link ObjectCache}の統計情報のスナップショットです。
+ * <p>{@link ObjectCache#getStats()}で取得した時点の値を保持する、不変なクラスです。</p>
+ * <p>1回の参照で発生したミスと値の作成などは、まとめて記録したものを読み取るため、
+ *    他のスレッドが同時にキャッシュを更新していても、{@link #getHitRate()}や{@link #minus(CacheStats)}の結果が矛盾することはありません。
+ *    ただし、全てのスレッドを止めて取得するわけではないため、取得中に完了した参照は含まれないことがあります。</p>
+ * <p>各値はキャッシュを作成してからの累計です。
+ *    一定期間の値を求めるときは、{@link #minus(CacheStats)}で差分を取ります。</p>
+ *
+ *
+ * @author T.TSUCHIE
+ *
+ */
+@ToString
+@RequiredArgsConstructor
+public class CacheStats {
+
+    /**
+     * キャッシュから値を取得できた回数
+     */
+    @Getter
+    private final long hitCount;
+
+    /**
+     * キャッシュに値が存在しなかった回数
+     */
+    @Getter
+    private final long missCount;
+
+    /**
+     * キャッシュに存在しない値を作成した回数
+     */
+    @Getter
+    private final long loadCount;
+
+    /**
+     * キャッシュに存在しない値の作成に失敗した回数
+     */
+    @Getter
+    private final long loadFailureCount;
+
+    /**
+     * キャッシュに存在しない値の作成にかかった時間の合計（ナノ秒）
+     */
+    @Getter
+    private final long totalLoadTime;
+
+    /**
+     * 最大個数を超えたためにキャッシュから削除した回数
+     */
+    @Getter
+    private final long evictionCount;
+
+    /**
+     * キャッシュの参照回数を取得します。
+     * @return キャッシュから値を取得できた回数と存在しなかった回数の合計。
+     */
+    public long getRequestCount() {
+        return hitCount + missCount;
+    }
+
+    /**
+     * キャッシュのヒット率を取得します。
+     * @return 0から1の範囲のヒット率。参照されていないときは1を返します。
+     */
+    public double getHitRate() {
+        final long requestCount = getRequestCount();
+        return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+    }
+
+    /**
+     * 値の作成1回あたりにかかった平均時間（ナノ秒）を取得します。
+     * @return 値の作成にかかった平均時間。作成していないときは0を返します。
+     */
+    public double getAverageLoadPenalty() {
+        final long totalLoadCount = loadCount + loadFailureCount;
+        return totalLoadCount == 0 ? 0.0 : (double) totalLoadTime / totalLoadCount;
+    }
+
+    /**
+     * 引数で指定した統計情報との差分を取得します。
+     * @param other 差し引く統計情報。通常は、このインスタンスより前に取得したもの。
+     * @return 差分の統計情報。負の値は0になります。
+     */
+    public CacheStats minus(final CacheStats other) {
+        return new CacheStats(
+                Math.max(0, hitCount - other.hitCount),
+                Math.max(0, missCount - other.missCount),
+                Math.max(0, loadCount - other.loadCount),
+                Math.max(0, loadFailureCount - other.loadFailureCount),
+                Math.max(0, totalLoadTime - other.totalLoadTime),
+                Math.max(0, evictionCount - other.evictionCount));
+    }
+
+}
@@ -1,9 +1,10 @@
 package com.github.mygreen.messageformatter.expression;
 
-import java.util.Arrays;
+import java.lang.reflect.Array;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
@@ -38,28 +39,42 @@ public class CustomFunctions {
 
     /**
      * 配列やコレクションの値を結合する。
+     * <p>結合の対象には、配列（プリミティブ型の配列を含む）、{@link Iterable}、{@link Iterator}、{@link Stream}、
+     *    {@link CharSequence}を指定できます。プリミティブ型の配列は、要素をボクシングせずに結合します。</p>
+     * <p>{@link Iterator}と{@link Stream}は、結合すると要素を全て消費します。
+     *    {@link CharSequence}は、1つの要素として扱います。</p>
      * @param value 結合対象の配列
      * @param delimiter 区切り文字
      * @return 結合した文字列を返す。結合の対象の配列がnulの場合、空文字を返す。
+     * @throws IllegalArgumentException サポートしていない型の場合。
      */
-    @SuppressWarnings("rawtypes")
     public static String join(final Object value, final String delimiter) {
 
         if(value == null) {
             return "";
         }
 
+        final String separator = defaultString(delimiter);
         if(value instanceof Collection) {
-            return join((Collection)value, delimiter);
+            final Collection<?> collection = (Collection<?>) value;
+            return collection.isEmpty() ? "" : join(collection.iterator(), collection.size(), separator);
 
         } else if(value.getClass().isArray()) {
-            Class<?> componentType = value.getClass().getComponentType();
-            if(componentType.equals(Integer.TYPE)) {
-                return join((int[])value, delimiter);
-            } else {
-                return join((Object[])value, delimiter);
+            return joinArray(value, separator);
+
+        } else if(value instanceof Iterable) {
+            return join(((Iterable<?>) value).iterator(), 0, separator);
+
+        } else if(value instanceof Iterator) {
+            return join((Iterator<?>) value, 0, separator);
+
+        } else if(value instanceof Stream) {
+            try(Stream<?> stream = (Stream<?>) value) {
+                return join(stream.iterator(), 0, separator);
             }
 
+        } else if(value instanceof CharSequence) {
+            return value.toString();
         }
 
         throw new IllegalArgumentException(String.format("arg type ('%s') is not support.", value.getClass()));
@@ -67,65 +82,131 @@ public class CustomFunctions {
     }
 
     /**
-     * int型の配列の値を結合する。
-     * @param array 結合対象の配列
-     * @param delimiter 区切り文字
-     * @return 結合した文字列を返す。結合の対象の配列がnulの場合、空文字を返す。
+     * 要素の値を結合する。
+     * @param iterator 結合対象の要素
+     * @param size 要素数。不明な場合は0。
+     * @param separator 区切り文字
+     * @return 結合した文字列
      */
-    private static String join(final int[] array, final String delimiter) {
+    private static String join(final Iterator<?> iterator, final int size, final String separator) {
 
-        if(array == null || array.length == 0) {
+        if(!iterator.hasNext()) {
             return "";
         }
 
-        return Arrays.stream(array)
-                .boxed()
-                .map(String::valueOf)
-                .collect(Collectors.joining(defaultString(delimiter)));
+        final StringBuilder sb = new StringBuilder(capacity(size > 0 ? size : 16, 8, separator));
+        sb.append(iterator.next());
+        while(iterator.hasNext()) {
+            sb.append(separator).append(iterator.next());
+        }
+
+        return sb.toString();
     }
 
     /**
      * 配列の値を結合する。
+     * <p>プリミティブ型の配列は、型ごとにボクシングせずに追加する。</p>
      * @param array 結合対象の配列
-     * @param delimiter 区切り文字
-     * @return 結合した文字列を返す。結合の対象の配列がnulの場合、空文字を返す。
+     * @param separator 区切り文字
+     * @return 結合した文字列
      */
-    private static String join(final Object[] array, final String delimiter) {
+    private static String joinArray(final Object array, final String separator) {
 
-        if(array == null || array.length == 0) {
+        final int length = Array.getLength(array);
+        if(length == 0) {
             return "";
         }
 
-        return Arrays.stream(array)
-                .map(Object::toString)
-                .collect(Collectors.joining(defaultString(delimiter)));
-    }
+        final Class<?> componentType = array.getClass().getComponentType();
+        final StringBuilder sb;
+        if(componentType == int.class) {
+            final int[] values = (int[]) array;
+            sb = new StringBuilder(capacity(length, 11, separator)).append(values[0]);
+            for(int i=1; i < length; i++) {
+                sb.append(separator).append(values[i]);
+            }
 
-    /**
-     * コレクションの値を結合する。
-     * @param collection 結合対象のコレクション
-     * @param delimiter 区切り文字
-     * @return 結合した文字列を返す。結合の対象のコレクションがnulの場合、空文字を返す。
-     */
-    private static String join(final Collection<?> collection, final String delimiter) {
+        } else if(componentType == long.class) {
+            final long[] values = (long[]) array;
+            sb = new StringBuilder(capacity(length, 20, separator)).append(values[0]);
+            for(int i=1; i < length; i++) {
+                sb.append(separator).append(values[i]);
+            }
 
-        if(collection == null || collection.isEmpty()) {
-            return "";
+        } else if(componentType == double.class) {
+            final double[] values = (double[]) array;
+            sb = new StringBuilder(capacity(length, 16, separator)).append(values[0]);
+            for(int i=1; i < length; i++) {
+                sb.append(separator).append(values[i]);
+            }
+
+        } else if(componentType == float.class) {
+            final float[] values = (float[]) array;
+            sb = new StringBuilder(capacity(length, 12, separator)).append(values[0]);
+            for(int i=1; i < length; i++) {
+                sb.append(separator).append(values[i]);
+            }
+
+        } else if(componentType == short.class) {
+            final short[] values = (short[]) array;
+            sb = new StringBuilder(capacity(length, 6, separator)).append(values[0]);
+            for(int i=1; i < length; i++) {
+                sb.append(separator).append(values[i]);
+            }
+
+        } else if(componentType == byte.class) {
+            final byte[] values = (byte[]) array;
+            sb = new StringBuilder(capacity(length, 4, separator)).append(values[0]);
+            for(int i=1; i < length; i++) {
+                sb.append(separator).append(values[i]);
+            }
+
+        } else if(componentType == char.class) {
+            final char[] values = (char[]) array;
+            sb = new StringBuilder(capacity(length, 1, separator)).append(values[0]);
+            for(int i=1; i < length; i++) {
+                sb.append(separator).append(values[i]);
+            }
+
+        } else if(componentType == boolean.class) {
+            final boolean[] values = (boolean[]) array;
+            sb = new StringBuilder(capacity(length, 5, separator)).append(values[0]);
+            for(int i=1; i < length; i++) {
+                sb.append(separator).append(values[i]);
+            }
+
+        } else {
+            final Object[] values = (Object[]) array;
+            sb = new StringBuilder(capacity(length, 8, separator)).append(values[0]);
+            for(int i=1; i < length; i++) {
+                sb.append(separator).append(values[i]);
+            }
         }
 
-        return collection.stream()
-                .map(Object::toString)
-                .collect(Collectors.joining(defaultString(delimiter)));
+        return sb.toString();
+    }
+
+    /**
+     * 結合した文字列の長さを見積もる。
+     * @param size 要素数
+     * @param elementLength 要素の文字列の長さの目安
+     * @param separator 区切り文字
+     * @return バッファの初期容量
+     */
+    private static int capacity(final int size, final int elementLength, final String separator) {
+        final long capacity = (long) size * (elementLength + separator.length());
+        return (int) Math.min(capacity, 1 << 16);
     }
 
     /**
      * 引数が空かどうか判定する。
      * <p>文字列の場合は長さが0かどうか判定する。</p>
+     * <p>配列（プリミティブ型の配列を含む）、{@link Iterable}、{@link Iterator}、{@link Stream}は、要素がないかどうか判定します。
+     *    {@link Stream}は、判定すると消費されます。</p>
      *
      * @param value 判定対象の値
      * @return 空の場合はtrueを返します。
      */
-    @SuppressWarnings("rawtypes")
     public static boolean empty(final Object value) {
 
         if(value == null) {
@@ -136,13 +217,24 @@ public class CustomFunctions {
             return ((CharSequence) value).length() == 0;
 
         } else if(value instanceof Collection) {
-            return ((Collection) value).isEmpty();
+            return ((Collection<?>) value).isEmpty();
 
         } else if(value instanceof Map) {
-            return ((Map) value).isEmpty();
+            return ((Map<?, ?>) value).isEmpty();
 
         } else if(value.getClass().isArray()) {
-            return ((Object[]) value).length == 0;
+            return Array.getLength(value) == 0;
+
+        } else if(value instanceof Iterable) {
+            return !((Iterable<?>) value).iterator().hasNext();
+
+        } else if(value instanceof Iterator) {
+            return !((Iterator<?>) value).hasNext();
+
+        } else if(value instanceof Stream) {
+            try(Stream<?> stream = (Stream<?>) value) {
+                return !stream.findAny().isPresent();
+            }
         }
 
         return value.toString().isEmpty();
@@ -152,11 +244,12 @@ public class CustomFunctions {
     /**
      * 引数の値のサイズを取得します。
      * <p>文字列の場合は文字長を返します。</p>
+     * <p>配列（プリミティブ型の配列を含む）、{@link Iterable}、{@link Iterator}、{@link Stream}は、要素数を返します。
+     *    {@link Iterator}と{@link Stream}は、要素数を数えると要素を全て消費します。</p>
      *
      * @param value 取得対象の値。
      * @return nullの場合は0を返します。
      */
-    @SuppressWarnings("rawtypes")
     public static int size(final Object value) {
 
         if(value == null) {
@@ -167,17 +260,37 @@ public class CustomFunctions {
             return ((CharSequence) value).length();
 
         } else if(value instanceof Collection) {
-            return ((Collection) value).size();
+            return ((Collection<?>) value).size();
 
         } else if(value instanceof Map) {
-            return ((Map) value).size();
+            return ((Map<?, ?>) value).size();
 
         } else if(value.getClass().isArray()) {
-            return ((Object[]) value).length;
+            return Array.getLength(value);
+
+        } else if(value instanceof Iterable) {
+            return count(((Iterable<?>) value).iterator());
+
+        } else if(value instanceof Iterator) {
+            return count((Iterator<?>) value);
+
+        } else if(value instanceof Stream) {
+            try(Stream<?> stream = (Stream<?>) value) {
+                return (int) Math.min(stream.count(), Integer.MAX_VALUE);
+            }
         }
 
         return value.toString().length();
 
     }
 
+    private static int count(final Iterator<?> iterator) {
+        int count = 0;
+        while(iterator.hasNext()) {
+            iterator.next();
+            count++;
+        }
+        return count;
+    }
+
 }
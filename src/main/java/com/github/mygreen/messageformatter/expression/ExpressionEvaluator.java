@@ -22,4 +22,25 @@ public interface ExpressionEvaluator {
      * @throws ExpressionException 式のパースや評価に失敗した場合にスローされます。
      */
     Object evaluate(String expression, Map<String, Object> variables);
+
+    /**
+     * 引数で与えた式をパースします。
+     * <p>パースした式は、変数を変えて繰り返し評価することができます。</p>
+     * <p>デフォルトの実装では、評価の度に {@link #evaluate(String, Map)} を呼び出します。</p>
+     * @param expression パース対象の式。
+     * @return パースした式。
+     * @throws ExpressionException 式のパースに失敗した場合にスローされます。
+     */
+    default ParsedExpression parse(String expression) {
+        return variables -> evaluate(expression, variables);
+    }
+
+    /**
+     * EL式のパースと評価を通知するリスナーを設定します。
+     * <p>デフォルトの実装では、リスナーに通知しないため何もしません。</p>
+     * @param listener リスナー。{@literal null}の場合は通知しません。
+     */
+    default void setExpressionListener(ExpressionListener listener) {
+        // 何もしない
+    }
 }
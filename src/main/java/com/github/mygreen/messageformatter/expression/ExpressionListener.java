@@ -0,0 +1,40 @@
+package com.github.mygreen.messageformatter.expression;
+
+/**
+ * EL式のパースと評価を通知するリスナー。
+ * <p>{@link ExpressionEvaluator#setExpressionListener(ExpressionListener)} で登録します。
+ *    登録していない場合は、処理時間の計測も行いません。</p>
+ * <p>複数のスレッドから同時に呼び出されるため、実装はスレッドセーフでなければなりません。
+ *    また、メッセージの処理中に呼び出されるため、時間のかかる処理を行ってはいけません。</p>
+ * <p>全てのメソッドは、デフォルトでは何もしません。必要なメソッドのみ実装します。</p>
+ *
+ *
+ * @author T.TSUCHIE
+ *
+ */
+public interface ExpressionListener {
+
+    /**
+     * EL式をパースしたときに呼び出されます。
+     * @param expression EL式
+     * @param cacheHit パースした式をキャッシュから取得できたかどうか
+     * @param nanos キャッシュの参照とパースにかかった時間（ナノ秒）
+     */
+    default void onExpressionParsed(String expression, boolean cacheHit, long nanos) {
+        // 何もしない
+    }
+
+    /**
+     * EL式を評価したときに呼び出されます。
+     * <p>評価に失敗した場合は呼び出されません。</p>
+     * @param expression EL式
+     * @param cacheHit パース済みの式を使用して評価したかどうか。
+     *        {@link ExpressionEvaluator#evaluate(String, java.util.Map)}で評価し、パースした式がキャッシュに存在しなかった場合は{@literal false}。
+     *        コンパイル済みのメッセージ中のEL式など、{@link ExpressionEvaluator#parse(String)}で取得した式を評価した場合は{@literal true}。
+     * @param nanos 評価にかかった時間（ナノ秒）。パースにかかった時間は含みません。
+     */
+    default void onExpressionEvaluated(String expression, boolean cacheHit, long nanos) {
+        // 何もしない
+    }
+
+}
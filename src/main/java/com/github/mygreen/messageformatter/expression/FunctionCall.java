@@ -0,0 +1,276 @@
+package com.github.mygreen.messageformatter.expression;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import lombok.Getter;
+
+/**
+ * 引数がリテラルか {@link PropertyPath} のみで構成される、カスタム関数の呼び出しのEL式。
+ * <p><code>#join(#list, ', ')</code>や<code>f:join(list, ', ')</code>などの式を、EL式の評価エンジンを使わずに、
+ *    {@link FunctionRegistry} の {@link java.lang.invoke.MethodHandle} で関数を呼び出して評価します。</p>
+ * <p>引数を評価できない場合や、引数の型を変換する必要がある場合は、評価せずに{@link PropertyPath#UNRESOLVED}を返します。
+ *    呼び出し元は、EL式の評価エンジンで評価し直します。</p>
+ *
+ *
+ * @author T.TSUCHIE
+ *
+ */
+final class FunctionCall {
+
+    /**
+     * 名前空間。SpELの場合は{@literal null}。
+     */
+    @Getter
+    private final String namespace;
+
+    /**
+     * 関数名
+     */
+    @Getter
+    private final String name;
+
+    /**
+     * 引数。リテラルの値か、{@link PropertyPath}。
+     */
+    private final Object[] arguments;
+
+    private FunctionCall(final String namespace, final String name, final Object[] arguments) {
+        this.namespace = namespace;
+        this.name = name;
+        this.arguments = arguments;
+    }
+
+    /**
+     * SpELの式<code>#func(arg, ...)</code>を解析します。
+     * @param expression EL式
+     * @return 単純な関数の呼び出しでない場合は{@literal null}を返します。
+     */
+    static FunctionCall parseSpel(final String expression) {
+        if(expression.length() < 2 || expression.charAt(0) != '#') {
+            return null;
+        }
+
+        final int open = expression.indexOf('(');
+        if(open < 0 || !isIdentifier(expression, 1, open)) {
+            return null;
+        }
+
+        final Object[] arguments = parseArguments(expression, open, true);
+        return arguments != null ? new FunctionCall(null, expression.substring(1, open), arguments) : null;
+    }
+
+    /**
+     * JEXLの式<code>ns:func(arg, ...)</code>を解析します。
+     * @param expression EL式
+     * @return 単純な関数の呼び出しでない場合は{@literal null}を返します。
+     */
+    static FunctionCall parseJexl(final String expression) {
+
+        final int colon = expression.indexOf(':');
+        final int open = expression.indexOf('(');
+        if(colon < 0 || open < colon || !isIdentifier(expression, 0, colon) || !isIdentifier(expression, colon+1, open)) {
+            return null;
+        }
+
+        final Object[] arguments = parseArguments(expression, open, false);
+        return arguments != null
+                ? new FunctionCall(expression.substring(0, colon), expression.substring(colon+1, open), arguments) : null;
+    }
+
+    private static boolean isIdentifier(final String expression, final int start, final int end) {
+        if(start >= end || !Character.isJavaIdentifierStart(expression.charAt(start))) {
+            return false;
+        }
+
+        for(int i=start+1; i < end; i++) {
+            if(!Character.isJavaIdentifierPart(expression.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 括弧内の引数を解析します。
+     * @param expression EL式
+     * @param open 開き括弧の位置
+     * @param spel SpELの式かどうか
+     * @return 引数。解析できない場合は{@literal null}を返します。
+     */
+    private static Object[] parseArguments(final String expression, final int open, final boolean spel) {
+
+        final int close = expression.length() - 1;
+        if(expression.charAt(close) != ')') {
+            return null;
+        }
+
+        final List<Object> arguments = new ArrayList<>();
+        int index = open + 1;
+        while(index < close) {
+
+            // 文字列リテラル中の区切り文字は無視して、引数の終わりを探す。
+            int end = index;
+            while(end < close && expression.charAt(end) != ',') {
+                final char c = expression.charAt(end);
+                if(c == '\'' || (!spel && c == '"')) {
+                    final int quote = expression.indexOf(c, end + 1);
+                    if(quote < 0 || quote >= close) {
+                        return null;
+                    }
+                    end = quote;
+                }
+                end++;
+            }
+
+            final Object argument = parseArgument(expression.substring(index, end).trim(), spel);
+            if(argument == null) {
+                return null;
+            }
+            arguments.add(argument);
+
+            index = end + 1;
+            if(end < close && index >= close) {
+                // 末尾が区切り文字の場合
+                return null;
+            }
+        }
+
+        return arguments.toArray();
+    }
+
+    /**
+     * 引数を解析します。
+     * @param argument 引数の文字列
+     * @param spel SpELの式かどうか
+     * @return 引数の値か{@link PropertyPath}。リテラルの{@literal null}は{@link Literal#NULL}。解析できない場合は{@literal null}を返します。
+     */
+    private static Object parseArgument(final String argument, final boolean spel) {
+
+        if(argument.isEmpty()) {
+            return null;
+        }
+
+        final char first = argument.charAt(0);
+        if(first == '\'' || (!spel && first == '"')) {
+            // エスケープを含むリテラルは対象外とする。
+            if(argument.length() < 2 || argument.charAt(argument.length() - 1) != first) {
+                return null;
+            }
+
+            final String text = argument.substring(1, argument.length() - 1);
+            if(text.indexOf(first) >= 0 || text.indexOf('\\') >= 0) {
+                return null;
+            }
+            return new Literal(text);
+        }
+
+        if(argument.equals("null")) {
+            return Literal.NULL;
+        } else if(argument.equals("true")) {
+            return new Literal(Boolean.TRUE);
+        } else if(argument.equals("false")) {
+            return new Literal(Boolean.FALSE);
+        }
+
+        if(first == '-' || Character.isDigit(first)) {
+            try {
+                return new Literal(Integer.valueOf(argument));
+            } catch(NumberFormatException e) {
+                return null;
+            }
+        }
+
+        return spel ? PropertyPath.parseSpel(argument) : PropertyPath.parseJexl(argument);
+    }
+
+    /**
+     * 引数を評価して、関数を呼び出します。
+     * @param function 呼び出す関数
+     * @param variables 式中で利用可な変数。
+     * @return 関数の戻り値。評価できなかった場合は{@link PropertyPath#UNRESOLVED}を返します。
+     * @throws RuntimeException 関数が例外をスローした場合
+     */
+    Object evaluate(final FunctionRegistry.Function function, final Map<String, Object> variables) {
+
+        if(function.getArity() != arguments.length) {
+            return PropertyPath.UNRESOLVED;
+        }
+
+        // よく使う引数の個数は、配列を作成せずに呼び出す。
+        switch(arguments.length) {
+            case 0:
+                return function.invoke0();
+
+            case 1: {
+                final Object arg0 = evaluateArgument(0, function, variables);
+                if(arg0 == PropertyPath.UNRESOLVED) {
+                    return PropertyPath.UNRESOLVED;
+                }
+                return function.invoke1(arg0);
+            }
+
+            case 2: {
+                final Object arg0 = evaluateArgument(0, function, variables);
+                if(arg0 == PropertyPath.UNRESOLVED) {
+                    return PropertyPath.UNRESOLVED;
+                }
+                final Object arg1 = evaluateArgument(1, function, variables);
+                if(arg1 == PropertyPath.UNRESOLVED) {
+                    return PropertyPath.UNRESOLVED;
+                }
+                return function.invoke2(arg0, arg1);
+            }
+
+            default:
+                break;
+        }
+
+        final Object[] values = new Object[arguments.length];
+        for(int i=0; i < arguments.length; i++) {
+            final Object value = evaluateArgument(i, function, variables);
+            if(value == PropertyPath.UNRESOLVED) {
+                return PropertyPath.UNRESOLVED;
+            }
+            values[i] = value;
+        }
+
+        return function.invoke(values);
+    }
+
+    /**
+     * 引数を評価し、関数に変換せずに渡せるか判定します。
+     * @param index 引数の位置
+     * @param function 呼び出す関数
+     * @param variables 式中で利用可な変数。
+     * @return 引数の値。評価できない場合や変換せずに渡せない場合は{@link PropertyPath#UNRESOLVED}を返します。
+     */
+    private Object evaluateArgument(final int index, final FunctionRegistry.Function function,
+            final Map<String, Object> variables) {
+
+        final Object argument = arguments[index];
+        final Object value = argument instanceof PropertyPath
+                ? ((PropertyPath) argument).evaluate(variables) : ((Literal) argument).value;
+        if(value == PropertyPath.UNRESOLVED || !function.isApplicable(index, value)) {
+            return PropertyPath.UNRESOLVED;
+        }
+
+        return value;
+    }
+
+    /**
+     * リテラルの引数
+     */
+    private static final class Literal {
+
+        private static final Literal NULL = new Literal(null);
+
+        private final Object value;
+
+        private Literal(final Object value) {
+            this.value = value;
+        }
+    }
+
+}
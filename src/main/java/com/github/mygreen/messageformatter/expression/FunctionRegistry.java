@@ -0,0 +1,287 @@
+package com.github.mygreen.messageformatter.expression;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.util.ClassUtils;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * EL式中で使用するカスタム関数を、{@link MethodHandle}として呼び出すためのレジストリ。
+ * <p>カスタム関数のマップを参照し、関数ごとに {@link MethodHandle} を作成してキャッシュします。
+ *    リフレクションの{@link Method#invoke(Object, Object...)}と異なり、引数の配列を作成せずに呼び出します。</p>
+ * <p>引数が4個までの関数は、引数の個数ごとに型を固定した {@link MethodHandle} で呼び出します。
+ *    {@link Function#invoke1(Object)}などの引数の個数ごとのメソッドを使うと、引数の配列も作成せずに呼び出せます。
+ *    可変長引数の関数は対象外です。</p>
+ * <p>複数のスレッドから同時に利用できます。</p>
+ *
+ *
+ * @author T.TSUCHIE
+ *
+ */
+public class FunctionRegistry {
+
+    /**
+     * 引数の個数ごとに型を固定して呼び出す、最大の引数の個数
+     */
+    private static final int MAX_SPECIALIZED_ARITY = 4;
+
+    /**
+     * 関数名とメソッドのマップ。コピーせずに参照するため、追加した関数も反映されます。
+     */
+    @Getter
+    private final Map<String, Method> functions;
+
+    /**
+     * メソッドごとの呼び出し用の関数。
+     */
+    private final Map<Method, Function> cache = new ConcurrentHashMap<>();
+
+    /**
+     * カスタム関数のマップを指定してインスタンスを作成します。
+     * @param functions 関数名とメソッドのマップ。コピーせずに参照します。
+     */
+    public FunctionRegistry(@NonNull final Map<String, Method> functions) {
+        this.functions = functions;
+    }
+
+    /**
+     * ユーティリティクラスのstaticメソッドを関数として登録したインスタンスを作成します。
+     * @param targetClass 抽出対象のクラス。
+     * @param prefix メソッドの接頭語(指定しない場合はnull)
+     * @return カスタム関数のレジストリ
+     * @see StaticMethodMapCreator#create(Class, String)
+     */
+    public static FunctionRegistry of(final Class<?> targetClass, final String prefix) {
+        return new FunctionRegistry(new ConcurrentHashMap<>(StaticMethodMapCreator.create(targetClass, prefix)));
+    }
+
+    /**
+     * 関数名に対する呼び出し用の関数を取得します。
+     * @param name 関数名
+     * @return 関数が登録されていない場合や、{@link MethodHandle}として呼び出せない場合は{@literal null}を返します。
+     */
+    public Function lookup(final String name) {
+
+        final Method method = functions.get(name);
+        if(method == null) {
+            return null;
+        }
+
+        final Function function = cache.computeIfAbsent(method, FunctionRegistry::createFunction);
+        return function == Function.UNSUPPORTED ? null : function;
+    }
+
+    private static Function createFunction(final Method method) {
+
+        if(!Modifier.isStatic(method.getModifiers()) || method.isVarArgs()
+                || method.getParameterCount() > MAX_SPECIALIZED_ARITY) {
+            return Function.UNSUPPORTED;
+        }
+
+        final MethodHandle handle;
+        try {
+            handle = MethodHandles.lookup().unreflect(method);
+        } catch(IllegalAccessException e) {
+            return Function.UNSUPPORTED;
+        }
+
+        final MethodType genericType = MethodType.genericMethodType(method.getParameterCount());
+        final MethodHandle adapted = method.getReturnType() == void.class
+                ? MethodHandles.filterReturnValue(handle, MethodHandles.constant(Object.class, null)).asType(genericType)
+                : handle.asType(genericType);
+
+        return new Function(method, adapted);
+    }
+
+    /**
+     * {@link MethodHandle}として呼び出す関数。
+     */
+    public static final class Function {
+
+        /**
+         * 呼び出せない関数を表す値。{@link ConcurrentHashMap}は{@literal null}を保持できないため使用する。
+         */
+        private static final Function UNSUPPORTED = new Function(null, null);
+
+        /**
+         * 関数のメソッド
+         */
+        @Getter
+        private final Method method;
+
+        /**
+         * 引数と戻り値を{@link Object}型に変換したハンドル
+         */
+        private final MethodHandle handle;
+
+        /**
+         * 引数の型
+         */
+        private final Class<?>[] parameterTypes;
+
+        private Function(final Method method, final MethodHandle handle) {
+            this.method = method;
+            this.handle = handle;
+            this.parameterTypes = method != null ? method.getParameterTypes() : new Class<?>[0];
+        }
+
+        /**
+         * 関数の引数の個数を取得します。
+         * @return 引数の個数
+         */
+        public int getArity() {
+            return parameterTypes.length;
+        }
+
+        /**
+         * 引数の個数と型が、変換せずに渡せるか判定します。
+         * <p>EL式の評価エンジンは型を変換して呼び出すため、{@literal false}の場合は評価エンジンで呼び出します。</p>
+         * @param args 引数
+         * @return {@literal true}のとき、{@link #invoke(Object[])}で呼び出せます。
+         */
+        public boolean isApplicable(final Object[] args) {
+
+            if(args.length != parameterTypes.length) {
+                return false;
+            }
+
+            for(int i=0; i < args.length; i++) {
+                if(!isApplicable(i, args[i])) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        /**
+         * 指定した位置の引数の型が、変換せずに渡せるか判定します。
+         * <p>引数の配列を作成せずに判定するときに使用します。引数の個数は{@link #getArity()}で判定します。</p>
+         * @param index 引数の位置
+         * @param arg 引数
+         * @return {@literal true}のとき、変換せずに渡せます。
+         */
+        public boolean isApplicable(final int index, final Object arg) {
+            return arg == null ? !parameterTypes[index].isPrimitive() : ClassUtils.isAssignableValue(parameterTypes[index], arg);
+        }
+
+        /**
+         * 関数を呼び出します。
+         * @param args 引数。{@link #isApplicable(Object[])}で判定済みであること。
+         * @return 戻り値。戻り値の型が{@literal void}の場合は{@literal null}を返します。
+         * @throws UndeclaredThrowableException 関数が検査例外をスローした場合
+         */
+        public Object invoke(final Object[] args) {
+
+            switch(args.length) {
+                case 0:
+                    return invoke0();
+                case 1:
+                    return invoke1(args[0]);
+                case 2:
+                    return invoke2(args[0], args[1]);
+                case 3:
+                    return invoke3(args[0], args[1], args[2]);
+                case 4:
+                    return invoke4(args[0], args[1], args[2], args[3]);
+                default:
+                    throw new IllegalArgumentException("not support arity : " + args.length);
+            }
+        }
+
+        /**
+         * 引数のない関数を呼び出します。
+         * @return 戻り値。戻り値の型が{@literal void}の場合は{@literal null}を返します。
+         * @throws UndeclaredThrowableException 関数が検査例外をスローした場合
+         */
+        public Object invoke0() {
+            try {
+                return handle.invokeExact();
+            } catch(RuntimeException | Error e) {
+                throw e;
+            } catch(Throwable e) {
+                throw new UndeclaredThrowableException(e);
+            }
+        }
+
+        /**
+         * 引数が1個の関数を、引数の配列を作成せずに呼び出します。
+         * @param arg0 1番目の引数。{@link #isApplicable(int, Object)}で判定済みであること。
+         * @return 戻り値。戻り値の型が{@literal void}の場合は{@literal null}を返します。
+         * @throws UndeclaredThrowableException 関数が検査例外をスローした場合
+         */
+        public Object invoke1(final Object arg0) {
+            try {
+                return handle.invokeExact(arg0);
+            } catch(RuntimeException | Error e) {
+                throw e;
+            } catch(Throwable e) {
+                throw new UndeclaredThrowableException(e);
+            }
+        }
+
+        /**
+         * 引数が2個の関数を、引数の配列を作成せずに呼び出します。
+         * @param arg0 1番目の引数。{@link #isApplicable(int, Object)}で判定済みであること。
+         * @param arg1 2番目の引数。
+         * @return 戻り値。戻り値の型が{@literal void}の場合は{@literal null}を返します。
+         * @throws UndeclaredThrowableException 関数が検査例外をスローした場合
+         */
+        public Object invoke2(final Object arg0, final Object arg1) {
+            try {
+                return handle.invokeExact(arg0, arg1);
+            } catch(RuntimeException | Error e) {
+                throw e;
+            } catch(Throwable e) {
+                throw new UndeclaredThrowableException(e);
+            }
+        }
+
+        /**
+         * 引数が3個の関数を、引数の配列を作成せずに呼び出します。
+         * @param arg0 1番目の引数。{@link #isApplicable(int, Object)}で判定済みであること。
+         * @param arg1 2番目の引数。
+         * @param arg2 3番目の引数。
+         * @return 戻り値。戻り値の型が{@literal void}の場合は{@literal null}を返します。
+         * @throws UndeclaredThrowableException 関数が検査例外をスローした場合
+         */
+        public Object invoke3(final Object arg0, final Object arg1, final Object arg2) {
+            try {
+                return handle.invokeExact(arg0, arg1, arg2);
+            } catch(RuntimeException | Error e) {
+                throw e;
+            } catch(Throwable e) {
+                throw new UndeclaredThrowableException(e);
+            }
+        }
+
+        /**
+         * 引数が4個の関数を、引数の配列を作成せずに呼び出します。
+         * @param arg0 1番目の引数。{@link #isApplicable(int, Object)}で判定済みであること。
+         * @param arg1 2番目の引数。
+         * @param arg2 3番目の引数。
+         * @param arg3 4番目の引数。
+         * @return 戻り値。戻り値の型が{@literal void}の場合は{@literal null}を返します。
+         * @throws UndeclaredThrowableException 関数が検査例外をスローした場合
+         */
+        public Object invoke4(final Object arg0, final Object arg1, final Object arg2, final Object arg3) {
+            try {
+                return handle.invokeExact(arg0, arg1, arg2, arg3);
+            } catch(RuntimeException | Error e) {
+                throw e;
+            } catch(Throwable e) {
+                throw new UndeclaredThrowableException(e);
+            }
+        }
+    }
+
+}
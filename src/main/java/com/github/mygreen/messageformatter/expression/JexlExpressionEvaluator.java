@@ -1,7 +1,12 @@
 package com.github.mygreen.messageformatter.expression;
 
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.jexl2.Expression;
 import org.apache.commons.jexl2.JexlEngine;
@@ -11,10 +16,18 @@ import org.springframework.util.Assert;
 
 import lombok.Getter;
 import lombok.NonNull;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
 /**
  * JEXLによる式を評価する {@link ExpressionEvaluator} の実装。
+ * <p><code>name</code>、<code>bean.name</code>、<code>value.length()</code>のように、変数の参照と、プロパティの参照や引数なしのメソッドの呼び出しのみで構成される式は、
+ *    JEXLを使わずにgetterやメソッドを直接呼び出して評価します。JEXLと結果が異なる可能性がある場合は、JEXLで評価します。
+ *    JEXLで評価する場合は、{@link #setOptimizePropertyPath(boolean)} で {@literal false} を指定します。</p>
+ * <p>同様に、<code>f:join(list, ', ')</code>のように引数がリテラルと単純な式のみで構成される、クラスを登録した名前空間の関数の呼び出しは、
+ *    {@link FunctionRegistry}により、リフレクションを使わずに {@link java.lang.invoke.MethodHandle} で呼び出します。
+ *    ただし、オーバーロードしたメソッドはJEXLで呼び出します。
+ *    JEXLで評価する場合は、{@link #setOptimizeFunctionCall(boolean)} で {@literal false} を指定します。</p>
  *
  *
  * @author T.TSUCHIE
@@ -24,9 +37,39 @@ import lombok.extern.slf4j.Slf4j;
 public class JexlExpressionEvaluator implements ExpressionEvaluator {
 
     /**
-     * パースしたEL式のキャッシュ
+     * パースしたEL式のキャッシュ。
+     * キャッシュの統計情報は、{@link ObjectCache#getStats()} で取得できます。
      */
-    protected final ObjectCache<String, Expression> expressionCache = new ObjectCache<>();
+    @Getter
+    protected final ObjectCache<String, CachedExpression> expressionCache = new ObjectCache<>();
+
+    /**
+     * EL式のパースと評価を通知するリスナー
+     */
+    @Getter
+    @Setter
+    private volatile ExpressionListener expressionListener;
+
+    /**
+     * 変数の参照と、プロパティの参照や引数なしのメソッドの呼び出しのみで構成される式を、JEXLを使わずに評価するかどうか。
+     * <p>初期値は{@literal true}です。</p>
+     */
+    @Getter
+    @Setter
+    private boolean optimizePropertyPath = true;
+
+    /**
+     * 引数がリテラルと単純な式のみで構成される関数の呼び出しを、JEXLを使わずに評価するかどうか。
+     * <p>初期値は{@literal true}です。</p>
+     */
+    @Getter
+    @Setter
+    private boolean optimizeFunctionCall = true;
+
+    /**
+     * 名前空間に登録したクラスごとの、関数のレジストリ
+     */
+    private final Map<Class<?>, FunctionRegistry> functionRegistries = new ConcurrentHashMap<>();
 
     /**
      * JEXLの処理エンジン。
@@ -60,23 +103,183 @@ public class JexlExpressionEvaluator implements ExpressionEvaluator {
     @Override
     public Object evaluate(@NonNull String expression, @NonNull Map<String, Object> variables) {
 
+        final ExpressionListener listener = expressionListener;
+        if(listener == null) {
+            return parse(expression).evaluate(variables);
+        }
+
+        final boolean[] loaded = new boolean[1];
+        return parse(expression, listener, loaded).evaluate(variables, !loaded[0]);
+    }
+
+    @Override
+    public ParsedExpression parse(@NonNull String expression) {
+        final ExpressionListener listener = expressionListener;
+        return parse(expression, listener, listener != null ? new boolean[1] : null);
+    }
+
+    /**
+     * 式をパースし、リスナーを登録している場合は通知します。
+     * @param expression EL式
+     * @param listener リスナー。{@literal null}の場合は通知しません。
+     * @param loaded パースした式がキャッシュに存在しなかったかどうかを格納する配列。リスナーがない場合は{@literal null}。
+     * @return パース済みの式
+     */
+    private CachedExpression parse(final String expression, final ExpressionListener listener, final boolean[] loaded) {
+
         Assert.hasLength(expression, "expression should not be empty.");
 
-        if(log.isDebugEnabled()) {
-            log.debug("Evaluating JEXL expression: {}", expression);
-        }
+        final long start = listener != null ? System.nanoTime() : 0L;
 
+        final CachedExpression cached;
         try {
-            Expression expr = expressionCache.get(expression);
-            if (expr == null) {
-                expr = jexlEngine.createExpression(expression);
-                expressionCache.put(expression, expr);
+            if(loaded == null) {
+                cached = expressionCache.get(expression, CachedExpression::new);
+            } else {
+                cached = expressionCache.get(expression, key -> {
+                    loaded[0] = true;
+                    return new CachedExpression(key);
+                });
             }
 
-            return expr.evaluate(new MapContext(variables));
-
         } catch(Exception ex) {
             throw new EvaluationException(String.format("Evaluating [%s] script with JEXL failed.", expression), ex);
         }
+
+        if(listener != null) {
+            listener.onExpressionParsed(expression, !loaded[0], System.nanoTime() - start);
+        }
+
+        return cached;
+    }
+
+    /**
+     * 名前空間に登録したクラスの関数を取得します。
+     * <p>JEXLは引数の型でオーバーロードしたメソッドを選択するため、オーバーロードしたメソッドは対象外とします。</p>
+     * @param functionCall 関数の呼び出し
+     * @return 関数。クラス以外を登録した名前空間や、関数が見つからない場合は{@literal null}を返します。
+     */
+    private FunctionRegistry.Function lookupFunction(final FunctionCall functionCall) {
+
+        final Map<String, Object> namespaces = jexlEngine.getFunctions();
+        final Object namespace = namespaces != null ? namespaces.get(functionCall.getNamespace()) : null;
+        if(!(namespace instanceof Class)) {
+            return null;
+        }
+
+        final FunctionRegistry registry = functionRegistries.computeIfAbsent((Class<?>) namespace, type -> {
+            final Map<String, Method> functions = new HashMap<>();
+            final Set<String> overloaded = new HashSet<>();
+            for(Method method : type.getMethods()) {
+                if(!Modifier.isStatic(method.getModifiers())) {
+                    continue;
+                }
+                if(functions.putIfAbsent(method.getName(), method) != null) {
+                    overloaded.add(method.getName());
+                }
+            }
+            functions.keySet().removeAll(overloaded);
+            return new FunctionRegistry(functions);
+        });
+
+        return registry.lookup(functionCall.getName());
+    }
+
+    /**
+     * キャッシュするパース済みの式。
+     * <p>JEXLの式と合わせて、JEXLを使わずに評価できる単純な式や関数の呼び出しの解析結果を保持し、
+     *    式の文字列ごとに一度だけ解析します。</p>
+     *
+     */
+    public class CachedExpression implements ParsedExpression {
+
+        /**
+         * 式の文字列
+         */
+        @Getter
+        private final String expressionString;
+
+        /**
+         * パースしたJEXLの式
+         */
+        @Getter
+        private final Expression expression;
+
+        /**
+         * JEXLを使わずに評価できる単純な式。該当しない場合は{@literal null}。
+         */
+        private final PropertyPath propertyPath;
+
+        /**
+         * JEXLを使わずに評価できる関数の呼び出し。該当しない場合は{@literal null}。
+         */
+        private final FunctionCall functionCall;
+
+        /**
+         * {@link #functionCall}で呼び出す関数。該当しない場合は{@literal null}。
+         */
+        private final FunctionRegistry.Function function;
+
+        CachedExpression(final String expressionString) {
+            this.expressionString = expressionString;
+            this.expression = jexlEngine.createExpression(expressionString);
+            this.propertyPath = PropertyPath.parseJexl(expressionString);
+
+            final FunctionCall call = propertyPath == null ? FunctionCall.parseJexl(expressionString) : null;
+            this.function = call != null ? lookupFunction(call) : null;
+            this.functionCall = function != null ? call : null;
+        }
+
+        @Override
+        public Object evaluate(@NonNull final Map<String, Object> variables) {
+            return evaluate(variables, true);
+        }
+
+        /**
+         * 式を評価します。
+         * @param variables 式中で利用可な変数。
+         * @param cacheHit パースした式をキャッシュから取得したかどうか。リスナーに通知します。
+         * @return 評価した結果
+         */
+        private Object evaluate(final Map<String, Object> variables, final boolean cacheHit) {
+
+            if(log.isDebugEnabled()) {
+                log.debug("Evaluating JEXL expression: {}", expressionString);
+            }
+
+            final ExpressionListener listener = expressionListener;
+            if(listener == null) {
+                return evaluateValue(variables);
+            }
+
+            final long start = System.nanoTime();
+            final Object value = evaluateValue(variables);
+            listener.onExpressionEvaluated(expressionString, cacheHit, System.nanoTime() - start);
+            return value;
+        }
+
+        private Object evaluateValue(final Map<String, Object> variables) {
+
+            try {
+                if(propertyPath != null && optimizePropertyPath) {
+                    final Object value = propertyPath.evaluate(variables);
+                    if(value != PropertyPath.UNRESOLVED) {
+                        return value;
+                    }
+                }
+
+                if(functionCall != null && optimizeFunctionCall) {
+                    final Object value = functionCall.evaluate(function, variables);
+                    if(value != PropertyPath.UNRESOLVED) {
+                        return value;
+                    }
+                }
+
+                return expression.evaluate(new MapContext(variables));
+
+            } catch(Exception ex) {
+                throw new EvaluationException(String.format("Evaluating [%s] script with JEXL failed.", expressionString), ex);
+            }
+        }
     }
 }
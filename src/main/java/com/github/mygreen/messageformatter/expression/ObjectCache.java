@@ -1,17 +1,34 @@
 package com.github.mygreen.messageformatter.expression;
 
-import java.lang.ref.SoftReference;
+import java.util.ArrayDeque;
 import java.util.Deque;
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 import lombok.Getter;
 
 
 /**
- * EL式のパース結果のオブジェクトをキャッシュです。
- * <p>このキャッシュはGCにより削除対象とすることができます。</p>
+ * EL式のパース結果などのオブジェクトのキャッシュです。
+ * <p>複数のスレッドから同時に利用できます。値の取得はロックを取得せずに行い、追加と削除のみロックを取得します。</p>
+ * <p>キャッシュの個数が最大数を超えると、参照頻度の低い値から削除します。
+ *    削除の方式は、次の通りです。</p>
+ * <ul>
+ *   <li>新しく追加した値は、まず小さな待ち行列に入ります。ここから押し出されるまでに一度も参照されなかった値は削除されます。</li>
+ *   <li>参照された値は、主な待ち行列に移ります。主な待ち行列では、参照回数が残っている値は回数を減らして末尾に戻し、残っていない値を削除します。</li>
+ *   <li>最近削除したキーを記録しておき、再度追加されたときは直接主な待ち行列に入れます。</li>
+ * </ul>
+ * <p>そのため、一度しか評価されない動的な式が大量に追加されても、繰り返し参照される値は削除されにくくなります。</p>
+ * <p>値は強参照で保持するため、GCによって削除されることはありません。</p>
+ * <p>キャッシュのヒット数などの統計情報を {@link #getStats()} で取得できます。
+ *    統計情報は、1回の参照で発生したヒット／ミス／値の作成をまとめて記録するため、取得した値の間で矛盾は生じません。</p>
+ * <p>最大個数に{@literal 0}以下を指定すると、以前と同様に全ての値を保持し、削除しません。
+ *    ただし、引数なしのコンストラクタの最大個数は、以前の全て保持する設定から {@link #DEFAULT_MAX_SIZE} に変更しています。
+ *    全て保持する場合は、{@literal new ObjectCache<>(-1)}のように指定してください。</p>
  *
  *
  * @author T.TSUCHIE
@@ -21,53 +38,102 @@ import lombok.Getter;
  */
 public class ObjectCache<K, V> {
 
+    /**
+     * キャッシュの最大個数の初期値
+     */
+    public static final int DEFAULT_MAX_SIZE = 1024;
+
+    /**
+     * 参照回数として数える最大値。
+     */
+    private static final int MAX_FREQUENCY = 3;
+
     /**
      * キャッシュの実態
      */
-    private final Map<K, SoftReference<V>> map = new HashMap<>();
+    private final Map<K, Node<K, V>> map = new ConcurrentHashMap<>();
+
+    /**
+     * 新しく追加した値の待ち行列
+     */
+    private final Deque<Node<K, V>> probationQueue = new ArrayDeque<>();
+
+    /**
+     * 参照された値の待ち行列
+     */
+    private final Deque<Node<K, V>> protectedQueue = new ArrayDeque<>();
+
+    /**
+     * 最近削除したキー。値は使用しない。
+     */
+    private final Map<K, Boolean> evictedKeys;
 
     /**
-     * 最後にアクセスしたキャッシュの値。
-     * {@link #objectsToKeepCount} の値により保持するサイズが変わります。
+     * 値の追加と削除を行う際のロック
      */
-    private final Deque<V> objectsLastAccessed = new LinkedList<>();
+    private final ReentrantLock lock = new ReentrantLock();
 
     /**
-     * GCによってメモリを開放する時に{@link SoftReference} が削除されるときに、
-     * メモリ内に保持しておくキャッシュオブジェクトの最大個数を指定します。
-     * 値が{@literal -1}のときはGC実行時でも全てのキャッシュを保持します。
+     * 統計情報を記録する領域。スレッドごとに分散して記録し、同時に更新する際の競合を減らす。
+     */
+    private final StatsStripe[] statsStripes;
+
+    /**
+     * キャッシュの最大個数。{@literal 0}以下のときは全て保持します。
      */
     @Getter
-    private final int objectsToKeepCount;
+    private final int maxSize;
 
     /**
-     * インスタンスを作成します。
-     * 設定としてキャッシュは全て保持するようにします。
-     *
+     * 新しく追加した値の待ち行列の最大個数
+     */
+    private final int probationMaxSize;
+
+    /**
+     * キャッシュの最大個数を {@link #DEFAULT_MAX_SIZE} としてインスタンスを作成します。
      */
     public ObjectCache() {
-        this.objectsToKeepCount = -1;
+        this(DEFAULT_MAX_SIZE);
     }
 
     /**
-     * キャッシュサイズを指定してインスタンスを作成します。
+     * キャッシュの最大個数を指定してインスタンスを作成します。
      *
-     * @param maxObjectsToKeep GCによってメモリを開放する時に{@link SoftReference} が削除されるときに、
-     *         メモリ内に保持しておくキャッシュオブジェクトの最大個数を指定します。
-     *         値が{@literal -1}のときはGC実行時でも全てのキャッシュを保持します。
+     * @param maxSize キャッシュの最大個数。{@literal 0}以下のときは全て保持します。
      */
-    public ObjectCache(final int maxObjectsToKeep) {
-        this.objectsToKeepCount = maxObjectsToKeep;
+    public ObjectCache(final int maxSize) {
+        this.maxSize = maxSize;
+        this.probationMaxSize = Math.max(1, maxSize / 10);
+        this.statsStripes = new StatsStripe[StatsStripe.STRIPE_COUNT];
+        for(int i=0; i < statsStripes.length; i++) {
+            statsStripes[i] = new StatsStripe();
+        }
+        this.evictedKeys = new LinkedHashMap<K, Boolean>() {
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<K, Boolean> eldest) {
+                return size() > maxSize;
+            }
+        };
     }
 
     /**
-     * キャッシュの値がnullの情報を削除し、キャッシュサイズを削減します。
+     * キャッシュの最大個数を取得します。
+     * @return キャッシュの最大個数。
+     * @deprecated {@link #getMaxSize()} を使用してください。
      */
+    @Deprecated
+    public int getObjectsToKeepCount() {
+        return maxSize;
+    }
+
+    /**
+     * 以前はGCにより削除された情報を削除していましたが、値を強参照で保持するようになったため何もしません。
+     * @deprecated 削除予定です。
+     */
+    @Deprecated
     public void compact() {
-        for (final Map.Entry<K, SoftReference<V>> entry : map.entrySet()) {
-            final SoftReference<V> ref = entry.getValue();
-            if (ref.get() == null) map.remove(entry.getKey());
-        }
+        // 何もしない
     }
 
     /**
@@ -85,28 +151,268 @@ public class ObjectCache<K, V> {
      * @return キャッシュの値。キャッシュに存在しなければ、{@literal null}を返します。
      */
     public V get(final K key) {
-        final SoftReference<V> softReference = map.get(key);
-        if (softReference != null) {
-            final V value = softReference.get();
-            if (value == null) {
-                map.remove(key);
-            } else if (objectsToKeepCount > 0 && value != objectsLastAccessed.getFirst()) {
-                objectsLastAccessed.remove(value);
-                objectsLastAccessed.addFirst(value);
-                if (objectsLastAccessed.size() > objectsToKeepCount) objectsLastAccessed.removeLast();
-            }
-            return softReference.get();
+        final Node<K, V> node = map.get(key);
+        if(node == null) {
+            statsStripe().record(0L, 1L, 0L, 0L, 0L, 0L);
+            return null;
         }
-        return null;
+
+        statsStripe().record(1L, 0L, 0L, 0L, 0L, 0L);
+        node.touch();
+        return node.value;
+    }
+
+    /**
+     * キーを元にキャッシュから値を取り出します。
+     * <p>キャッシュに存在しない場合は、値を作成してキャッシュに追加します。</p>
+     * <p>値の作成はロックを取得せずに行うため、複数のスレッドから同時に同じキーの値を作成することがあります。
+     *    その場合は、後から追加した値で上書きされます。</p>
+     * @param key キャッシュのキー。
+     * @param loader キャッシュに存在しない場合に値を作成する処理。{@literal null}を返してはいけません。
+     * @return キャッシュの値。
+     * @throws RuntimeException 値の作成に失敗した場合は、{@literal loader}がスローした例外をそのままスローします。
+     */
+    public V get(final K key, final Function<? super K, ? extends V> loader) {
+
+        final Node<K, V> node = map.get(key);
+        if(node != null) {
+            statsStripe().record(1L, 0L, 0L, 0L, 0L, 0L);
+            node.touch();
+            return node.value;
+        }
+
+        // ミスと値の作成は、まとめて記録する。
+        final long start = System.nanoTime();
+        final V value;
+        try {
+            value = loader.apply(key);
+        } catch(RuntimeException | Error e) {
+            statsStripe().record(0L, 1L, 0L, 1L, System.nanoTime() - start, 0L);
+            throw e;
+        }
+
+        statsStripe().record(0L, 1L, 1L, 0L, System.nanoTime() - start, 0L);
+
+        put(key, value);
+        return value;
     }
 
     /**
      * キャッシュに追加します。
+     * <p>キャッシュの個数が最大数を超えた場合は、参照頻度の低い値を削除します。最大数が{@literal 0}以下の場合は削除しません。</p>
      * @param key キー
      * @param value 値
      */
     public void put(final K key, final V value) {
-        map.remove(key);
-        map.put(key, new SoftReference<>(value));
+
+        lock.lock();
+        try {
+            final Node<K, V> existing = map.get(key);
+            if(existing != null) {
+                existing.value = value;
+                return;
+            }
+
+            final Node<K, V> node = new Node<>(key, value);
+            if(evictedKeys.remove(key) != null) {
+                // 最近削除したキーは、参照頻度が高いとみなす。
+                protectedQueue.addLast(node);
+            } else {
+                probationQueue.addLast(node);
+            }
+            map.put(key, node);
+
+            int evicted = 0;
+            while(maxSize > 0 && map.size() > maxSize) {
+                evict();
+                evicted++;
+            }
+
+            if(evicted > 0) {
+                statsStripe().record(0L, 0L, 0L, 0L, 0L, evicted);
+            }
+
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * キャッシュの個数を取得します。
+     * @return キャッシュの個数。
+     */
+    public int size() {
+        return map.size();
+    }
+
+    /**
+     * キャッシュの全ての値に対して処理を行います。
+     * <p>処理中に他のスレッドから追加や削除された値は、処理の対象になるとは限りません。</p>
+     * <p>参照回数や統計情報は更新しません。</p>
+     * @param action キーと値に対する処理
+     */
+    public void forEach(final BiConsumer<? super K, ? super V> action) {
+        map.forEach((key, node) -> action.accept(key, node.value));
+    }
+
+    /**
+     * キャッシュの統計情報を取得します。
+     * <p>1回の参照で発生したミスと値の作成は、同じ領域にまとめて記録し、領域ごとにロックを取得して読み取ります。
+     *    そのため、他のスレッドが同時に更新している場合でも、1回の参照の記録が一部の値にのみ反映されることはありません。
+     *    例えば、値を作成した回数がミスした回数を超えることはなく、前に取得した統計情報より値が減ることもありません。</p>
+     * @return 現時点の統計情報のスナップショット。
+     */
+    public CacheStats getStats() {
+        final long[] totals = new long[6];
+        for(StatsStripe stripe : statsStripes) {
+            stripe.addTo(totals);
+        }
+
+        return new CacheStats(totals[0], totals[1], totals[2], totals[3], totals[4], totals[5]);
+    }
+
+    /**
+     * 現在のスレッドが統計情報を記録する領域を取得します。
+     * @return 統計情報を記録する領域
+     */
+    private StatsStripe statsStripe() {
+        return statsStripes[(int) Thread.currentThread().getId() & (StatsStripe.STRIPE_COUNT - 1)];
+    }
+
+
+    /**
+     * キャッシュを全て削除します。
+     * <p>統計情報はそのまま残ります。</p>
+     */
+    public void clear() {
+        lock.lock();
+        try {
+            map.clear();
+            probationQueue.clear();
+            protectedQueue.clear();
+            evictedKeys.clear();
+
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 参照頻度の低い値を1つ削除します。
+     * <p>ロックを取得した状態で呼び出します。</p>
+     */
+    private void evict() {
+
+        while(true) {
+            if(probationQueue.size() >= probationMaxSize || protectedQueue.isEmpty()) {
+                final Node<K, V> node = probationQueue.pollFirst();
+                if(node.frequency > 0) {
+                    // 参照された値は、主な待ち行列に移す。
+                    node.frequency = 0;
+                    protectedQueue.addLast(node);
+
+                } else {
+                    map.remove(node.key);
+                    evictedKeys.put(node.key, Boolean.TRUE);
+                    return;
+                }
+
+            } else {
+                final Node<K, V> node = protectedQueue.pollFirst();
+                if(node.frequency > 0) {
+                    // 参照回数が残っている値は、回数を減らして末尾に戻す。
+                    node.frequency--;
+                    protectedQueue.addLast(node);
+
+                } else {
+                    map.remove(node.key);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * 統計情報の各値を、まとめて記録・読み取りするクラス。
+     * <p>記録と読み取りは、インスタンスのロックを取得して行います。
+     *    スレッドごとに異なるインスタンスに分散するため、ロックの競合はほとんど発生しません。</p>
+     */
+    private static final class StatsStripe {
+
+        /**
+         * 領域の個数。2のべき乗にする。
+         */
+        private static final int STRIPE_COUNT = stripeCount();
+
+        private long hitCount;
+
+        private long missCount;
+
+        private long loadCount;
+
+        private long loadFailureCount;
+
+        private long totalLoadTime;
+
+        private long evictionCount;
+
+        private static int stripeCount() {
+            final int processors = Runtime.getRuntime().availableProcessors();
+            int count = 1;
+            while(count < processors * 2 && count < 64) {
+                count <<= 1;
+            }
+            return count;
+        }
+
+        synchronized void record(final long hits, final long misses, final long loads, final long loadFailures,
+                final long loadTime, final long evictions) {
+            this.hitCount += hits;
+            this.missCount += misses;
+            this.loadCount += loads;
+            this.loadFailureCount += loadFailures;
+            this.totalLoadTime += loadTime;
+            this.evictionCount += evictions;
+        }
+
+        synchronized void addTo(final long[] totals) {
+            totals[0] += hitCount;
+            totals[1] += missCount;
+            totals[2] += loadCount;
+            totals[3] += loadFailureCount;
+            totals[4] += totalLoadTime;
+            totals[5] += evictionCount;
+        }
+    }
+
+    /**
+     * キャッシュの値と参照回数を保持するクラス。
+     *
+     * @param <K> キャッシュのキー
+     * @param <V> キャッシュの値
+     */
+    private static class Node<K, V> {
+
+        private final K key;
+
+        private volatile V value;
+
+        /**
+         * 参照回数。
+         * 複数のスレッドから更新するが、削除の優先度の目安としてのみ使用するため、更新が欠落しても問題はない。
+         */
+        private volatile int frequency;
+
+        Node(final K key, final V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        void touch() {
+            final int current = frequency;
+            if(current < MAX_FREQUENCY) {
+                frequency = current + 1;
+            }
+        }
     }
 }
@@ -0,0 +1,38 @@
+package com.github.mygreen.messageformatter.expression;
+
+import java.util.Map;
+
+import org.springframework.expression.ExpressionException;
+
+/**
+ * パース済みのEL式。
+ * <p>{@link ExpressionEvaluator#parse(String)} で作成し、変数を変えて繰り返し評価することができます。</p>
+ * <p>実装はスレッドセーフでなければなりません。</p>
+ *
+ *
+ * @author T.TSUCHIE
+ *
+ */
+@FunctionalInterface
+public interface ParsedExpression {
+
+    /**
+     * パース済みの式を評価します。
+     * @param variables 式中で利用可な変数。
+     * @return 評価した結果。
+     * @throws NullPointerException {@literal values is null.}
+     * @throws ExpressionException 式の評価に失敗した場合にスローされます。
+     */
+    Object evaluate(Map<String, Object> variables);
+
+    /**
+     * 変数を参照せず、評価する度に同じ値を返す式かどうか判定します。
+     * <p>{@literal true}の場合、メッセージのコンパイル時に1回のみ評価し、評価結果を固定の値として保持します。</p>
+     * <p>デフォルトの実装では、判定できないため{@literal false}を返します。</p>
+     * @return {@literal true}のとき、定数式です。
+     */
+    default boolean isConstant() {
+        return false;
+    }
+
+}
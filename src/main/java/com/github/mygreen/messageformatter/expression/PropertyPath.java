@@ -0,0 +1,315 @@
+package com.github.mygreen.messageformatter.expression;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.WrongMethodTypeException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * 変数の参照と、プロパティの参照や引数なしのメソッドの呼び出しのみで構成される、単純なEL式。
+ * <p><code>#bean.name</code>や<code>value.length()</code>などの式を、EL式の評価エンジンを使わずに評価します。
+ *    プロパティのgetterやメソッドは、レシーバのクラスごとに {@link MethodHandle} として解決し、キャッシュします。</p>
+ * <p>変数が定義されていない場合、途中の値が{@literal null}の場合、getterやメソッドが見つからない場合など、
+ *    EL式の評価エンジンと結果が異なる可能性がある場合は、評価せずに{@link #UNRESOLVED}を返します。
+ *    呼び出し元は、EL式の評価エンジンで評価し直します。</p>
+ *
+ *
+ * @author T.TSUCHIE
+ *
+ */
+final class PropertyPath {
+
+    /**
+     * 評価できなかったことを表す値
+     */
+    static final Object UNRESOLVED = new Object();
+
+    /**
+     * JEXLの予約語。変数名としては扱わない。
+     */
+    private static final Set<String> JEXL_RESERVED_WORDS = Set.of(
+            "or", "and", "eq", "ne", "lt", "gt", "le", "ge", "div", "mod", "not", "null", "true", "false",
+            "new", "var", "empty", "size", "function", "return", "if", "else", "for", "while", "do");
+
+    /**
+     * 変数名
+     */
+    private final String variableName;
+
+    /**
+     * プロパティの参照やメソッドの呼び出し
+     */
+    private final Step[] steps;
+
+    private PropertyPath(final String variableName, final Step[] steps) {
+        this.variableName = variableName;
+        this.steps = steps;
+    }
+
+    /**
+     * SpELの式<code>#var(.prop|.method())*</code>を解析します。
+     * @param expression EL式
+     * @return 単純な式でない場合は{@literal null}を返します。
+     */
+    static PropertyPath parseSpel(final String expression) {
+        if(expression.length() < 2 || expression.charAt(0) != '#') {
+            return null;
+        }
+
+        final PropertyPath path = parse(expression, 1);
+        if(path == null || path.variableName.equals("root") || path.variableName.equals("this")) {
+            // #root、#thisはSpELの予約された変数。
+            return null;
+        }
+        return path;
+    }
+
+    /**
+     * JEXLの式<code>var(.prop|.method())*</code>を解析します。
+     * @param expression EL式
+     * @return 単純な式でない場合は{@literal null}を返します。
+     */
+    static PropertyPath parseJexl(final String expression) {
+        final PropertyPath path = parse(expression, 0);
+        if(path == null || JEXL_RESERVED_WORDS.contains(path.variableName)) {
+            return null;
+        }
+
+        for(Step step : path.steps) {
+            if(JEXL_RESERVED_WORDS.contains(step.name)) {
+                return null;
+            }
+        }
+        return path;
+    }
+
+    private static PropertyPath parse(final String expression, final int start) {
+
+        final int length = expression.length();
+        int index = start;
+
+        int end = scanIdentifier(expression, index);
+        if(end == index) {
+            return null;
+        }
+
+        final String variableName = expression.substring(index, end);
+        index = end;
+
+        final List<Step> steps = new ArrayList<>();
+        while(index < length) {
+            if(expression.charAt(index) != '.') {
+                return null;
+            }
+            index++;
+
+            end = scanIdentifier(expression, index);
+            if(end == index) {
+                return null;
+            }
+
+            final String name = expression.substring(index, end);
+            index = end;
+
+            if(expression.startsWith("()", index)) {
+                steps.add(new Step(name, true));
+                index += 2;
+            } else {
+                steps.add(new Step(name, false));
+            }
+        }
+
+        return new PropertyPath(variableName, steps.toArray(new Step[steps.size()]));
+    }
+
+    private static int scanIdentifier(final String expression, final int start) {
+
+        final int length = expression.length();
+        if(start >= length || !Character.isJavaIdentifierStart(expression.charAt(start))
+                || expression.charAt(start) == '$') {
+            return start;
+        }
+
+        int index = start + 1;
+        while(index < length && Character.isJavaIdentifierPart(expression.charAt(index))
+                && expression.charAt(index) != '$') {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * 式を評価します。
+     * @param variables 式中で利用可な変数。
+     * @return 評価した結果。評価できなかった場合は{@link #UNRESOLVED}を返します。
+     * @throws InvocationException getterやメソッドが例外をスローした場合
+     */
+    Object evaluate(final Map<String, Object> variables) {
+
+        Object value = variables.get(variableName);
+        if(value == null && !variables.containsKey(variableName)) {
+            // 未定義の変数の扱いは、評価エンジンに任せる。
+            return UNRESOLVED;
+        }
+
+        for(Step step : steps) {
+            if(value == null || value instanceof Map || value instanceof Class) {
+                return UNRESOLVED;
+            }
+
+            final MethodHandle handle = step.handles.get(value.getClass());
+            if(handle == null) {
+                return UNRESOLVED;
+            }
+
+            try {
+                value = handle.invokeExact(value);
+            } catch(WrongMethodTypeException e) {
+                // ハンドルの型が合わない場合は、評価エンジンに任せる。
+                return UNRESOLVED;
+            } catch(Error e) {
+                throw e;
+            } catch(Throwable e) {
+                // getterやメソッドを再度呼び出さないよう、評価エンジンでは評価し直さない。
+                throw new InvocationException(step.name, step.method, e);
+            }
+        }
+
+        return value;
+    }
+
+    /**
+     * プロパティの参照か、引数なしのメソッドの呼び出し。
+     */
+    private static final class Step {
+
+        /**
+         * 呼び出し時の型。<code>(Object)Object</code>。
+         */
+        private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+        private final String name;
+
+        /**
+         * 引数なしのメソッドの呼び出しかどうか
+         */
+        private final boolean method;
+
+        /**
+         * レシーバのクラスごとの、getterかメソッド。見つからない場合は{@literal null}。
+         */
+        private final ClassValue<MethodHandle> handles;
+
+        private Step(final String name, final boolean method) {
+            this.name = name;
+            this.method = method;
+            this.handles = new ClassValue<MethodHandle>() {
+
+                @Override
+                protected MethodHandle computeValue(final Class<?> type) {
+                    return method ? findMethod(type, name) : findGetter(type, name);
+                }
+            };
+        }
+
+        private static MethodHandle findGetter(final Class<?> type, final String propertyName) {
+
+            final String suffix = StringUtils.capitalize(propertyName);
+            final MethodHandle getter = findMethod(type, "get" + suffix);
+            if(getter != null) {
+                return getter;
+            }
+
+            final Method isMethod = ClassUtils.getMethodIfAvailable(type, "is" + suffix);
+            if(isMethod != null && (isMethod.getReturnType() == boolean.class || isMethod.getReturnType() == Boolean.class)) {
+                return findMethod(type, isMethod.getName());
+            }
+
+            return null;
+        }
+
+        private static MethodHandle findMethod(final Class<?> type, final String methodName) {
+
+            final Method method = ClassUtils.getMethodIfAvailable(type, methodName);
+            if(method == null || Modifier.isStatic(method.getModifiers()) || method.getReturnType() == void.class) {
+                return null;
+            }
+
+            // 公開されていないクラスのメソッドは、公開されているインタフェースや親クラスのメソッドとして呼び出す。
+            final Collection<Class<?>> candidates = new ArrayList<>();
+            candidates.add(type);
+            candidates.addAll(ClassUtils.getAllInterfacesForClassAsSet(type));
+            for(Class<?> superClass = type.getSuperclass(); superClass != null; superClass = superClass.getSuperclass()) {
+                candidates.add(superClass);
+            }
+
+            for(Class<?> candidate : candidates) {
+                if(!Modifier.isPublic(candidate.getModifiers())) {
+                    continue;
+                }
+
+                try {
+                    final Method candidateMethod = candidate.getMethod(methodName);
+                    return MethodHandles.publicLookup().unreflect(candidateMethod).asType(GETTER_TYPE);
+
+                } catch(NoSuchMethodException | IllegalAccessException e) {
+                    continue;
+                }
+            }
+
+            return null;
+        }
+    }
+
+    /**
+     * getterやメソッドがスローした例外をラップする例外。
+     * <p>呼び出し元は、評価エンジンで評価した場合と同じ形式の例外に変換します。</p>
+     */
+    static final class InvocationException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * プロパティ名かメソッド名
+         */
+        private final String name;
+
+        /**
+         * メソッドの呼び出しかどうか
+         */
+        private final boolean method;
+
+        private InvocationException(final String name, final boolean method, final Throwable cause) {
+            super(cause.getMessage(), cause);
+            this.name = name;
+            this.method = method;
+        }
+
+        /**
+         * プロパティ名かメソッド名を取得します。
+         * @return プロパティ名かメソッド名
+         */
+        String getName() {
+            return name;
+        }
+
+        /**
+         * 引数なしのメソッドの呼び出しかどうか判定します。
+         * @return {@literal true}のときメソッドの呼び出しです。
+         */
+        boolean isMethod() {
+            return method;
+        }
+    }
+
+}
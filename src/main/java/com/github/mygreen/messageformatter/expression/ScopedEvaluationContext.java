@@ -0,0 +1,150 @@
+package com.github.mygreen.messageformatter.expression;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.expression.BeanResolver;
+import org.springframework.expression.ConstructorResolver;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.MethodResolver;
+import org.springframework.expression.OperatorOverloader;
+import org.springframework.expression.PropertyAccessor;
+import org.springframework.expression.TypeComparator;
+import org.springframework.expression.TypeConverter;
+import org.springframework.expression.TypeLocator;
+import org.springframework.expression.TypedValue;
+
+import lombok.NonNull;
+
+/**
+ * 評価ごとの変数のみを保持する、軽量なSpELのコンテキスト。
+ * <p>プロパティアクセッサやメソッドリゾルバなどは、共有するコンテキストに委譲します。
+ *    そのため、リフレクションの情報のキャッシュを評価をまたいで再利用できます。</p>
+ * <p>変数は次の順に参照します。</p>
+ * <ol>
+ *   <li>式中の代入など、{@link #setVariable(String, Object)}で設定した変数。</li>
+ *   <li>カスタム関数。</li>
+ *   <li>インスタンス作成時に指定した変数。</li>
+ * </ol>
+ * <p>これは、{@link org.springframework.expression.spel.support.StandardEvaluationContext}に
+ *    変数を登録した後にカスタム関数を登録した場合と同じ順序です。</p>
+ * <p>1回の評価でのみ使用し、複数のスレッドから同時に利用してはいけません。</p>
+ *
+ *
+ * @author T.TSUCHIE
+ *
+ */
+public class ScopedEvaluationContext implements EvaluationContext {
+
+    /**
+     * 委譲先の共有するコンテキスト
+     */
+    private final EvaluationContext sharedContext;
+
+    /**
+     * カスタム関数
+     */
+    private final Map<String, Method> functions;
+
+    /**
+     * 式中で利用する変数
+     */
+    private final Map<String, Object> variables;
+
+    /**
+     * 式中で設定された変数。設定されるまでは作成しない。
+     */
+    private Map<String, Object> localVariables;
+
+    /**
+     * インスタンスを作成します。
+     * @param sharedContext 委譲先の共有するコンテキスト
+     * @param functions カスタム関数。コピーせずにそのまま参照します。
+     * @param variables 式中で利用する変数。コピーせずにそのまま参照します。
+     */
+    public ScopedEvaluationContext(@NonNull EvaluationContext sharedContext, @NonNull Map<String, Method> functions,
+            @NonNull Map<String, Object> variables) {
+        this.sharedContext = sharedContext;
+        this.functions = functions;
+        this.variables = variables;
+    }
+
+    @Override
+    public TypedValue getRootObject() {
+        return sharedContext.getRootObject();
+    }
+
+    @Override
+    public List<PropertyAccessor> getPropertyAccessors() {
+        return sharedContext.getPropertyAccessors();
+    }
+
+    @Override
+    public List<ConstructorResolver> getConstructorResolvers() {
+        return sharedContext.getConstructorResolvers();
+    }
+
+    @Override
+    public List<MethodResolver> getMethodResolvers() {
+        return sharedContext.getMethodResolvers();
+    }
+
+    @Override
+    public BeanResolver getBeanResolver() {
+        return sharedContext.getBeanResolver();
+    }
+
+    @Override
+    public TypeLocator getTypeLocator() {
+        return sharedContext.getTypeLocator();
+    }
+
+    @Override
+    public TypeConverter getTypeConverter() {
+        return sharedContext.getTypeConverter();
+    }
+
+    @Override
+    public TypeComparator getTypeComparator() {
+        return sharedContext.getTypeComparator();
+    }
+
+    @Override
+    public OperatorOverloader getOperatorOverloader() {
+        return sharedContext.getOperatorOverloader();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>インスタンス作成時に指定した変数は変更せず、このコンテキスト内でのみ保持します。</p>
+     */
+    @Override
+    public void setVariable(final String name, final Object value) {
+        if(name == null) {
+            return;
+        }
+
+        if(localVariables == null) {
+            localVariables = new HashMap<>();
+        }
+        localVariables.put(name, value);
+    }
+
+    @Override
+    public Object lookupVariable(final String name) {
+
+        if(localVariables != null && localVariables.containsKey(name)) {
+            return localVariables.get(name);
+        }
+
+        final Method function = functions.get(name);
+        if(function != null) {
+            return function;
+        }
+
+        return variables.get(name);
+    }
+
+}
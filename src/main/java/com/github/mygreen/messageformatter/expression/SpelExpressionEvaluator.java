@@ -3,21 +3,58 @@ package com.github.mygreen.messageformatter.expression;
 import java.lang.reflect.Method;
 import java.util.Collections;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.springframework.expression.EvaluationContext;
 import org.springframework.expression.Expression;
+import org.springframework.expression.ExpressionInvocationTargetException;
 import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelEvaluationException;
+import org.springframework.expression.spel.SpelMessage;
+import org.springframework.expression.spel.SpelNode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.ast.Elvis;
+import org.springframework.expression.spel.ast.FunctionReference;
+import org.springframework.expression.spel.ast.InlineList;
+import org.springframework.expression.spel.ast.InlineMap;
+import org.springframework.expression.spel.ast.Literal;
+import org.springframework.expression.spel.ast.Operator;
+import org.springframework.expression.spel.ast.OperatorNot;
+import org.springframework.expression.spel.ast.Ternary;
+import org.springframework.expression.spel.standard.SpelExpression;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
 import org.springframework.expression.spel.support.StandardEvaluationContext;
 import org.springframework.util.Assert;
 
 import lombok.Getter;
 import lombok.NonNull;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
 /**
  * SpELいよる式を評価する {@link ExpressionEvaluator} の実装。
+ * <p>{@link #setCompilerMode(SpelCompilerMode)} でコンパイルモードを指定すると、
+ *    パースした式をSpELのコンパイラでバイトコードにコンパイルして評価します。</p>
+ * <ul>
+ *   <li>{@link SpelCompilerMode#IMMEDIATE} : 1回インタプリタで評価した後にコンパイルします。</li>
+ *   <li>{@link SpelCompilerMode#MIXED} : インタプリタで{@link #setCompileThreshold(int)}で指定した回数（初期値は{@value #MIXED_COMPILE_THRESHOLD}回）評価した後にコンパイルします。
+ *       頻繁に評価される式のみをコンパイルするため、まれにしか評価されない式のバイトコードでメタスペースを消費しません。</li>
+ * </ul>
+ * <p>どちらのモードでも、コンパイルできない式や、変数の型が変わりコンパイルした式の評価に失敗した式は、インタプリタで評価し直します。
+ *    失敗が{@link #setMaxCompileFailures(int)}で指定した回数（初期値は{@value #MAX_COMPILE_FAILURES}回）に達した式は、以降はインタプリタでのみ評価します。</p>
+ * <p>評価時のコンテキストは、プロパティアクセッサやメソッドリゾルバを保持する共有のコンテキストと、
+ *    評価ごとの変数のみを保持する {@link ScopedEvaluationContext} から構成します。
+ *    評価ごとに {@link StandardEvaluationContext} を作成する場合は、{@link #setReuseEvaluationContext(boolean)} で {@literal false} を指定します。</p>
+ * <p><code>#name</code>、<code>#bean.name</code>、<code>#value.length()</code>のように、変数の参照と、プロパティの参照や引数なしのメソッドの呼び出しのみで構成される式は、
+ *    SpELを使わずにgetterやメソッドを直接呼び出して評価します。SpELと結果が異なる可能性がある場合は、SpELで評価します。
+ *    SpELで評価する場合は、{@link #setOptimizePropertyPath(boolean)} で {@literal false} を指定します。</p>
+ * <p>同様に、<code>#join(#list, ', ')</code>のように引数がリテラルと単純な式のみで構成されるカスタム関数の呼び出しは、
+ *    {@link FunctionRegistry}により、リフレクションを使わずに {@link java.lang.invoke.MethodHandle} で呼び出します。
+ *    SpELで評価する場合は、{@link #setOptimizeFunctionCall(boolean)} で {@literal false} を指定します。</p>
  *
  * @author T.TSUCHIE
  *
@@ -26,9 +63,86 @@ import lombok.extern.slf4j.Slf4j;
 public class SpelExpressionEvaluator implements ExpressionEvaluator {
 
     /**
-     * パースしたEL式のキャッシュ
+     * コンパイルモードが{@link SpelCompilerMode#MIXED}のとき、コンパイルするまでにインタプリタで評価する回数の初期値。
      */
-    protected final ObjectCache<String, Expression> expressionCache = new ObjectCache<>();
+    public static final int MIXED_COMPILE_THRESHOLD = 100;
+
+    /**
+     * コンパイルを諦めてインタプリタでのみ評価するようになるまでの、コンパイルや評価の失敗回数の初期値。
+     */
+    public static final int MAX_COMPILE_FAILURES = 3;
+
+    /**
+     * パースしたEL式のキャッシュ。
+     * キャッシュの統計情報は、{@link ObjectCache#getStats()} で取得できます。
+     */
+    @Getter
+    protected final ObjectCache<String, CachedExpression> expressionCache = new ObjectCache<>();
+
+    /**
+     * SpELのコンパイルモード。
+     * <p>初期値は、{@link SpelCompilerMode#OFF}で、コンパイルしません。</p>
+     * <p>{@link SpelParserConfiguration}でコンパイルモードを指定したパーサを使用する場合は、
+     *    この値は{@link SpelCompilerMode#OFF}のままにしてください。</p>
+     */
+    @Getter
+    @Setter
+    @NonNull
+    private SpelCompilerMode compilerMode = SpelCompilerMode.OFF;
+
+    /**
+     * コンパイルモードが{@link SpelCompilerMode#MIXED}のとき、コンパイルするまでにインタプリタで評価する回数。
+     * <p>初期値は{@value #MIXED_COMPILE_THRESHOLD}です。</p>
+     */
+    @Getter
+    private volatile int compileThreshold = MIXED_COMPILE_THRESHOLD;
+
+    /**
+     * コンパイルを諦めてインタプリタでのみ評価するようになるまでの、コンパイルや評価の失敗回数。
+     * <p>初期値は{@value #MAX_COMPILE_FAILURES}です。</p>
+     */
+    @Getter
+    private volatile int maxCompileFailures = MAX_COMPILE_FAILURES;
+
+    /**
+     * 評価をまたいでプロパティアクセッサやメソッドリゾルバを再利用するかどうか。
+     * <p>初期値は{@literal true}で、{@link #getSharedEvaluationContext()}を共有します。</p>
+     */
+    @Getter
+    @Setter
+    private boolean reuseEvaluationContext = true;
+
+    /**
+     * 変数の参照と、プロパティの参照や引数なしのメソッドの呼び出しのみで構成される式を、SpELを使わずに評価するかどうか。
+     * <p>初期値は{@literal true}です。共有のコンテキストに独自のプロパティアクセッサを追加した場合など、
+     *    常にSpELで評価する場合は{@literal false}を指定します。</p>
+     */
+    @Getter
+    @Setter
+    private boolean optimizePropertyPath = true;
+
+    /**
+     * 引数がリテラルと単純な式のみで構成されるカスタム関数の呼び出しを、SpELを使わずに評価するかどうか。
+     * <p>初期値は{@literal true}です。</p>
+     */
+    @Getter
+    @Setter
+    private boolean optimizeFunctionCall = true;
+
+    /**
+     * 評価をまたいで共有するコンテキスト。
+     * <p>プロパティアクセッサなどを追加する場合は、評価を開始する前に行ってください。
+     *    変数とカスタム関数は参照しないため、登録しても反映されません。</p>
+     */
+    @Getter
+    private final StandardEvaluationContext sharedEvaluationContext;
+
+    /**
+     * EL式のパースと評価を通知するリスナー
+     */
+    @Getter
+    @Setter
+    private volatile ExpressionListener expressionListener;
 
     /**
      * EL式のパーサ
@@ -42,6 +156,13 @@ public class SpelExpressionEvaluator implements ExpressionEvaluator {
     @Getter
     private final Map<String, Method> customFunctions;
 
+    /**
+     * カスタム関数を {@link java.lang.invoke.MethodHandle} で呼び出すためのレジストリ。
+     * {@link #getCustomFunctions()}を参照するため、追加したカスタム関数も反映されます。
+     */
+    @Getter
+    private final FunctionRegistry functionRegistry;
+
     /**
      * EL式中で使用するカスタム関数を指定してインスタンスを作成します。
      * @param expressionParser EL式のパーサ
@@ -50,6 +171,8 @@ public class SpelExpressionEvaluator implements ExpressionEvaluator {
     public SpelExpressionEvaluator(@NonNull ExpressionParser expressionParser, @NonNull Map<String, Method> customFunctions) {
         this.expressionParser = expressionParser;
         this.customFunctions = new ConcurrentHashMap<>(customFunctions);
+        this.functionRegistry = new FunctionRegistry(this.customFunctions);
+        this.sharedEvaluationContext = createSharedEvaluationContext();
     }
 
     /**
@@ -71,30 +194,172 @@ public class SpelExpressionEvaluator implements ExpressionEvaluator {
     @Override
     public Object evaluate(@NonNull final String expression, @NonNull final Map<String, Object> variables) {
 
+        final ExpressionListener listener = expressionListener;
+        if(listener == null) {
+            return parse(expression).evaluate(variables);
+        }
+
+        final boolean[] loaded = new boolean[1];
+        return parse(expression, listener, loaded).evaluate(variables, !loaded[0]);
+    }
+
+    @Override
+    public ParsedExpression parse(@NonNull final String expression) {
+
+        final ExpressionListener listener = expressionListener;
+        if(listener == null) {
+            Assert.hasLength(expression, "expression should not be empty.");
+            return expressionCache.get(expression, key -> new CachedExpression(key, expressionParser.parseExpression(key)));
+        }
+
+        return parse(expression, listener, new boolean[1]);
+
+    }
+
+    /**
+     * 式をパースし、リスナーに通知します。
+     * @param expression EL式
+     * @param listener リスナー
+     * @param loaded パースした式がキャッシュに存在しなかったかどうかを格納する配列
+     * @return パース済みの式
+     */
+    private CachedExpression parse(final String expression, final ExpressionListener listener, final boolean[] loaded) {
+
         Assert.hasLength(expression, "expression should not be empty.");
 
-        if(log.isDebugEnabled()) {
-            log.debug("Evaluating SpEL expression: {}", expression);
+        final long start = System.nanoTime();
+        final CachedExpression cached = expressionCache.get(expression, key -> {
+            loaded[0] = true;
+            return new CachedExpression(key, expressionParser.parseExpression(key));
+        });
+        listener.onExpressionParsed(expression, !loaded[0], System.nanoTime() - start);
+
+        return cached;
+    }
+
+    /**
+     * コンパイルモードが{@link SpelCompilerMode#MIXED}のとき、コンパイルするまでにインタプリタで評価する回数を設定します。
+     * <p>評価済みの式にも、次の評価から反映されます。</p>
+     * @param compileThreshold コンパイルするまでにインタプリタで評価する回数
+     * @throws IllegalArgumentException {@literal compileThreshold < 1}の場合。
+     */
+    public void setCompileThreshold(final int compileThreshold) {
+        Assert.isTrue(compileThreshold > 0, "compileThreshold should be greater than 0.");
+        this.compileThreshold = compileThreshold;
+    }
+
+    /**
+     * コンパイルを諦めてインタプリタでのみ評価するようになるまでの、コンパイルや評価の失敗回数を設定します。
+     * @param maxCompileFailures コンパイルや評価の失敗回数
+     * @throws IllegalArgumentException {@literal maxCompileFailures < 1}の場合。
+     */
+    public void setMaxCompileFailures(final int maxCompileFailures) {
+        Assert.isTrue(maxCompileFailures > 0, "maxCompileFailures should be greater than 0.");
+        this.maxCompileFailures = maxCompileFailures;
+    }
+
+    /**
+     * キャッシュ中の式のうち、コンパイル済みの式を取得します。
+     * @return コンパイル済みの式の文字列。
+     */
+    public Set<String> getCompiledExpressions() {
+
+        final Set<String> compiled = new TreeSet<>();
+        expressionCache.forEach((key, value) -> {
+            if(value.isCompiled()) {
+                compiled.add(key);
+            }
+        });
+
+        return compiled;
+    }
+
+    /**
+     * 変数を参照せず、評価する度に同じ値を返すノードかどうか判定します。
+     * <p>リテラル、演算子、インラインのリスト/マップと、{@link CustomFunctions}の関数の呼び出しのみで構成される場合に定数とみなします。
+     *    変数、プロパティ、メソッド、型の参照を含む場合は、評価する度に値が変わる可能性があるため定数とはみなしません。</p>
+     * @param node 判定対象のノード
+     * @return {@literal true}のとき定数です。
+     */
+    private boolean isConstantNode(final SpelNode node) {
+
+        if(node instanceof Literal) {
+            return true;
+
+        } else if(node instanceof FunctionReference) {
+            // ASTの文字列表現 "#name(...)" から関数名を取得する。
+            final String ast = node.toStringAST();
+            final int index = ast.indexOf('(');
+            final Method method = index > 1 ? customFunctions.get(ast.substring(1, index)) : null;
+            if(method == null || method.getDeclaringClass() != CustomFunctions.class) {
+                return false;
+            }
+
+        } else if(!(node instanceof Operator || node instanceof OperatorNot || node instanceof Ternary
+                || node instanceof Elvis || node instanceof InlineList || node instanceof InlineMap)) {
+            return false;
+        }
+
+        for(int i=0; i < node.getChildCount(); i++) {
+            if(!isConstantNode(node.getChild(i))) {
+                return false;
+            }
         }
 
-        Expression expr = expressionCache.get(expression);
-        if(expr == null) {
-            expr = expressionParser.parseExpression(expression);
-            expressionCache.put(expression, expr);
+        return true;
+    }
+
+    /**
+     * {@link PropertyPath}で呼び出したgetterやメソッドの例外を、SpELで評価した場合と同じ形式の例外に変換します。
+     * <p>メソッドがスローした実行時例外はそのまま、プロパティの参照時の例外は {@link SpelEvaluationException} に変換します。</p>
+     * @param e getterやメソッドの呼び出し時の例外
+     * @return 変換した例外
+     */
+    private static RuntimeException translateInvocationException(final PropertyPath.InvocationException e) {
+
+        final Throwable cause = e.getCause();
+        if(!e.isMethod()) {
+            return new SpelEvaluationException(0, cause, SpelMessage.EXCEPTION_DURING_PROPERTY_READ,
+                    e.getName(), cause.getMessage());
+
+        } else if(cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
         }
 
-        final EvaluationContext context = createEvaluationContext(variables);
-        return expr.getValue(context);
+        return new ExpressionInvocationTargetException(0,
+                String.format("A problem occurred within method '%s' invoked on the receiver", e.getName()), cause);
+    }
 
+    /**
+     * 評価をまたいで共有するコンテキストを作成します。
+     * <p>遅延して初期化される値を、複数のスレッドから同時に初期化しないよう、作成時に初期化しておきます。</p>
+     * @return 共有するコンテキスト
+     */
+    private static StandardEvaluationContext createSharedEvaluationContext() {
+
+        final StandardEvaluationContext context = new StandardEvaluationContext();
+        context.getPropertyAccessors();
+        context.getConstructorResolvers();
+        context.getMethodResolvers();
+        context.getTypeLocator();
+        context.getTypeConverter();
+
+        return context;
     }
 
     /**
      * コンテキストを作成します。
+     * <p>{@link #isReuseEvaluationContext()}が{@literal true}のときは、共有のコンテキストに委譲する
+     *    {@link ScopedEvaluationContext}を作成します。変数とカスタム関数のマップはコピーしません。</p>
      * @param variables 式中で利用する変数
      * @return SpELのコンテキスト
      */
     protected EvaluationContext createEvaluationContext(final Map<String, Object> variables) {
 
+        if(reuseEvaluationContext) {
+            return new ScopedEvaluationContext(sharedEvaluationContext, customFunctions, variables);
+        }
+
         final StandardEvaluationContext  context = new StandardEvaluationContext();
 
         // 変数の登録
@@ -106,4 +371,282 @@ public class SpelExpressionEvaluator implements ExpressionEvaluator {
         return context;
     }
 
+    /**
+     * キャッシュするパース済みの式。
+     * <p>コンパイルモードに従い、式のコンパイルとインタプリタへの切り戻しを管理します。</p>
+     *
+     */
+    public class CachedExpression implements ParsedExpression {
+
+        /**
+         * 式の文字列
+         */
+        @Getter
+        private final String expressionString;
+
+        /**
+         * パースしたSpELの式
+         */
+        @Getter
+        private final Expression expression;
+
+        /**
+         * コンパイル済みかどうか
+         */
+        private volatile boolean compiled;
+
+        /**
+         * コンパイルを諦めたかどうか
+         */
+        private volatile boolean interpretedOnly;
+
+        /**
+         * 前回コンパイルを試みてから、インタプリタで評価した回数。
+         * 複数のスレッドから更新するが、コンパイルする時期の目安としてのみ使用するため、更新が欠落しても問題はない。
+         */
+        private volatile int interpretedCount;
+
+        /**
+         * 評価した回数。
+         * {@link #interpretedCount}と同様に、更新が欠落することがあるため目安としてのみ使用する。
+         */
+        private volatile long evaluationCount;
+
+        /**
+         * コンパイルや、コンパイルした式の評価に失敗した回数
+         */
+        private final AtomicInteger failureCount = new AtomicInteger();
+
+        /**
+         * 変数を参照しない定数式かどうか
+         */
+        private final boolean constant;
+
+        /**
+         * SpELを使わずに評価できる単純な式。該当しない場合は{@literal null}。
+         */
+        private final PropertyPath propertyPath;
+
+        /**
+         * SpELを使わずに評価できるカスタム関数の呼び出し。該当しない場合は{@literal null}。
+         */
+        private final FunctionCall functionCall;
+
+        CachedExpression(final String expressionString, final Expression expression) {
+            this.expressionString = expressionString;
+            this.expression = expression;
+            this.constant = expression instanceof SpelExpression
+                    && isConstantNode(((SpelExpression) expression).getAST());
+            this.propertyPath = PropertyPath.parseSpel(expressionString);
+            this.functionCall = propertyPath == null ? FunctionCall.parseSpel(expressionString) : null;
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>リテラル、演算子と、{@link CustomFunctions}の関数の呼び出しのみで構成される場合に定数式と判定します。</p>
+         */
+        @Override
+        public boolean isConstant() {
+            return constant;
+        }
+
+        /**
+         * コンパイル済みかどうか判定します。
+         * @return {@literal true}のときコンパイル済みです。
+         */
+        public boolean isCompiled() {
+            return compiled;
+        }
+
+        /**
+         * コンパイルを諦めて、インタプリタでのみ評価するかどうか判定します。
+         * @return {@literal true}のとき、インタプリタでのみ評価します。
+         */
+        public boolean isInterpretedOnly() {
+            return interpretedOnly;
+        }
+
+        /**
+         * 評価した回数を取得します。
+         * <p>複数のスレッドから同時に評価した場合、実際の回数より少なくなることがあります。</p>
+         * @return 評価した回数の目安
+         */
+        public long getEvaluationCount() {
+            return evaluationCount;
+        }
+
+        /**
+         * コンパイルや、コンパイルした式の評価に失敗した回数を取得します。
+         * @return 失敗した回数。
+         */
+        public int getCompileFailureCount() {
+            return failureCount.get();
+        }
+
+        @Override
+        public Object evaluate(@NonNull final Map<String, Object> variables) {
+            return evaluate(variables, true);
+        }
+
+        /**
+         * 式を評価します。
+         * @param variables 式中で利用可な変数。
+         * @param cacheHit パースした式をキャッシュから取得したかどうか。リスナーに通知します。
+         * @return 評価した結果
+         */
+        private Object evaluate(final Map<String, Object> variables, final boolean cacheHit) {
+
+            if(log.isDebugEnabled()) {
+                log.debug("Evaluating SpEL expression: {}", expressionString);
+            }
+
+            final ExpressionListener listener = expressionListener;
+            if(listener == null) {
+                return evaluateValue(variables);
+            }
+
+            final long start = System.nanoTime();
+            final Object value = evaluateValue(variables);
+            listener.onExpressionEvaluated(expressionString, cacheHit, System.nanoTime() - start);
+
+            return value;
+        }
+
+        private Object evaluateValue(final Map<String, Object> variables) {
+
+            if(propertyPath != null && optimizePropertyPath) {
+                final Object value;
+                try {
+                    value = propertyPath.evaluate(variables);
+                } catch(PropertyPath.InvocationException e) {
+                    throw translateInvocationException(e);
+                }
+
+                if(value != PropertyPath.UNRESOLVED) {
+                    return value;
+                }
+
+            } else if(functionCall != null && optimizeFunctionCall) {
+                final Object value = evaluateFunctionCall(variables);
+                if(value != PropertyPath.UNRESOLVED) {
+                    return value;
+                }
+            }
+
+            return evaluate(createEvaluationContext(variables));
+        }
+
+        /**
+         * カスタム関数を {@link FunctionRegistry} で呼び出します。
+         * <p>関数がスローした例外は、SpELで呼び出した場合と同様にラップします。</p>
+         */
+        private Object evaluateFunctionCall(final Map<String, Object> variables) {
+
+            final FunctionRegistry.Function function = functionRegistry.lookup(functionCall.getName());
+            if(function == null) {
+                return PropertyPath.UNRESOLVED;
+            }
+
+            try {
+                return functionCall.evaluate(function, variables);
+
+            } catch(PropertyPath.InvocationException e) {
+                throw translateInvocationException(e);
+
+            } catch(RuntimeException e) {
+                throw new SpelEvaluationException(0, e, SpelMessage.EXCEPTION_DURING_FUNCTION_CALL,
+                        functionCall.getName(), e.getMessage());
+            }
+        }
+
+        private Object evaluate(final EvaluationContext context) {
+
+            evaluationCount++;
+
+            if(compiled) {
+                try {
+                    return expression.getValue(context);
+
+                } catch(SpelEvaluationException e) {
+                    if(e.getMessageCode() != SpelMessage.EXCEPTION_RUNNING_COMPILED_EXPRESSION) {
+                        throw e;
+                    }
+
+                    // 変数の型が変わった場合など、インタプリタで評価し直す。
+                    revertToInterpreted(e);
+                }
+            }
+
+            final Object value = expression.getValue(context);
+            if(compilerMode != SpelCompilerMode.OFF && !interpretedOnly) {
+                checkCompile();
+            }
+
+            return value;
+        }
+
+        /**
+         * インタプリタでの評価回数がしきい値に達した場合、式をコンパイルします。
+         */
+        private void checkCompile() {
+
+            final int count = interpretedCount + 1;
+            interpretedCount = count;
+
+            final int threshold = compilerMode == SpelCompilerMode.IMMEDIATE ? 1 : compileThreshold;
+            if(count < threshold || !(expression instanceof SpelExpression)) {
+                return;
+            }
+
+            interpretedCount = 0;
+
+            final SpelExpression spelExpression = (SpelExpression) expression;
+            final boolean success;
+            try {
+                success = spelExpression.compileExpression();
+
+            } catch(RuntimeException e) {
+                // 直前の評価と型が異なる場合など、生成したバイトコードが不正な場合。
+                log.debug("Failed to compile SpEL expression: {}", expressionString, e);
+                spelExpression.revertToInterpreted();
+                recordFailure();
+                return;
+            }
+
+            if(success) {
+                compiled = true;
+                if(log.isDebugEnabled()) {
+                    log.debug("Compiled SpEL expression: {}", expressionString);
+                }
+
+            } else {
+                recordFailure();
+            }
+        }
+
+        /**
+         * コンパイルした式を破棄し、インタプリタでの評価に戻します。
+         * @param cause コンパイルした式の評価に失敗した原因
+         */
+        private void revertToInterpreted(final SpelEvaluationException cause) {
+
+            compiled = false;
+            interpretedCount = 0;
+            ((SpelExpression) expression).revertToInterpreted();
+
+            if(log.isDebugEnabled()) {
+                log.debug("Reverted compiled SpEL expression to interpreted: {}", expressionString, cause);
+            }
+
+            recordFailure();
+        }
+
+        private void recordFailure() {
+            if(failureCount.incrementAndGet() >= maxCompileFailures) {
+                interpretedOnly = true;
+            }
+        }
+
+    }
+
 }
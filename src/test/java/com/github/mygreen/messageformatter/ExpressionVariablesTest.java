@@ -0,0 +1,104 @@
+package com.github.mygreen.messageformatter;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.Formatter;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * {@link ExpressionVariables}のテスト
+ *
+ *
+ * @author T.TSUCHIE
+ *
+ */
+class ExpressionVariablesTest {
+
+    @DisplayName("呼び出し元の変数を参照する")
+    @Test
+    void testGet() {
+
+        Map<String, Object> values = new HashMap<>();
+        values.put("min", 1);
+
+        ExpressionVariables variables = new ExpressionVariables(values);
+        assertThat(variables.get("min")).isEqualTo(1);
+        assertThat(variables.containsKey("min")).isTrue();
+
+        // コピーしていないため、呼び出し元の変更が反映される
+        values.put("max", 10);
+        assertThat(variables.get("max")).isEqualTo(10);
+
+        assertThat(variables.get("other")).isNull();
+        assertThat(variables.containsKey("other")).isFalse();
+
+    }
+
+    @DisplayName("組み込みの変数は参照されたときに作成する")
+    @Test
+    void testGet_builtin() {
+
+        ExpressionVariables variables = new ExpressionVariables(Map.of("min", 1));
+        assertThat(variables.containsKey("formatter")).isTrue();
+
+        Object formatter = variables.get("formatter");
+        assertThat(formatter).isInstanceOf(Formatter.class);
+
+        // 同じインスタンスを使い回す
+        assertThat(variables.get("formatter")).isSameAs(formatter);
+
+        // 評価ごとに別のインスタンスを作成する
+        assertThat(new ExpressionVariables(Map.of()).get("formatter")).isNotSameAs(formatter);
+
+    }
+
+    @DisplayName("呼び出し元で組み込みの変数と同名の変数を指定した場合")
+    @Test
+    void testGet_builtinOverridden() {
+
+        Map<String, Object> values = new HashMap<>();
+        values.put("formatter", "custom");
+
+        assertThat(new ExpressionVariables(values).get("formatter")).isEqualTo("custom");
+
+        // 値がnullの場合は組み込みの変数を作成する
+        values.put("formatter", null);
+        assertThat(new ExpressionVariables(values).get("formatter")).isInstanceOf(Formatter.class);
+
+    }
+
+    @DisplayName("代入した値は呼び出し元の変数を変更しない")
+    @Test
+    void testPut() {
+
+        Map<String, Object> values = Map.of("min", 1);
+
+        ExpressionVariables variables = new ExpressionVariables(values);
+        assertThat(variables.put("min", 2)).isEqualTo(1);
+        assertThat(variables.put("max", 10)).isNull();
+
+        assertThat(variables.get("min")).isEqualTo(2);
+        assertThat(variables.get("max")).isEqualTo(10);
+        assertThat(values).containsOnlyKeys("min").containsEntry("min", 1);
+
+    }
+
+    @DisplayName("全ての変数を列挙する")
+    @Test
+    void testEntrySet() {
+
+        ExpressionVariables variables = new ExpressionVariables(Map.of("min", 1));
+        variables.put("max", 10);
+
+        assertThat(variables).containsOnlyKeys("min", "max", "formatter")
+            .containsEntry("min", 1)
+            .containsEntry("max", 10);
+        assertThat(variables.get("formatter")).isInstanceOf(Formatter.class);
+
+    }
+}
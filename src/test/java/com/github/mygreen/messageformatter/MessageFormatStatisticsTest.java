@@ -0,0 +1,70 @@
+package com.github.mygreen.messageformatter;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.Locale;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * {@link MessageFormatStatistics}のテスト
+ *
+ *
+ * @author T.TSUCHIE
+ *
+ */
+class MessageFormatStatisticsTest {
+
+    @DisplayName("処理時間の集計")
+    @Test
+    void testTimer() {
+
+        MessageFormatStatistics.Timer timer = new MessageFormatStatistics.Timer();
+        assertThat(timer.getPercentileNanos(0.5)).isEqualTo(0L);
+
+        for(int i=1; i <= 100; i++) {
+            timer.record(i * 100L);
+        }
+
+        assertThat(timer.getCount()).isEqualTo(100);
+        assertThat(timer.getTotalNanos()).isEqualTo(505_000L);
+        assertThat(timer.getMaxNanos()).isEqualTo(10_000L);
+        assertThat(timer.getMeanNanos()).isEqualTo(5_050.0);
+
+        // 2のべき乗の区間の上限値で近似する
+        assertThat(timer.getPercentileNanos(0.5)).isBetween(5_000L, 8_191L);
+        assertThat(timer.getPercentileNanos(0.99)).isBetween(9_900L, 10_000L);
+        assertThat(timer.getPercentileNanos(1.0)).isEqualTo(10_000L);
+
+        assertThatThrownBy(() -> timer.getPercentileNanos(1.5))
+            .isInstanceOf(IllegalArgumentException.class);
+
+    }
+
+    @DisplayName("集計するキーの最大数を超えた場合")
+    @Test
+    void testMaxKeys() {
+
+        MessageFormatStatistics statistics = new MessageFormatStatistics(2);
+        statistics.onFormatted("code1", Locale.JAPANESE, 10L);
+        statistics.onFormatted("code2", Locale.JAPANESE, 10L);
+        statistics.onFormatted("code3", Locale.JAPANESE, 10L);
+        statistics.onFormatted("code4", Locale.JAPANESE, 10L);
+        statistics.onFormatted("code1", Locale.JAPANESE, 10L);
+
+        assertThat(statistics.getFormatTimers()).containsOnlyKeys("code1", "code2", MessageFormatStatistics.OTHER_KEY);
+        assertThat(statistics.getFormatTimers().get("code1").getCount()).isEqualTo(2);
+        assertThat(statistics.getFormatTimers().get(MessageFormatStatistics.OTHER_KEY).getCount()).isEqualTo(2);
+
+        statistics.onMissingCode("abc", null);
+        statistics.onMissingCode("abc", null);
+        assertThat(statistics.getMissingCodes()).containsEntry("abc", 2L);
+
+        assertThatThrownBy(() -> new MessageFormatStatistics(0))
+            .isInstanceOf(IllegalArgumentException.class);
+
+    }
+
+}
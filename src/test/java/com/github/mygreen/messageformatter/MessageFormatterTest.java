@@ -2,15 +2,36 @@ package com.github.mygreen.messageformatter;
 
 import static org.assertj.core.api.Assertions.*;
 
+import java.io.IOException;
+import java.io.StringWriter;
 import java.lang.annotation.Documented;
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.NoSuchMessageException;
+import org.springframework.context.support.ReloadableResourceBundleMessageSource;
 import org.springframework.context.support.ResourceBundleMessageSource;
+import org.springframework.context.support.StaticMessageSource;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.expression.ParseException;
 
 import com.github.mygreen.messageformatter.expression.SpelExpressionEvaluator;
 
@@ -50,6 +71,37 @@ class MessageFormatterTest {
 
     }
 
+    @Test
+    void testFormat_paramLazy() {
+
+        AtomicInteger count = new AtomicInteger();
+
+        String result = messageFormatter.create("test.message01")
+                .paramLazy("validatedValue", () -> 3.1)
+                .param("min", 1)
+                .param("max", 10)
+                .paramLazy("unused", () -> count.incrementAndGet())
+                .format();
+
+        assertThat(result).isEqualTo("メッセージ：3.10は、1～10の範囲で入力してください。");
+        assertThat(count).hasValue(0);
+
+    }
+
+    @Test
+    void testFormat_paramNullKey() {
+
+        MessageFormatter.Builder builder = messageFormatter.create("test.message01");
+
+        assertThatThrownBy(() -> builder.param(null, 1))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> builder.param(null, 1, 2))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> builder.paramLazy(null, () -> 1))
+                .isInstanceOf(IllegalArgumentException.class);
+
+    }
+
     @Test
     void testFormatRecursively() {
 
@@ -74,6 +126,304 @@ class MessageFormatterTest {
 
     }
 
+    @Test
+    void testFormatTo() throws IOException {
+
+        StringWriter writer = new StringWriter();
+        writer.append("[");
+
+        messageFormatter.create("test.message01")
+                .param("validatedValue", 3.1)
+                .param("min", 1)
+                .param("max", 10)
+                .formatTo(writer);
+
+        assertThat(writer.toString()).isEqualTo("[メッセージ：3.10は、1～10の範囲で入力してください。");
+
+    }
+
+    @Test
+    void testFormatRecursivelyTo() throws IOException {
+
+        StringBuilder sb = new StringBuilder();
+
+        messageFormatter.create("test.recursive")
+                .param("value", "{min}")
+                .formatRecursivelyTo(sb);
+
+        assertThat(sb.toString()).isEqualTo("再帰的なメッセージ：{abc}=3");
+
+    }
+
+    @Test
+    void testFormatAll() {
+
+        List<MessageRequest> requests = List.of(
+                messageFormatter.create("test.message01", Locale.JAPANESE)
+                    .param("validatedValue", 3.1)
+                    .param("min", 1)
+                    .param("max", 10)
+                    .toRequest(),
+                MessageRequest.of("test.recursive", Locale.JAPANESE, Map.of("value", "{min}")).recursively(0),
+                MessageRequest.of("test.recursive", Locale.JAPANESE, Map.of("value", "{min}")));
+
+        List<String> results = messageFormatter.formatAll(requests);
+        assertThat(results).containsExactly(
+                "メッセージ：3.10は、1～10の範囲で入力してください。",
+                "再帰的なメッセージ：{abc}=3",
+                "再帰的なメッセージ：{abc}={min}");
+
+        // 存在しないメッセージコードの場合
+        assertThatThrownBy(() -> messageFormatter.formatAll(List.of(MessageRequest.of("test.notFound", Locale.JAPANESE))))
+            .isInstanceOf(NoSuchMessageException.class);
+
+    }
+
+    @Test
+    void testFormatAll_executor() {
+
+        ResourceBundleMessageSource messageSource = new ResourceBundleMessageSource();
+        messageSource.addBasenames("precompile_messages");
+        messageSource.setDefaultEncoding("UTF-8");
+        messageSource.setFallbackToSystemLocale(false);
+
+        MessageFormatter formatter = new MessageFormatter(messageSource, new MessageInterpolator(new SpelExpressionEvaluator()));
+
+        List<MessageRequest> requests = new ArrayList<>();
+        for(int i=0; i < MessageFormatter.FORMAT_ALL_CHUNK_SIZE * 3; i++) {
+            Locale locale = (i % 2 == 0) ? Locale.JAPANESE : Locale.ENGLISH;
+            if(i % 3 == 0) {
+                requests.add(MessageRequest.of("valid.el", locale, Map.of("value", (double) i)));
+            } else {
+                requests.add(MessageRequest.of("valid.var", locale, Map.of("value", i, "min", 0, "max", i + 1)));
+            }
+        }
+
+        List<String> expected = formatter.formatAll(requests);
+        assertThat(expected).hasSize(requests.size());
+        assertThat(expected.get(3)).isEqualTo("3.00を入力してください。");
+        assertThat(expected.get(4)).isEqualTo("4は、0～5の範囲で入力してください。");
+
+        assertThat(formatter.formatAll(requests, ForkJoinPool.commonPool())).isEqualTo(expected);
+
+        // ロケールごとに分ける
+        Map<Locale, List<String>> grouped = formatter.formatAllByLocale(requests, ForkJoinPool.commonPool());
+        assertThat(grouped).containsOnlyKeys(Locale.JAPANESE, Locale.ENGLISH);
+        assertThat(grouped.get(Locale.ENGLISH)).hasSize(requests.size() / 2)
+            .startsWith(expected.get(1), expected.get(3));
+        assertThat(formatter.formatAllByLocale(requests)).isEqualTo(grouped);
+
+    }
+
+    @Test
+    void testPrepare() throws IOException {
+
+        PreparedMessage prepared = messageFormatter.prepare("test.recursive", Locale.JAPANESE);
+        assertThat(prepared.getMessage()).isEqualTo("再帰的なメッセージ：{abc}=${#value}");
+
+        assertThat(prepared.bind(Map.of("value", "{min}")).format()).isEqualTo("再帰的なメッセージ：{abc}={min}");
+        assertThat(prepared.bind(Map.of("value", "{min}")).formatRecursively()).isEqualTo("再帰的なメッセージ：{abc}=3");
+
+        StringBuilder sb = new StringBuilder();
+        prepared.bind(Map.of("value", 5)).formatTo(sb);
+        assertThat(sb.toString()).isEqualTo("再帰的なメッセージ：{abc}=5");
+
+        // スロット番号を割り当てたパラメータ
+        MessageParams params = prepared.newParams().set("value", 7);
+        assertThat(prepared.getSlot("abc")).isEqualTo(0);
+        assertThat(prepared.bind(params).format()).isEqualTo("再帰的なメッセージ：{abc}=7");
+
+        // 存在しないメッセージコードの場合
+        assertThatThrownBy(() -> messageFormatter.prepare("test.notFound", Locale.JAPANESE))
+            .isInstanceOf(NoSuchMessageException.class);
+
+    }
+
+    @Test
+    void testPrepare_reload() {
+
+        StaticMessageSource messageSource = new StaticMessageSource();
+        messageSource.addMessage("hello", Locale.JAPANESE, "こんにちは、{name}");
+
+        MessageFormatter formatter = new MessageFormatter(messageSource, new MessageInterpolator(new SpelExpressionEvaluator()));
+        PreparedMessage prepared = formatter.prepare("hello", Locale.JAPANESE);
+
+        // メッセージソースは参照しない
+        messageSource.addMessage("hello", Locale.JAPANESE, "さようなら、{name}");
+        assertThat(prepared.bind(Map.of("name", "山田")).format()).isEqualTo("こんにちは、山田");
+
+        // キャッシュを削除すると、取得し直す
+        formatter.clearCache();
+        assertThat(prepared.bind(Map.of("name", "山田")).format()).isEqualTo("さようなら、山田");
+
+        // 有効期間が過ぎた場合も、取得し直す
+        formatter.getMessageInterpolator().getMessageCodeCache().setCacheMillis(0);
+        messageSource.addMessage("hello", Locale.JAPANESE, "こんばんは、{name}");
+        assertThat(prepared.bind(Map.of("name", "山田")).format()).isEqualTo("こんばんは、山田");
+
+    }
+
+    @Test
+    void testListener() {
+
+        MessageFormatStatistics statistics = new MessageFormatStatistics();
+        messageFormatter.setListener(statistics);
+
+        for(int i=0; i < 3; i++) {
+            messageFormatter.create("test.message01")
+                .param("validatedValue", 3.1)
+                .param("min", 1)
+                .param("max", 10)
+                .format();
+        }
+
+        messageFormatter.create("test.recursiveMax")
+            .param("value", "{max}")
+            .formatRecursively(5);
+
+        assertThat(statistics.getFormatTimers()).containsOnlyKeys("test.message01", "test.recursiveMax");
+        assertThat(statistics.getFormatTimers().get("test.message01").getCount()).isEqualTo(3);
+
+        // メッセージソースからの取得は、メッセージ中の変数の解決も含む
+        assertThat(statistics.getMessageLookupTimer().getCount()).isGreaterThanOrEqualTo(4);
+
+        assertThat(statistics.getTemplateCacheMissCount()).isGreaterThanOrEqualTo(2);
+        assertThat(statistics.getTemplateCacheHitCount()).isGreaterThanOrEqualTo(2);
+        assertThat(statistics.getCompileTimer().getCount()).isGreaterThanOrEqualTo(statistics.getTemplateCacheMissCount());
+
+        assertThat(statistics.getExpressionTimers().get("#formatter.format('%1.2f', #validatedValue)").getCount()).isEqualTo(3);
+        assertThat(statistics.getExpressionCacheMissCount()).isGreaterThanOrEqualTo(1);
+
+        // 変数にもメッセージコードにも存在しない変数
+        assertThat(statistics.getMissingCodes()).containsKey("abc");
+        assertThat(statistics.getMaxRecursionDepth()).isGreaterThan(0);
+        assertThat(statistics.getRecursionLimitCount() + statistics.getCycleCount()).isGreaterThan(0);
+
+        // リスナーを解除すると通知されない
+        messageFormatter.setListener(null);
+        messageFormatter.create("test.message01")
+            .param("validatedValue", 3.1)
+            .format();
+        assertThat(statistics.getFormatTimers().get("test.message01").getCount()).isEqualTo(3);
+
+        statistics.reset();
+        assertThat(statistics.getFormatTimers()).isEmpty();
+        assertThat(statistics.getTemplateCacheHitCount()).isEqualTo(0);
+
+    }
+
+    @Test
+    void testPrecompile() {
+
+        ResourceBundleMessageSource messageSource = new ResourceBundleMessageSource();
+        messageSource.addBasenames("precompile_messages");
+        messageSource.setDefaultEncoding("UTF-8");
+        messageSource.setFallbackToSystemLocale(false);
+
+        MessageInterpolator messageInterpolator = new MessageInterpolator(new SpelExpressionEvaluator());
+        MessageFormatter formatter = new MessageFormatter(messageSource, messageInterpolator);
+
+        PrecompileResult result = formatter.precompile(List.of(Locale.JAPANESE, Locale.ENGLISH));
+
+        // 英語のロケールのみ、valid.en が追加される
+        assertThat(result.getMessageCount()).isEqualTo(11);
+        assertThat(result.isSuccess()).isFalse();
+
+        // 失敗したメッセージは、ロケールごとに全て含まれる
+        assertThat(result.getFailures()).hasSize(6);
+        assertThat(result.getFailures()).filteredOn(f -> f.getLocale().equals(Locale.JAPANESE))
+            .extracting(PrecompileResult.Failure::getCode)
+            .containsExactly("invalid.elSyntax", "invalid.emptyExpression", "invalid.notSupport");
+
+        assertThat(result.getFailures()).filteredOn(f -> f.getCode().equals("invalid.notSupport"))
+            .allSatisfy(f -> assertThat(f.getCause()).isInstanceOf(MessageParseException.class));
+        assertThat(result.getFailures()).filteredOn(f -> f.getCode().equals("invalid.emptyExpression"))
+            .allSatisfy(f -> assertThat(f.getCause()).isInstanceOf(IllegalArgumentException.class));
+        assertThat(result.getFailures()).filteredOn(f -> f.getCode().equals("invalid.elSyntax"))
+            .allSatisfy(f -> assertThat(f.getCause()).isInstanceOf(ParseException.class));
+
+        // コンパイルに成功したメッセージはキャッシュされる
+        assertThat(messageInterpolator.getTemplateCache().contains("English message {value}.")).isTrue();
+
+    }
+
+    @Test
+    void testPrecompile_reloadable() {
+
+        ReloadableResourceBundleMessageSource messageSource = new ReloadableResourceBundleMessageSource();
+        messageSource.addBasenames("classpath:precompile_messages");
+        messageSource.setDefaultEncoding("UTF-8");
+        messageSource.setFallbackToSystemLocale(false);
+
+        MessageFormatter formatter = new MessageFormatter(messageSource, new MessageInterpolator(new SpelExpressionEvaluator()));
+
+        PrecompileResult result = formatter.precompile(List.of(Locale.ENGLISH));
+        assertThat(result.getMessageCount()).isEqualTo(6);
+        assertThat(result.getFailures()).extracting(PrecompileResult.Failure::getCode)
+            .containsExactly("invalid.elSyntax", "invalid.emptyExpression", "invalid.notSupport");
+
+    }
+
+    @Test
+    void testPrecompile_messageSourceSettings(@TempDir Path tempDir) throws IOException {
+
+        Files.write(tempDir.resolve("custom_messages.properties"),
+                List.of("custom.message=カスタムのメッセージ{value}"), StandardCharsets.UTF_8);
+
+        // メッセージソースに設定したクラスローダーから読み込む
+        try(URLClassLoader classLoader = new URLClassLoader(new URL[] {tempDir.toUri().toURL()}, null)) {
+            ResourceBundleMessageSource messageSource = new ResourceBundleMessageSource();
+            messageSource.addBasenames("custom_messages");
+            messageSource.setBundleClassLoader(classLoader);
+            messageSource.setDefaultEncoding("UTF-8");
+            messageSource.setFallbackToSystemLocale(false);
+
+            MessageInterpolator messageInterpolator = new MessageInterpolator(new SpelExpressionEvaluator());
+            PrecompileResult result = new MessageFormatter(messageSource, messageInterpolator).precompile(List.of(Locale.JAPANESE));
+            assertThat(result.getMessageCount()).isEqualTo(1);
+            assertThat(messageInterpolator.getTemplateCache().contains("カスタムのメッセージ{value}")).isTrue();
+        }
+
+        // メッセージソースに設定したリソースローダーから読み込む
+        ReloadableResourceBundleMessageSource messageSource = new ReloadableResourceBundleMessageSource();
+        messageSource.addBasenames("custom_messages");
+        messageSource.setResourceLoader(new DefaultResourceLoader() {
+
+            @Override
+            protected Resource getResourceByPath(String path) {
+                return new FileSystemResource(tempDir.resolve(path).toFile());
+            }
+        });
+        messageSource.setDefaultEncoding("UTF-8");
+        messageSource.setFallbackToSystemLocale(false);
+
+        MessageInterpolator messageInterpolator = new MessageInterpolator(new SpelExpressionEvaluator());
+        PrecompileResult result = new MessageFormatter(messageSource, messageInterpolator).precompile(List.of(Locale.JAPANESE));
+        assertThat(result.getMessageCount()).isEqualTo(1);
+        assertThat(messageInterpolator.getTemplateCache().contains("カスタムのメッセージ{value}")).isTrue();
+
+    }
+
+    @Test
+    void testPrecompile_notSupportMessageSource() {
+
+        MessageFormatter formatter = new MessageFormatter(new StaticMessageSource(), new MessageInterpolator(new SpelExpressionEvaluator()));
+
+        assertThatThrownBy(() -> formatter.precompile(List.of(Locale.JAPANESE)))
+            .isInstanceOf(IllegalArgumentException.class);
+
+    }
+
+    @Test
+    void testPrecompile_notFoundMethod() {
+
+        // Springのバージョンにより、内部のメソッドが見つからない場合
+        assertThatThrownBy(() -> MessageCodeCollector.findMethod(StaticMessageSource.class, "getMergedProperties", Locale.class))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("not support enumerating message codes");
+
+    }
+
     @Test
     void testVarWithArray() {
 
@@ -2,14 +2,24 @@ package com.github.mygreen.messageformatter;
 
 import static org.assertj.core.api.Assertions.*;
 
+import java.io.IOException;
+import java.io.StringWriter;
 import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalTime;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.springframework.context.support.MessageSourceAccessor;
+import org.springframework.context.support.ReloadableResourceBundleMessageSource;
+import org.springframework.context.support.StaticMessageSource;
 import org.springframework.expression.spel.SpelEvaluationException;
 
 import com.github.mygreen.messageformatter.expression.SpelExpressionEvaluator;
@@ -81,6 +91,67 @@ class MessageInterporlatorTest {
 
     }
 
+    @DisplayName("EL式あり - 式ごとに別のフォーマッターを使用し、変数への代入は呼び出し元に影響しない")
+    @Test
+    void testInterpolate_el03() {
+
+        String message = "${#formatter.format('%d', #min)}～${#formatter.format('%d', #max)}、${#min = 5}";
+
+        Map<String, Object> vars = new HashMap<>();
+        vars.put("min", 1);
+        vars.put("max", 10);
+
+        String actual = interpolator.interpolate(message, vars);
+        assertThat(actual).isEqualTo("1～10、5");
+        assertThat(vars).containsEntry("min", 1).doesNotContainKey("formatter");
+
+    }
+
+    @DisplayName("参照されたときに値を作成する変数")
+    @Test
+    void testInterpolate_lazyVariable() {
+
+        String message = "{name}は、${#min}以上で入力してください。";
+
+        AtomicInteger count = new AtomicInteger();
+
+        Map<String, Object> vars = new HashMap<>();
+        vars.put("name", LazyVariable.of(() -> "名前" + count.incrementAndGet()));
+        vars.put("min", LazyVariable.of(() -> 1));
+        vars.put("unused", LazyVariable.of(() -> {
+            throw new IllegalStateException("should not be called.");
+        }));
+
+        assertThat(interpolator.interpolate(message, vars)).isEqualTo("名前1は、1以上で入力してください。");
+
+        // 作成した値は使い回す
+        assertThat(interpolator.interpolate("{name}、${#name}", vars)).isEqualTo("名前1、名前1");
+        assertThat(count).hasValue(1);
+
+    }
+
+    @DisplayName("参照されたときに値を作成する変数 - 値が空の場合は定義されていないものとして扱う")
+    @Test
+    void testInterpolate_lazyVariable_undefined() {
+
+        String message = "{label}：${#empty(#label) ? '未定義' : #label}";
+
+        StaticMessageSource messageSource = new StaticMessageSource();
+        messageSource.addMessage("label", Locale.getDefault(), "ラベル");
+
+        Map<String, Object> vars = new HashMap<>();
+        vars.put("label", LazyVariable.<String>ofOptional(() -> Optional.empty()));
+
+        assertThat(interpolator.interpolate(message, vars)).isEqualTo("{label}：未定義");
+        assertThat(interpolator.interpolate(message, vars, new MessageSourceAccessor(messageSource)))
+            .isEqualTo("ラベル：未定義");
+
+        // 値がnullの場合は、定義されているものとして扱う
+        vars.put("label", LazyVariable.of(() -> null));
+        assertThat(interpolator.interpolate(message, vars)).isEqualTo("：未定義");
+
+    }
+
     @DisplayName("EL式中にエスケープ文字あり")
     @Test
     void testInterpolate_escape01() {
@@ -117,6 +188,38 @@ class MessageInterporlatorTest {
 
     }
 
+    @DisplayName("エスケープ文字あり - 式の外側")
+    @Test
+    void testInterpolate_escape03() {
+
+        Map<String, Object> vars = new HashMap<>();
+        vars.put("min", 1);
+
+        // エスケープ文字自身のエスケープ
+        assertThat(interpolator.interpolate("\\\\{min}", vars)).isEqualTo("\\1");
+
+        // 末尾のエスケープ文字はそのまま残る
+        assertThat(interpolator.interpolate("{min}\\", vars)).isEqualTo("1\\");
+
+        // 式の外側の'}'はそのまま残る
+        assertThat(interpolator.interpolate("{min}}", vars)).isEqualTo("1}");
+
+    }
+
+    @DisplayName("エスケープ文字あり - 変数名中のエスケープ")
+    @Test
+    void testInterpolate_escape04() {
+
+        Map<String, Object> vars = new HashMap<>();
+        vars.put("a}b", 1);
+
+        assertThat(interpolator.interpolate("[{a\\}b}]", vars)).isEqualTo("[1]");
+
+        // 閉じられていない式は、エスケープを解除した文字列として扱う
+        assertThat(interpolator.interpolate("[{a\\}b", vars)).isEqualTo("[{a}b");
+
+    }
+
     @DisplayName("メッセージ中の式が途中で終わる場合")
     @Test
     void testInterpolate_lack_end() {
@@ -178,6 +281,63 @@ class MessageInterporlatorTest {
 
     }
 
+    @DisplayName("再起的にメッセージを評価する - 循環参照(再帰回数の制限なし)")
+    @Test
+    void testInterpolate_recursive_cycle() {
+
+        String message = "{abc} : {value}, ${#self}";
+
+        Map<String, Object> vars = new HashMap<>();
+        vars.put("value", "[{min}]");
+        vars.put("min", "({value})");
+        vars.put("self", "${#self}");
+
+        String actual = interpolator.interpolate(message, vars, 0);
+        assertThat(actual).isEqualTo("{abc} : [({value})], ${#self}");
+
+    }
+
+    @DisplayName("再起的にメッセージを評価する - 同じ変数の展開結果を再利用する")
+    @Test
+    void testInterpolate_recursive_memoize() {
+
+        String message = "{fragment}-{fragment}-{other}";
+
+        AtomicInteger counter = new AtomicInteger();
+
+        Map<String, Object> vars = new HashMap<>();
+        vars.put("fragment", "${#counter.incrementAndGet()}");
+        vars.put("other", "{fragment}");
+        vars.put("counter", counter);
+
+        // 再帰回数の制限なし
+        assertThat(interpolator.interpolate(message, vars, 0)).isEqualTo("1-1-1");
+        assertThat(counter).hasValue(1);
+
+        // 再帰回数の制限あり。展開する深さが異なる場合は再利用しない。
+        assertThat(interpolator.interpolate(message, vars, 5)).isEqualTo("2-2-3");
+        assertThat(counter).hasValue(3);
+
+    }
+
+    @DisplayName("出力先に追加する - 再帰的に評価する")
+    @Test
+    void testInterpolateTo_recursive() throws IOException {
+
+        String message = "{abc} : ${#value}";
+
+        Map<String, Object> vars = new HashMap<>();
+        vars.put("value", "{min}");
+        vars.put("min", 3);
+
+        StringWriter writer = new StringWriter();
+        writer.append("message=");
+
+        interpolator.interpolateTo(writer, message, vars, 0);
+        assertThat(writer.toString()).isEqualTo("message={abc} : 3");
+
+    }
+
     @DisplayName("変数の値がない場合")
     @Test
     void testInterpolate_no_define_vars() {
@@ -204,5 +364,219 @@ class MessageInterporlatorTest {
 
     }
 
+    @DisplayName("メッセージコードの解決結果をキャッシュする")
+    @Test
+    void testInterpolate_messageCodeCache() {
+
+        StaticMessageSource messageSource = new StaticMessageSource();
+        messageSource.addMessage("min", Locale.JAPANESE, "最小値");
+
+        MessageSourceAccessor accessor = new LocaleAwareMessageSourceAccessor(messageSource, Locale.JAPANESE);
+
+        String message = "{min}～{unknown}";
+        Map<String, Object> vars = new HashMap<>();
+
+        for(int i=0; i < 3; i++) {
+            assertThat(interpolator.interpolate(message, vars, accessor)).isEqualTo("最小値～{unknown}");
+        }
+
+        // 存在しないコードも含めて、1回ずつのみ解決する
+        MessageCodeCache messageCodeCache = interpolator.getMessageCodeCache();
+        assertThat(messageCodeCache.size()).isEqualTo(2);
+        assertThat(messageCodeCache.getStats().getMissCount()).isEqualTo(2);
+        assertThat(messageCodeCache.getStats().getHitCount()).isEqualTo(4);
+
+        // メッセージソースを変更しても、キャッシュを削除するまでは反映されない
+        messageSource.addMessage("unknown", Locale.JAPANESE, "不明");
+        assertThat(interpolator.interpolate(message, vars, accessor)).isEqualTo("最小値～{unknown}");
+
+        messageCodeCache.clear();
+        assertThat(interpolator.interpolate(message, vars, accessor)).isEqualTo("最小値～不明");
+
+        // 有効期間が0の場合はキャッシュしない
+        messageCodeCache.setCacheMillis(0);
+        messageSource.addMessage("unknown", Locale.JAPANESE, "不明2");
+        assertThat(interpolator.interpolate(message, vars, accessor)).isEqualTo("最小値～不明2");
+
+        // 通常のMessageSourceAccessorの場合はキャッシュしない
+        messageCodeCache.setCacheMillis(-1);
+        messageSource.addMessage("unknown", Locale.JAPANESE, "不明3");
+        assertThat(interpolator.interpolate(message, vars, new MessageSourceAccessor(messageSource, Locale.JAPANESE)))
+            .isEqualTo("最小値～不明3");
+
+    }
+
+
+    @DisplayName("メッセージコードの解決結果のキャッシュ - メッセージソースの再読み込みの間隔に従う")
+    @Test
+    void testMessageCodeCache_reloadable() {
+
+        ReloadableResourceBundleMessageSource messageSource = new ReloadableResourceBundleMessageSource();
+        messageSource.addBasenames("classpath:test_messages");
+        messageSource.setDefaultEncoding("UTF-8");
+        messageSource.setFallbackToSystemLocale(false);
+        MessageSourceAccessor accessor = new LocaleAwareMessageSourceAccessor(messageSource, Locale.JAPANESE);
+
+        MessageCodeCache messageCodeCache = interpolator.getMessageCodeCache();
+        Map<String, Object> vars = new HashMap<>();
+
+        // 再読み込みしない場合は、キャッシュする
+        assertThat(messageCodeCache.getCacheMillis(messageSource)).isEqualTo(-1L);
+        assertThat(interpolator.interpolate("{min}/{unknown}", vars, accessor)).isEqualTo("3/{unknown}");
+        assertThat(messageCodeCache.size()).isEqualTo(2);
+
+        // 毎回再読み込みする場合は、キャッシュしない
+        messageCodeCache.clear();
+        messageSource.setCacheMillis(0);
+        assertThat(messageCodeCache.getCacheMillis(messageSource)).isZero();
+        assertThat(interpolator.interpolate("{min}/{unknown}", vars, accessor)).isEqualTo("3/{unknown}");
+        assertThat(messageCodeCache.size()).isZero();
+
+        // 再読み込みの間隔を有効期間とする
+        messageSource.setCacheSeconds(10);
+        assertThat(messageCodeCache.getCacheMillis(messageSource)).isEqualTo(10_000L);
+        assertThat(interpolator.interpolate("{min}/{unknown}", vars, accessor)).isEqualTo("3/{unknown}");
+        assertThat(messageCodeCache.size()).isEqualTo(2);
+
+        // 有効期間を指定した場合は、メッセージソースの設定より優先する
+        messageCodeCache.setCacheMillis(500);
+        assertThat(messageCodeCache.getCacheMillis(messageSource)).isEqualTo(500L);
+        assertThat(messageCodeCache.getCacheMillis(new StaticMessageSource())).isEqualTo(500L);
+        messageCodeCache.setCacheMillis(-1);
+        assertThat(messageCodeCache.getCacheMillis(new StaticMessageSource())).isEqualTo(-1L);
+
+    }
+
+    @DisplayName("メッセージのコンパイル - セグメントに分割される")
+    @Test
+    void testCompile() {
+
+        String message = "{validatedValue} は、${#min}～{max}の範囲\\{abc}";
+
+        MessageTemplate template = interpolator.compile(message);
+        assertThat(template.getMessage()).isEqualTo(message);
+        assertThat(template.getSegments()).hasSize(6);
+
+        assertThat(template.getSegments().get(0)).isInstanceOfSatisfying(MessageTemplate.VariableSegment.class,
+                segment -> assertThat(segment.getVarName()).isEqualTo("validatedValue"));
+        assertThat(template.getSegments().get(1)).isInstanceOfSatisfying(MessageTemplate.LiteralSegment.class,
+                segment -> assertThat(segment.getText()).isEqualTo(" は、"));
+        assertThat(template.getSegments().get(2)).isInstanceOfSatisfying(MessageTemplate.ExpressionSegment.class,
+                segment -> assertThat(segment.getExpression()).isEqualTo("#min"));
+        assertThat(template.getSegments().get(3)).isInstanceOfSatisfying(MessageTemplate.LiteralSegment.class,
+                segment -> assertThat(segment.getText()).isEqualTo("～"));
+        assertThat(template.getSegments().get(4)).isInstanceOfSatisfying(MessageTemplate.VariableSegment.class,
+                segment -> assertThat(segment.getVarName()).isEqualTo("max"));
+        assertThat(template.getSegments().get(5)).isInstanceOfSatisfying(MessageTemplate.LiteralSegment.class,
+                segment -> assertThat(segment.getText()).isEqualTo("の範囲{abc}"));
+
+    }
+
+    @DisplayName("メッセージのコンパイル - キャッシュされる")
+    @Test
+    void testCompile_cache() {
+
+        String message = "{validatedValue} は、${#min}～{max}の範囲で入力してください。";
+
+        MessageTemplate template = interpolator.compile(message);
+        assertThat(interpolator.compile(message)).isSameAs(template);
+
+        Map<String, Object> vars = new HashMap<>();
+        vars.put("validatedValue", 3);
+        vars.put("min", 1);
+        vars.put("max", 10);
+
+        assertThat(interpolator.interpolate(message, vars)).isEqualTo("3 は、1～10の範囲で入力してください。");
+
+        vars.put("validatedValue", 5);
+        assertThat(interpolator.interpolate(message, vars)).isEqualTo("5 は、1～10の範囲で入力してください。");
+
+    }
+
+    @DisplayName("メッセージのコンパイル - 変数を参照しない式は、コンパイル時に評価される")
+    @Test
+    void testCompile_constantExpression() {
+
+        String message = "${'a' + 'b'}:${10 * 60}:${#join({1, 2, 3\\}, '-')}:${#min * 60}:${T(System).nanoTime() > 0}:${1 / 0}";
+
+        MessageTemplate template = interpolator.compile(message);
+        assertThat(template.getSegments()).filteredOn(MessageTemplate.ExpressionSegment.class::isInstance)
+            .extracting(segment -> ((MessageTemplate.ExpressionSegment) segment).getConstantValue())
+            .containsExactly("ab", "600", "1-2-3", null, null, null);
+
+        Map<String, Object> vars = new HashMap<>();
+        vars.put("min", 2);
+
+        // 評価に失敗する式は、フォーマット時に評価する
+        assertThatThrownBy(() -> interpolator.interpolate(template, vars, null))
+            .isInstanceOf(ArithmeticException.class);
+
+        assertThat(interpolator.interpolate("${'a' + 'b'}:${10 * 60}:${#min * 60}", vars)).isEqualTo("ab:600:120");
+
+        // 再帰的に処理する場合は、評価した結果も処理する
+        assertThat(interpolator.interpolate("${'{mi' + 'n\\}'}", vars, 0)).isEqualTo("2");
+
+    }
+
+    @DisplayName("書式を指定した変数")
+    @Test
+    void testInterpolate_format() {
+
+        StaticMessageSource messageSource = new StaticMessageSource();
+        MessageSourceAccessor japanese = new LocaleAwareMessageSourceAccessor(messageSource, Locale.JAPANESE);
+        MessageSourceAccessor german = new LocaleAwareMessageSourceAccessor(messageSource, Locale.GERMAN);
+
+        Map<String, Object> vars = new HashMap<>();
+        vars.put("amount", 1234.5);
+        vars.put("count", 1234.6);
+        vars.put("date", LocalDate.of(2020, 1, 2));
+        vars.put("a,b", "ab");
+        vars.put("text", "abc");
+
+        String message = "{amount,number,#,##0.00}/{count,integer}/{date,date,yyyy-MM-dd}/{amount}";
+        assertThat(interpolator.interpolate(message, vars, japanese)).isEqualTo("1,234.50/1,235/2020-01-02/1234.5");
+        assertThat(interpolator.interpolate(message, vars, german)).isEqualTo("1.234,50/1.235/2020-01-02/1234.5");
+
+        MessageTemplate template = interpolator.compile(message);
+        assertThat(template.getVariableNames()).containsExactly("amount", "count", "date");
+        assertThat(((MessageTemplate.VariableSegment) template.getSegments().get(0)).getFormat())
+            .hasToString("number,#,##0.00");
+
+        // 日時の型
+        vars.put("date", Timestamp.valueOf("2020-01-02 03:04:05"));
+        assertThat(interpolator.interpolate("{date,datetime,yyyy/MM/dd HH:mm:ss}", vars, japanese)).isEqualTo("2020/01/02 03:04:05");
+
+        // 2番目の要素が書式の種類でない場合は、変数名とする
+        assertThat(interpolator.interpolate("{a,b}", vars, japanese)).isEqualTo("ab");
+
+        // 変換できない型の値や、定義されていない変数
+        assertThat(interpolator.interpolate("{text,number}/{other,number}", vars, japanese)).isEqualTo("abc/{other,number}");
+
+        // 書式に必要な項目を持たない日時の値
+        vars.put("date", LocalDate.of(2020, 1, 2));
+        assertThat(interpolator.interpolate("{date,time}/{date,date,yyyy-MM-dd HH:mm}", vars, japanese))
+            .isEqualTo("2020-01-02/2020-01-02");
+        vars.put("time", LocalTime.of(3, 4, 5));
+        assertThat(interpolator.interpolate("{time,date,yyyy-MM-dd}/{time,time,HH:mm}", vars, japanese))
+            .isEqualTo("03:04:05/03:04");
+
+        // 不正なパターン
+        assertThatThrownBy(() -> interpolator.compile("{count,integer,#}"))
+            .isInstanceOf(MessageParseException.class);
+        assertThatThrownBy(() -> interpolator.compile("{date,date,'yyyy}"))
+            .isInstanceOf(MessageParseException.class);
+
+    }
+
+    @DisplayName("メッセージのコンパイル - サポートしていない式")
+    @Test
+    void testCompile_notSupportExpression() {
+
+        String message = "$abc}";
+
+        assertThatThrownBy(() -> interpolator.compile(message))
+            .isInstanceOf(MessageParseException.class);
+
+    }
 
 }
@@ -0,0 +1,125 @@
+package com.github.mygreen.messageformatter;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.github.mygreen.messageformatter.expression.SpelExpressionEvaluator;
+
+
+/**
+ * {@link MessageParams}のテスト
+ *
+ *
+ * @author T.TSUCHIE
+ *
+ */
+class MessageParamsTest {
+
+    private MessageInterpolator interpolator;
+
+    @BeforeEach
+    void setUp() {
+        this.interpolator = new MessageInterpolator(new SpelExpressionEvaluator());
+    }
+
+    @DisplayName("マップとして利用する")
+    @Test
+    void testMap() {
+
+        MessageParams params = new MessageParams();
+        for(int i=0; i < 10; i++) {
+            params.set("key" + i, i);
+        }
+        params.set("null", null);
+
+        assertThat(params).hasSize(11)
+            .containsEntry("key0", 0)
+            .containsEntry("key9", 9)
+            .containsEntry("null", null)
+            .doesNotContainKey("other");
+
+        // 上書き、削除
+        assertThat(params.put("key0", "zero")).isEqualTo(0);
+        assertThat(params.remove("key1")).isEqualTo(1);
+        assertThat(params).hasSize(10).doesNotContainKey("key1");
+
+        Map<String, Object> expected = new HashMap<>(params);
+        assertThat(params).isEqualTo(expected);
+
+        // コピーは元のインスタンスに影響しない
+        MessageParams copied = params.copy();
+        copied.set("key2", "two");
+        assertThat(params).containsEntry("key2", 2);
+        assertThat(copied).containsEntry("key2", "two").hasSize(10);
+
+    }
+
+    @DisplayName("スロット番号を割り当てたパラメータ")
+    @Test
+    void testSlot() {
+
+        MessageTemplate template = interpolator.compile("{name}は、{min}～{max}、{name}です。");
+        assertThat(template.getVariableNames()).containsExactly("name", "min", "max");
+        assertThat(template.getSlot("max")).isEqualTo(2);
+        assertThat(template.getSlot("other")).isEqualTo(-1);
+
+        MessageParams params = template.newParams()
+                .set("name", "値")
+                .set(template.getSlot("min"), 1);
+
+        // 値を設定していないスロットは、変数が定義されていないものとして扱う
+        assertThat(params).hasSize(2).doesNotContainKey("max");
+        assertThat(interpolator.interpolate(template, params, null)).isEqualTo("値は、1～{max}、値です。");
+
+        params.set(2, null);
+        assertThat(interpolator.interpolate(template, params, null)).isEqualTo("値は、1～、値です。");
+
+        // スロット番号にない変数は、EL式からも参照できる
+        params.set("unit", "円");
+        assertThat(params).containsEntry("unit", "円");
+        assertThat(interpolator.interpolate("${#min}{unit}～{name}", params)).isEqualTo("1円～値");
+
+        assertThatThrownBy(() -> params.set(10, "over"))
+            .isInstanceOf(IndexOutOfBoundsException.class);
+
+    }
+
+    @DisplayName("スロット番号にない変数を追加しても、スロット番号で参照する")
+    @Test
+    void testSlot_extraName() {
+
+        MessageTemplate template = interpolator.compile("{min}～{max}");
+
+        MessageParams params = template.newParams()
+                .set(0, 1)
+                .set(1, 10);
+        assertThat(params.isBoundTo(template.getSlotNames())).isTrue();
+
+        // 配列を拡張する個数の変数を追加する
+        params.set("label", "範囲")
+            .set("unit", "円")
+            .set("value", 5)
+            .set("other", 0);
+        assertThat(params.isBoundTo(template.getSlotNames())).isTrue();
+        assertThat(params.copy().isBoundTo(template.getSlotNames())).isTrue();
+
+        params.set(template.getSlot("max"), 20);
+        assertThat(interpolator.interpolate(template, params, null)).isEqualTo("1～20");
+        assertThat(params).containsEntry("max", 20).containsEntry("other", 0);
+
+        // 追加した変数はスロット番号では参照できない
+        assertThatThrownBy(() -> params.set(2, "over"))
+            .isInstanceOf(IndexOutOfBoundsException.class);
+
+        // スロット番号を割り当てていないインスタンス
+        assertThat(new MessageParams().set("min", 1).isBoundTo(template.getSlotNames())).isFalse();
+
+    }
+
+}
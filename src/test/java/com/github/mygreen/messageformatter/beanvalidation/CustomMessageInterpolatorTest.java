@@ -6,9 +6,12 @@ import java.lang.annotation.Annotation;
 import java.util.Set;
 
 import javax.validation.ConstraintViolation;
+import javax.validation.Validation;
 import javax.validation.Validator;
+import javax.validation.ValidatorFactory;
 import javax.validation.constraints.Max;
 import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
 import javax.validation.constraints.PositiveOrZero;
 
 import org.junit.jupiter.api.Test;
@@ -17,6 +20,10 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import com.github.mygreen.messageformatter.MessageInterpolator;
+import com.github.mygreen.messageformatter.expression.CacheStats;
+import com.github.mygreen.messageformatter.expression.SpelExpressionEvaluator;
+
 import lombok.Data;
 
 
@@ -59,6 +66,77 @@ class CustomMessageInterpolatorTest {
 
     }
 
+    @Test
+    void testCache() {
+
+        ValidationTestConfig config = new ValidationTestConfig();
+        CustomMessageInterpolator messageInterpolator = new CustomMessageInterpolator(
+                config.messageSource(),
+                new MessageInterpolator(new SpelExpressionEvaluator()));
+
+        try(ValidatorFactory validatorFactory = Validation.byDefaultProvider().configure()
+                .messageInterpolator(messageInterpolator)
+                .buildValidatorFactory()) {
+
+            Validator validator = validatorFactory.getValidator();
+
+            for(int i=0; i < 3; i++) {
+                SampleBean targetBean = new SampleBean();
+                targetBean.setName("Yamada Taro" + i);
+                targetBean.setAge(-1 - i);
+
+                Set<ConstraintViolation<SampleBean>> results = validator.validate(targetBean);
+                assertThat(results).extracting(ConstraintViolation::getMessage)
+                    .containsExactlyInAnyOrder(
+                        "サンプルの名前の値は、10より同じか小さい値を設定してください。",
+                        "年齢の値は、0以上の値を設定してください。");
+            }
+
+            // プロパティごとに1回のみ解決する
+            CacheStats stats = messageInterpolator.getPropertyNameCache().getStats();
+            assertThat(messageInterpolator.getPropertyNameCache().size()).isEqualTo(2);
+            assertThat(stats.getLoadCount()).isEqualTo(2);
+            assertThat(stats.getHitCount()).isEqualTo(4);
+
+            // 制約ごとに1回のみ作成する
+            assertThat(messageInterpolator.getConstraintVariablesCache().size()).isEqualTo(2);
+            assertThat(messageInterpolator.getConstraintVariablesCache().getStats().getLoadCount()).isEqualTo(2);
+
+            messageInterpolator.clearPropertyNameCache();
+            assertThat(messageInterpolator.getPropertyNameCache().size()).isZero();
+
+            messageInterpolator.clearCache();
+            assertThat(messageInterpolator.getConstraintVariablesCache().size()).isZero();
+        }
+
+    }
+
+    @Test
+    void testValidate_validatedValuePerViolation() {
+
+        for(int i=11; i < 14; i++) {
+            ScoreBean targetBean = new ScoreBean();
+            targetBean.setScore(i);
+
+            Set<ConstraintViolation<ScoreBean>> results = validator.validate(targetBean);
+            assertThat(results).extracting(ConstraintViolation::getMessage)
+                .containsExactly(i + "は、10以下で入力してください。");
+        }
+
+    }
+
+    @Test
+    void testValidate_nullValidatedValue() {
+
+        RequiredBean targetBean = new RequiredBean();
+
+        // 検証対象の値がnullの場合は、変数が定義されていないものとして扱う
+        Set<ConstraintViolation<RequiredBean>> results = validator.validate(targetBean);
+        assertThat(results).extracting(ConstraintViolation::getMessage)
+            .containsExactly("[{validatedValue}]は必須です。(undefined)");
+
+    }
+
     /**
      * テスト対象のBean
      *
@@ -74,4 +152,28 @@ class CustomMessageInterpolatorTest {
         private Integer age;
 
     }
+
+    /**
+     * 検証対象の値をメッセージに含むBean
+     *
+     */
+    @Data
+    static class ScoreBean {
+
+        @Max(value=10, message="{validatedValue}は、{value}以下で入力してください。")
+        private Integer score;
+
+    }
+
+    /**
+     * 検証対象の値がnullのBean
+     *
+     */
+    @Data
+    static class RequiredBean {
+
+        @NotNull(message="[{validatedValue}]は必須です。(${#validatedValue == null ? 'undefined' : 'defined'})")
+        private String value;
+
+    }
 }
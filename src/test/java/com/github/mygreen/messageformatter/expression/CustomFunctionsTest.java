@@ -5,8 +5,10 @@ import static org.assertj.core.api.Assertions.*;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 import org.junit.jupiter.api.Test;
 
@@ -73,6 +75,41 @@ class CustomFunctionsTest {
 
     }
 
+    /**
+     * {@link CustomFunctions#join(Object, String)} - プリミティブ型の配列
+     */
+    @Test
+    void testJoin_primitive_array() {
+
+        assertThat(CustomFunctions.join(new long[]{1L, 2L, 30000000000L}, ", ")).isEqualTo("1, 2, 30000000000");
+        assertThat(CustomFunctions.join(new double[]{1.5, 2.0}, ", ")).isEqualTo("1.5, 2.0");
+        assertThat(CustomFunctions.join(new float[]{1.5f}, ", ")).isEqualTo("1.5");
+        assertThat(CustomFunctions.join(new short[]{1, 2}, "-")).isEqualTo("1-2");
+        assertThat(CustomFunctions.join(new byte[]{1, -2}, "-")).isEqualTo("1--2");
+        assertThat(CustomFunctions.join(new char[]{'a', 'b'}, null)).isEqualTo("ab");
+        assertThat(CustomFunctions.join(new boolean[]{true, false}, ",")).isEqualTo("true,false");
+        assertThat(CustomFunctions.join(new long[]{}, ",")).isEmpty();
+
+    }
+
+    /**
+     * {@link CustomFunctions#join(Object, String)} - {@link Iterable}、{@link Iterator}、{@link Stream}、{@link CharSequence}
+     */
+    @Test
+    void testJoin_iterable() {
+
+        Iterable<String> iterable = () -> List.of("a", "b").iterator();
+        assertThat(CustomFunctions.join(iterable, ", ")).isEqualTo("a, b");
+        assertThat(CustomFunctions.join(List.of(1, 2).iterator(), ", ")).isEqualTo("1, 2");
+        assertThat(CustomFunctions.join(Stream.of("x", "y", "z"), "")).isEqualTo("xyz");
+        assertThat(CustomFunctions.join(Stream.empty(), ",")).isEmpty();
+        assertThat(CustomFunctions.join("abc", ",")).isEqualTo("abc");
+
+        assertThatThrownBy(() -> CustomFunctions.join(1, ","))
+            .isInstanceOf(IllegalArgumentException.class);
+
+    }
+
     /**
      * {@link CustomFunctions#empty(Object)}
      */
@@ -93,6 +130,16 @@ class CustomFunctionsTest {
         assertThat(CustomFunctions.empty(new Object[] {})).isTrue();
         assertThat(CustomFunctions.empty(new Object[] {"1"})).isFalse();
 
+        // プリミティブ型の配列
+        assertThat(CustomFunctions.empty(new long[] {})).isTrue();
+        assertThat(CustomFunctions.empty(new double[] {1.0})).isFalse();
+
+        assertThat(CustomFunctions.empty(Collections.emptyIterator())).isTrue();
+        assertThat(CustomFunctions.empty(Stream.of("a"))).isFalse();
+
+        Iterable<String> iterable = () -> Collections.emptyIterator();
+        assertThat(CustomFunctions.empty(iterable)).isTrue();
+
     }
 
     /**
@@ -115,6 +162,16 @@ class CustomFunctionsTest {
         assertThat(CustomFunctions.size(new Object[] {})).isZero();
         assertThat(CustomFunctions.size(new Object[] {"1", "2", "3"})).isEqualTo(3);
 
+        // プリミティブ型の配列
+        assertThat(CustomFunctions.size(new long[] {1L, 2L})).isEqualTo(2);
+        assertThat(CustomFunctions.size(new double[] {})).isZero();
+
+        assertThat(CustomFunctions.size(List.of(1, 2).iterator())).isEqualTo(2);
+        assertThat(CustomFunctions.size(Stream.of(1, 2, 3))).isEqualTo(3);
+
+        Iterable<String> iterable = () -> List.of("a", "b").iterator();
+        assertThat(CustomFunctions.size(iterable)).isEqualTo(2);
+
 
     }
 }
@@ -3,6 +3,7 @@ package com.github.mygreen.messageformatter.expression;
 import static org.assertj.core.api.Assertions.*;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -39,6 +40,80 @@ class JexlExpressionEvaluatorTest {
 
     }
 
+    @DisplayName("パースした式を繰り返し評価する")
+    @Test
+    void testParse() {
+
+        ParsedExpression parsedExpression = expressionEvaluator.parse("1 + add");
+
+        assertThat(parsedExpression.evaluate(Map.of("add", 20))).isEqualTo(21);
+        assertThat(parsedExpression.evaluate(Map.of("add", 30))).isEqualTo(31);
+
+    }
+
+    @DisplayName("単純な式 - JEXLを使わずに評価する")
+    @Test
+    void testEvaluate_propertyPath() {
+
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("bean", new SpelExpressionEvaluatorTest.SampleBean("abc", true));
+        variables.put("map", Map.of("name", "map"));
+
+        assertThat(expressionEvaluator.evaluate("bean.name", variables)).isEqualTo("abc");
+        assertThat(expressionEvaluator.evaluate("bean.name.length()", variables)).isEqualTo(3);
+        assertThat(expressionEvaluator.evaluate("bean.enabled", variables)).isEqualTo(true);
+
+        // 単純な式で評価できない場合は、JEXLで評価する
+        assertThat(expressionEvaluator.evaluate("map.name", variables)).isEqualTo("map");
+        assertThat(expressionEvaluator.evaluate("undefined", variables)).isNull();
+
+    }
+
+    @DisplayName("単純な式の評価 - 解析結果をキャッシュする")
+    @Test
+    void testEvaluate_propertyPath_cache() {
+
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("bean", new SpelExpressionEvaluatorTest.SampleBean("abc", true));
+
+        assertThat(expressionEvaluator.evaluate("bean.name", variables)).isEqualTo("abc");
+        assertThat(expressionEvaluator.evaluate("bean.name", variables)).isEqualTo("abc");
+        assertThat(expressionEvaluator.parse("bean.name")).isSameAs(expressionEvaluator.parse("bean.name"));
+        assertThat(expressionEvaluator.getExpressionCache().getStats().getLoadCount()).isEqualTo(1);
+
+    }
+
+    @DisplayName("単純な式の評価 - getterが例外をスローする場合")
+    @Test
+    void testEvaluate_propertyPath_exception() {
+
+        SpelExpressionEvaluatorTest.FailingBean bean = new SpelExpressionEvaluatorTest.FailingBean();
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("bean", bean);
+
+        // getterを再度呼び出さずに、例外をラップする
+        assertThatThrownBy(() -> expressionEvaluator.evaluate("bean.value", variables))
+            .isInstanceOf(EvaluationException.class)
+            .hasRootCauseInstanceOf(IllegalStateException.class);
+        assertThat(bean.getCount()).isEqualTo(1);
+
+    }
+
+    @DisplayName("関数の呼び出し - MethodHandleで呼び出す")
+    @Test
+    void testEvaluate_functionCall() {
+
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("list", List.of(1, 2, 3));
+
+        assertThat(expressionEvaluator.evaluate("f:join(list, \", \")", variables)).isEqualTo("1, 2, 3");
+        assertThat(expressionEvaluator.evaluate("f:defaultString(label)", variables)).isEqualTo("");
+
+        variables.put("label", "abc");
+        assertThat(expressionEvaluator.evaluate("f:defaultString(label)", variables)).isEqualTo("abc");
+
+    }
+
     @DisplayName("空判定を式評価する")
     @Test
     void testEvaluate_empty() {
@@ -0,0 +1,218 @@
+package com.github.mygreen.messageformatter.expression;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * {@link ObjectCache}のテスト
+ *
+ *
+ * @author T.TSUCHIE
+ *
+ */
+class ObjectCacheTest {
+
+    @DisplayName("値の追加と取得")
+    @Test
+    void testPutAndGet() {
+
+        ObjectCache<String, String> cache = new ObjectCache<>(10);
+
+        assertThat(cache.get("a")).isNull();
+        assertThat(cache.contains("a")).isFalse();
+
+        cache.put("a", "A");
+        assertThat(cache.get("a")).isEqualTo("A");
+        assertThat(cache.contains("a")).isTrue();
+
+        // 上書き
+        cache.put("a", "AA");
+        assertThat(cache.get("a")).isEqualTo("AA");
+        assertThat(cache.size()).isEqualTo(1);
+
+        cache.clear();
+        assertThat(cache.get("a")).isNull();
+        assertThat(cache.size()).isZero();
+
+    }
+
+    @DisplayName("最大個数を超えない")
+    @Test
+    void testMaxSize() {
+
+        ObjectCache<Integer, String> cache = new ObjectCache<>(100);
+
+        for(int i=0; i < 1000; i++) {
+            cache.put(i, String.valueOf(i));
+        }
+
+        assertThat(cache.size()).isEqualTo(100);
+        assertThat(cache.getMaxSize()).isEqualTo(100);
+
+    }
+
+    @DisplayName("参照頻度の高い値は、一度しか参照されない値を大量に追加しても残る")
+    @Test
+    void testFrequentlyAccessedRetained() {
+
+        ObjectCache<String, String> cache = new ObjectCache<>(100);
+
+        for(int i=0; i < 10; i++) {
+            cache.put("hot" + i, "hot" + i);
+        }
+
+        for(int i=0; i < 10000; i++) {
+            // 頻繁に参照する値
+            cache.get("hot" + (i % 10));
+
+            // 一度しか参照されない値
+            cache.put("cold" + i, "cold" + i);
+        }
+
+        for(int i=0; i < 10; i++) {
+            assertThat(cache.get("hot" + i)).isEqualTo("hot" + i);
+        }
+
+        assertThat(cache.size()).isEqualTo(100);
+
+    }
+
+    @DisplayName("統計情報の取得")
+    @Test
+    void testStats() {
+
+        ObjectCache<Integer, String> cache = new ObjectCache<>(10);
+
+        assertThat(cache.get(1, String::valueOf)).isEqualTo("1");
+        assertThat(cache.get(1, String::valueOf)).isEqualTo("1");
+        assertThat(cache.get(2)).isNull();
+
+        assertThatThrownBy(() -> cache.get(3, key -> {
+            throw new IllegalStateException("load failure");
+        })).isInstanceOf(IllegalStateException.class);
+
+        for(int i=10; i < 30; i++) {
+            cache.put(i, String.valueOf(i));
+        }
+
+        CacheStats stats = cache.getStats();
+        assertThat(stats.getHitCount()).isEqualTo(1);
+        assertThat(stats.getMissCount()).isEqualTo(3);
+        assertThat(stats.getRequestCount()).isEqualTo(4);
+        assertThat(stats.getHitRate()).isEqualTo(0.25);
+        assertThat(stats.getLoadCount()).isEqualTo(1);
+        assertThat(stats.getLoadFailureCount()).isEqualTo(1);
+        assertThat(stats.getTotalLoadTime()).isPositive();
+        assertThat(stats.getEvictionCount()).isEqualTo(11);
+
+        // 差分の取得
+        cache.get(10);
+        CacheStats diff = cache.getStats().minus(stats);
+        assertThat(diff.getRequestCount()).isEqualTo(1);
+        assertThat(diff.getLoadCount()).isZero();
+
+    }
+
+    @DisplayName("更新中に取得した統計情報が矛盾しない")
+    @Test
+    void testStats_concurrent() throws Exception {
+
+        ObjectCache<Integer, Integer> cache = new ObjectCache<>(32);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for(int t=0; t < 4; t++) {
+                final int seed = t;
+                futures.add(executor.submit(() -> {
+                    for(int i=0; i < 20000; i++) {
+                        cache.get((i * 17 + seed) % 128, key -> key);
+                    }
+                }));
+            }
+
+            CacheStats previous = cache.getStats();
+            while(!futures.stream().allMatch(Future::isDone)) {
+                CacheStats stats = cache.getStats();
+                assertThat(stats.getLoadCount() + stats.getLoadFailureCount()).isEqualTo(stats.getMissCount());
+                assertThat(stats.getRequestCount()).isGreaterThanOrEqualTo(previous.getRequestCount());
+                assertThat(stats.minus(previous).getRequestCount())
+                        .isEqualTo(stats.getRequestCount() - previous.getRequestCount());
+                previous = stats;
+            }
+
+            for(Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+
+        } finally {
+            executor.shutdown();
+        }
+
+        CacheStats stats = cache.getStats();
+        assertThat(stats.getRequestCount()).isEqualTo(4 * 20000);
+        assertThat(stats.getLoadCount()).isEqualTo(stats.getMissCount());
+
+    }
+
+    @DisplayName("最大個数が0以下の場合は全て保持する")
+    @Test
+    void testUnbounded() {
+
+        ObjectCache<Integer, String> cache = new ObjectCache<>(-1);
+        for(int i=0; i < 2000; i++) {
+            cache.put(i, "value" + i);
+        }
+
+        assertThat(cache.size()).isEqualTo(2000);
+        assertThat(cache.getStats().getEvictionCount()).isZero();
+        assertThat(new ObjectCache<>(0).getMaxSize()).isZero();
+
+    }
+
+    @DisplayName("複数のスレッドから同時に利用する")
+    @Test
+    void testConcurrentAccess() throws Exception {
+
+        ObjectCache<Integer, Integer> cache = new ObjectCache<>(64);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for(int t=0; t < 8; t++) {
+                final int seed = t;
+                futures.add(executor.submit(() -> {
+                    for(int i=0; i < 20000; i++) {
+                        int key = (i * 31 + seed) % 256;
+                        Integer value = cache.get(key);
+                        if(value == null) {
+                            cache.put(key, key);
+                        } else {
+                            assertThat(value).isEqualTo(key);
+                        }
+                    }
+                }));
+            }
+
+            for(Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(cache.size()).isLessThanOrEqualTo(64);
+
+    }
+}
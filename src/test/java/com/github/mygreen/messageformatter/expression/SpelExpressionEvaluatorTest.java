@@ -2,6 +2,7 @@ package com.github.mygreen.messageformatter.expression;
 
 import static org.assertj.core.api.Assertions.*;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -10,9 +11,13 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelEvaluationException;
+import org.springframework.expression.spel.SpelMessage;
 import org.springframework.expression.spel.SpelParseException;
 import org.springframework.expression.spel.SpelParserConfiguration;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.util.ReflectionUtils;
 
 
 /**
@@ -43,6 +48,31 @@ class SpelExpressionEvaluatorTest {
 
     }
 
+    @DisplayName("パースした式を繰り返し評価する")
+    @Test
+    void testParse() {
+
+        ParsedExpression parsedExpression = expressionEvaluator.parse("1 + #add");
+
+        assertThat(parsedExpression.evaluate(Map.of("add", 20))).isEqualTo(21);
+        assertThat(parsedExpression.evaluate(Map.of("add", 30))).isEqualTo(31);
+
+    }
+
+    @DisplayName("パースした式のキャッシュの統計情報")
+    @Test
+    void testExpressionCacheStats() {
+
+        expressionEvaluator.evaluate("1 + #add", Map.of("add", 20));
+        expressionEvaluator.evaluate("1 + #add", Map.of("add", 30));
+
+        CacheStats stats = expressionEvaluator.getExpressionCache().getStats();
+        assertThat(stats.getMissCount()).isEqualTo(1);
+        assertThat(stats.getLoadCount()).isEqualTo(1);
+        assertThat(stats.getHitCount()).isEqualTo(1);
+
+    }
+
     @DisplayName("空判定を式評価する - 関数を使用する")
     @Test
     void testEvaluate_empty() {
@@ -93,6 +123,52 @@ class SpelExpressionEvaluatorTest {
 
     }
 
+    @DisplayName("コンテキストの再利用 - 式中で代入した変数は他の評価に影響しない")
+    @Test
+    void testReuseEvaluationContext_assignVariable() {
+
+        assertThat(expressionEvaluator.isReuseEvaluationContext()).isTrue();
+
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("value", 10);
+
+        assertThat(expressionEvaluator.evaluate("#value = #value + 1", variables)).isEqualTo(11);
+        assertThat(variables).containsEntry("value", 10);
+
+        assertThat(expressionEvaluator.evaluate("#value", variables)).isEqualTo(10);
+        assertThat(expressionEvaluator.evaluate("#other", variables)).isNull();
+
+    }
+
+    @DisplayName("コンテキストの再利用 - カスタム関数は同名の変数より優先する")
+    @Test
+    void testReuseEvaluationContext_functionPriority() {
+
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("join", "variable");
+        variables.put("array", List.of("a", "b"));
+
+        assertThat(expressionEvaluator.evaluate("#join(#array, '-')", variables)).isEqualTo("a-b");
+
+        // 共有しない場合も同じ結果になる
+        expressionEvaluator.setReuseEvaluationContext(false);
+        assertThat(expressionEvaluator.evaluate("#join(#array, '-')", variables)).isEqualTo("a-b");
+
+    }
+
+    @DisplayName("コンテキストの再利用 - 後から追加したカスタム関数も利用できる")
+    @Test
+    void testReuseEvaluationContext_addFunction() throws Exception {
+
+        expressionEvaluator.getCustomFunctions().put("str", String.class.getMethod("valueOf", Object.class));
+
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("array", List.of("a", "b"));
+
+        assertThat(expressionEvaluator.evaluate("#str(#array.size())", variables)).isEqualTo("2");
+
+    }
+
     @DisplayName("カスタムしたExpressionParserを指定する場合")
     @Test
     void testConstructor_customExpressionParser() {
@@ -116,6 +192,280 @@ class SpelExpressionEvaluatorTest {
 
     }
 
+    @DisplayName("コンパイルモード - 評価した式がコンパイルされる")
+    @Test
+    void testCompilerMode_immediate() {
+
+        expressionEvaluator.setCompilerMode(SpelCompilerMode.IMMEDIATE);
+        expressionEvaluator.setOptimizeFunctionCall(false);
+
+        String expression = "#join(#array, ', ')";
+
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("array", new int[]{1,2,3});
+
+        for(int i=0; i < 3; i++) {
+            Object result = expressionEvaluator.evaluate(expression, variables);
+            assertThat(result).isEqualTo("1, 2, 3");
+        }
+
+        assertThat(expressionEvaluator.getCompiledExpressions()).containsExactly(expression);
+
+    }
+
+    @DisplayName("コンパイルモード - 変数の型が変わるとインタプリタで評価し直す")
+    @Test
+    void testCompilerMode_fallback() {
+
+        expressionEvaluator.setCompilerMode(SpelCompilerMode.IMMEDIATE);
+
+        String expression = "1 + #add";
+
+        for(int i=0; i < 3; i++) {
+            assertThat(expressionEvaluator.evaluate(expression, Map.of("add", 20))).isEqualTo(21);
+        }
+        assertThat(expressionEvaluator.getCompiledExpressions()).containsExactly(expression);
+
+        // 型が変わった場合
+        assertThat(expressionEvaluator.evaluate(expression, Map.of("add", "abc"))).isEqualTo("1abc");
+
+        // 型が変わり続ける場合は、インタプリタでのみ評価するようになる
+        for(int i=0; i < 10; i++) {
+            Object add = (i % 2 == 0) ? "abc" : Integer.valueOf(20);
+            Object expected = (i % 2 == 0) ? "1abc" : Integer.valueOf(21);
+            assertThat(expressionEvaluator.evaluate(expression, Map.of("add", add))).isEqualTo(expected);
+        }
+        assertThat(expressionEvaluator.getCompiledExpressions()).isEmpty();
+
+    }
+
+    @DisplayName("コンパイルモード - 評価回数がしきい値に達した式のみコンパイルされる")
+    @Test
+    void testCompilerMode_mixed() {
+
+        expressionEvaluator.setCompilerMode(SpelCompilerMode.MIXED);
+        expressionEvaluator.setCompileThreshold(5);
+
+        String hot = "1 + #add";
+        String cold = "2 + #add";
+
+        for(int i=0; i < 4; i++) {
+            assertThat(expressionEvaluator.evaluate(hot, Map.of("add", i))).isEqualTo(1 + i);
+        }
+        assertThat(expressionEvaluator.evaluate(cold, Map.of("add", 1))).isEqualTo(3);
+        assertThat(expressionEvaluator.getCompiledExpressions()).isEmpty();
+
+        // しきい値に達するとコンパイルされる
+        assertThat(expressionEvaluator.evaluate(hot, Map.of("add", 10))).isEqualTo(11);
+        assertThat(expressionEvaluator.getCompiledExpressions()).containsExactly(hot);
+
+        SpelExpressionEvaluator.CachedExpression cached = (SpelExpressionEvaluator.CachedExpression) expressionEvaluator.parse(hot);
+        assertThat(cached.getEvaluationCount()).isEqualTo(5);
+        assertThat(cached.isInterpretedOnly()).isFalse();
+
+        // 失敗回数が上限に達すると、インタプリタでのみ評価する
+        expressionEvaluator.setMaxCompileFailures(1);
+        assertThat(expressionEvaluator.evaluate(hot, Map.of("add", "abc"))).isEqualTo("1abc");
+        assertThat(cached.isInterpretedOnly()).isTrue();
+        assertThat(expressionEvaluator.getCompiledExpressions()).isEmpty();
+
+        assertThatThrownBy(() -> expressionEvaluator.setCompileThreshold(0))
+            .isInstanceOf(IllegalArgumentException.class);
+
+    }
+
+    @DisplayName("単純な式 - SpELを使わずに評価する")
+    @Test
+    void testEvaluate_propertyPath() {
+
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("bean", new SampleBean("abc", true));
+        variables.put("label", "Hello");
+        variables.put("map", Map.of("name", "map"));
+        variables.put("nullValue", null);
+
+        assertThat(expressionEvaluator.evaluate("#label", variables)).isEqualTo("Hello");
+        assertThat(expressionEvaluator.evaluate("#label.length()", variables)).isEqualTo(5);
+        assertThat(expressionEvaluator.evaluate("#bean.name", variables)).isEqualTo("abc");
+        assertThat(expressionEvaluator.evaluate("#bean.name.length()", variables)).isEqualTo(3);
+        assertThat(expressionEvaluator.evaluate("#bean.enabled", variables)).isEqualTo(true);
+        assertThat(expressionEvaluator.evaluate("#nullValue", variables)).isNull();
+
+        // 公開されていないクラスは、公開されているインタフェースのメソッドとして呼び出す
+        variables.put("list", List.of("a", "b"));
+        assertThat(expressionEvaluator.evaluate("#list.size()", variables)).isEqualTo(2);
+
+        // 単純な式で評価できない場合は、SpELで評価する
+        assertThat(expressionEvaluator.evaluate("#undefined", variables)).isNull();
+        assertThatThrownBy(() -> expressionEvaluator.evaluate("#nullValue.length()", variables))
+            .isInstanceOf(SpelEvaluationException.class);
+        assertThatThrownBy(() -> expressionEvaluator.evaluate("#bean.other", variables))
+            .isInstanceOf(SpelEvaluationException.class);
+        assertThat(expressionEvaluator.evaluate("#map['name']", variables)).isEqualTo("map");
+
+        expressionEvaluator.setOptimizePropertyPath(false);
+        assertThat(expressionEvaluator.evaluate("#bean.name", variables)).isEqualTo("abc");
+
+    }
+
+    @DisplayName("単純な式の評価 - getterが例外をスローする場合")
+    @Test
+    void testEvaluate_propertyPath_exception() {
+
+        FailingBean bean = new FailingBean();
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("bean", bean);
+
+        // getterを再度呼び出さずに、SpELと同じ形式の例外に変換する
+        assertThatThrownBy(() -> expressionEvaluator.evaluate("#bean.value", variables))
+            .isInstanceOf(SpelEvaluationException.class)
+            .hasCauseInstanceOf(IllegalStateException.class)
+            .satisfies(e -> assertThat(((SpelEvaluationException) e).getMessageCode()).isEqualTo(SpelMessage.EXCEPTION_DURING_PROPERTY_READ));
+        assertThat(bean.getCount()).isEqualTo(1);
+
+        assertThatThrownBy(() -> expressionEvaluator.evaluate("#bean.check()", variables))
+            .isInstanceOf(IllegalStateException.class);
+        assertThat(bean.getCount()).isEqualTo(2);
+
+    }
+
+    @DisplayName("リスナー - 評価時にパースした式のキャッシュの有無を通知する")
+    @Test
+    void testExpressionListener() {
+
+        List<Boolean> cacheHits = new ArrayList<>();
+        expressionEvaluator.setExpressionListener(new ExpressionListener() {
+
+            @Override
+            public void onExpressionEvaluated(String expression, boolean cacheHit, long nanos) {
+                cacheHits.add(cacheHit);
+            }
+        });
+
+        Map<String, Object> variables = new HashMap<>();
+        expressionEvaluator.evaluate("1 + 2", variables);
+        expressionEvaluator.evaluate("1 + 2", variables);
+        expressionEvaluator.parse("3 + 4").evaluate(variables);
+
+        assertThat(cacheHits).containsExactly(false, true, true);
+
+    }
+
+    @DisplayName("単純な式の解析")
+    @Test
+    void testPropertyPath_parse() {
+
+        assertThat(PropertyPath.parseSpel("#bean.name.length()")).isNotNull();
+        assertThat(PropertyPath.parseSpel("#label")).isNotNull();
+        assertThat(PropertyPath.parseSpel("label")).isNull();
+        assertThat(PropertyPath.parseSpel("#root")).isNull();
+        assertThat(PropertyPath.parseSpel("#bean?.name")).isNull();
+        assertThat(PropertyPath.parseSpel("#bean.substring(1)")).isNull();
+        assertThat(PropertyPath.parseSpel("#join(#bean, ',')")).isNull();
+        assertThat(PropertyPath.parseSpel("#bean.")).isNull();
+
+        // 評価できない場合は、評価エンジンで評価し直す
+        PropertyPath path = PropertyPath.parseSpel("#list.size()");
+        assertThat(path.evaluate(Map.of("list", List.of("a", "b")))).isEqualTo(2);
+        assertThat(path.evaluate(Map.of("list", Map.of()))).isSameAs(PropertyPath.UNRESOLVED);
+        assertThat(path.evaluate(Map.of())).isSameAs(PropertyPath.UNRESOLVED);
+
+        assertThat(PropertyPath.parseJexl("bean.name")).isNotNull();
+        assertThat(PropertyPath.parseJexl("true")).isNull();
+        assertThat(PropertyPath.parseJexl("f:join(bean, ',')")).isNull();
+
+        // 関数の呼び出し
+        assertThat(FunctionCall.parseSpel("#join(#bean.list, ', ')")).isNotNull();
+        assertThat(FunctionCall.parseSpel("#join()")).isNotNull();
+        assertThat(FunctionCall.parseSpel("#join(#list, 'a''b')")).isNull();
+        assertThat(FunctionCall.parseSpel("#join(#list,)")).isNull();
+        assertThat(FunctionCall.parseSpel("#join(#size(#list), ',')")).isNull();
+        assertThat(FunctionCall.parseSpel("#join(#list, ',') + 'a'")).isNull();
+        assertThat(FunctionCall.parseJexl("f:join(list, \",\")")).extracting(FunctionCall::getNamespace).isEqualTo("f");
+        assertThat(FunctionCall.parseJexl("a ? b : f(c)")).isNull();
+
+    }
+
+    @DisplayName("カスタム関数の呼び出し - MethodHandleで呼び出す")
+    @Test
+    void testEvaluate_functionCall() {
+
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("list", List.of(1, 2, 3));
+        variables.put("label", "");
+
+        String expression = "#join(#list, ', ')";
+        assertThat(expressionEvaluator.evaluate(expression, variables)).isEqualTo("1, 2, 3");
+        assertThat(expressionEvaluator.evaluate("#empty(#label)", variables)).isEqualTo(true);
+        assertThat(expressionEvaluator.evaluate("#size(#list)", variables)).isEqualTo(3);
+
+        // 型の変換が必要な場合は、SpELで評価する
+        assertThat(expressionEvaluator.evaluate("#join(#list, 1)", variables)).isEqualTo("11213");
+        assertThat(expressionEvaluator.evaluate("#empty(#undefined)", variables)).isEqualTo(true);
+
+        // 関数の例外は、SpELと同様にラップする
+        expressionEvaluator.getCustomFunctions().put("fail", ReflectionUtils.findMethod(SpelExpressionEvaluatorTest.class, "fail", String.class));
+        assertThatThrownBy(() -> expressionEvaluator.evaluate("#fail('abc')", variables))
+            .isInstanceOfSatisfying(SpelEvaluationException.class,
+                    e -> assertThat(e.getMessageCode()).isEqualTo(SpelMessage.EXCEPTION_DURING_FUNCTION_CALL));
+
+        FunctionRegistry.Function function = expressionEvaluator.getFunctionRegistry().lookup("join");
+        assertThat(function.isApplicable(new Object[] {List.of(), ","})).isTrue();
+        assertThat(function.isApplicable(new Object[] {List.of(), 1})).isFalse();
+        assertThat(function.invoke(new Object[] {List.of("a", "b"), "-"})).isEqualTo("a-b");
+
+        // 引数の配列を作成せずに呼び出す
+        assertThat(function.getArity()).isEqualTo(2);
+        assertThat(function.isApplicable(1, ",")).isTrue();
+        assertThat(function.isApplicable(1, 1)).isFalse();
+        assertThat(function.invoke2(List.of("a", "b"), "-")).isEqualTo("a-b");
+        assertThat(expressionEvaluator.getFunctionRegistry().lookup("size").invoke1(List.of("a", "b"))).isEqualTo(2);
+
+    }
+
+    public static String fail(String value) {
+        throw new IllegalArgumentException(value);
+    }
+
+    public static class SampleBean {
+
+        private final String name;
+
+        private final boolean enabled;
+
+        public SampleBean(String name, boolean enabled) {
+            this.name = name;
+            this.enabled = enabled;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+    }
+
+    public static class FailingBean {
+
+        private int count;
+
+        public String getValue() {
+            count++;
+            throw new IllegalStateException("fail");
+        }
+
+        public String check() {
+            count++;
+            throw new IllegalStateException("fail");
+        }
+
+        public int getCount() {
+            return count;
+        }
+    }
+
     static class Nested {
 
         public List<String> list;